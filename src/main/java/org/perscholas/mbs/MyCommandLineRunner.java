@@ -7,6 +7,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.perscholas.mbs.dao.*;
 import org.perscholas.mbs.models.*;
 import org.perscholas.mbs.service.DoctorService;
+import org.perscholas.mbs.service.SpecialtyRegistry;
+import org.perscholas.mbs.sharding.ReferenceDataCopier;
+import org.perscholas.mbs.sharding.ShardRouter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
@@ -26,17 +29,25 @@ public class MyCommandLineRunner implements CommandLineRunner {
     AppointmentRepoI appointmentRepoI;
 
     DoctorService doctorService;
+    SpecialtyRegistry specialtyRegistry;
 
     AuthGroupRepoI authGroupRepoI;
 
+    ShardRouter shardRouter;
+    ReferenceDataCopier referenceDataCopier;
+
     @Autowired
-    public MyCommandLineRunner(DoctorRepoI doctorRepoI, OfficeRepoI officeRepoI, PatientRepoI patientRepoI, AppointmentRepoI appointmentRepoI, DoctorService doctorService, AuthGroupRepoI authGroupRepoI) {
+    public MyCommandLineRunner(DoctorRepoI doctorRepoI, OfficeRepoI officeRepoI, PatientRepoI patientRepoI, AppointmentRepoI appointmentRepoI, DoctorService doctorService, SpecialtyRegistry specialtyRegistry, AuthGroupRepoI authGroupRepoI,
+                               ShardRouter shardRouter, ReferenceDataCopier referenceDataCopier) {
         this.doctorRepoI = doctorRepoI;
         this.officeRepoI = officeRepoI;
         this.patientRepoI = patientRepoI;
         this.appointmentRepoI = appointmentRepoI;
         this.doctorService = doctorService;
+        this.specialtyRegistry = specialtyRegistry;
         this.authGroupRepoI = authGroupRepoI;
+        this.shardRouter = shardRouter;
+        this.referenceDataCopier = referenceDataCopier;
     }
 
     @PostConstruct
@@ -55,46 +66,48 @@ public class MyCommandLineRunner implements CommandLineRunner {
 
 
         List<String> specialtiesD1 = new ArrayList<>(Arrays.asList("Cardiology", "Dermatology", "Endocrinology"));
-        Doctor d1 = new Doctor(1, "Dr. Bill Nye", "Bill@gmail.com", specialtiesD1);
+        Doctor d1 = new Doctor(1, "Dr. Bill Nye", "Bill@gmail.com", specialtyRegistry.resolve(specialtiesD1));
         doctorRepoI.saveAndFlush(d1);
 
         List<String> specialtiesD2 = new ArrayList<>(Arrays.asList("Family Medicine", "Gastroenterology", "Neurology"));
-        Doctor d2 = new Doctor(2, "Dr. Janet Whitlock", "Janet@gmail.com", specialtiesD2);
+        Doctor d2 = new Doctor(2, "Dr. Janet Whitlock", "Janet@gmail.com", specialtyRegistry.resolve(specialtiesD2));
         doctorRepoI.saveAndFlush(d2);
 
         List<String> specialtiesD3 = new ArrayList<>(Arrays.asList("Ophthalmology", "Pediatrics", "Podiatry"));
-        Doctor d3 = new Doctor(3, "Dr. Phil McGraw", "Phil@gmail.com", specialtiesD3);
+        Doctor d3 = new Doctor(3, "Dr. Phil McGraw", "Phil@gmail.com", specialtyRegistry.resolve(specialtiesD3));
         doctorRepoI.saveAndFlush(d3);
 
         List<String> specialtiesD4 = new ArrayList<>(Arrays.asList("Dermatology", "Neurology"));
-        Doctor d4 = new Doctor(4, "Dr. Gustavo Fring", "Gus@gmail.com", specialtiesD4);
+        Doctor d4 = new Doctor(4, "Dr. Gustavo Fring", "Gus@gmail.com", specialtyRegistry.resolve(specialtiesD4));
         doctorRepoI.saveAndFlush(d4);
 
         List<String> specialtiesD5 = new ArrayList<>(Arrays.asList("Cardiology", "Endocrinology", "Family Medicine", "Gastroenterology", "Pediatrics", "Podiatry", "Sleep Medicine"));
-        Doctor d5 = new Doctor(5, "Dr. Eduardo Gonzalez", "Eduardo@gmail.com", specialtiesD5);
+        Doctor d5 = new Doctor(5, "Dr. Eduardo Gonzalez", "Eduardo@gmail.com", specialtyRegistry.resolve(specialtiesD5));
         doctorRepoI.saveAndFlush(d5);
 
         List<String> specialtiesD6 = new ArrayList<>(Arrays.asList("Dermatology", "Neurology", "Ophthalmology", "Sleep Medicine"));
-        Doctor d6 = new Doctor(6, "Dr. Aisha Amari", "Aisha@gmail.com", specialtiesD6);
+        Doctor d6 = new Doctor(6, "Dr. Aisha Amari", "Aisha@gmail.com", specialtyRegistry.resolve(specialtiesD6));
         doctorRepoI.saveAndFlush(d6);
 
         List<String> specialtiesD7 = new ArrayList<>(Arrays.asList("Dermatology"));
-        Doctor d7 = new Doctor(7, "Dr. Deborah Barlowe", "Deborah@gmail.com", specialtiesD7);
+        Doctor d7 = new Doctor(7, "Dr. Deborah Barlowe", "Deborah@gmail.com", specialtyRegistry.resolve(specialtiesD7));
         doctorRepoI.saveAndFlush(d7);
 
         List<String> specialtiesD8 = new ArrayList<>(Arrays.asList("Dermatology", "Pediatrics", "Sleep Medicine"));
-        Doctor d8 = new Doctor(8, "Dr. Jones Bones", "Jones@gmail.com", specialtiesD8);
+        Doctor d8 = new Doctor(8, "Dr. Jones Bones", "Jones@gmail.com", specialtyRegistry.resolve(specialtiesD8));
         doctorRepoI.saveAndFlush(d8);
 
         doctorService.getDoctorEssentialInfo();
 
 
         Office o1 = new Office(1, "Northdale", "Wilson");
+        o1.setLocation(45.1544, -93.3050);
         o1.addDoctor(d1);
         o1.addDoctor(d2);
         officeRepoI.saveAndFlush(o1);
 
         Office o2 = new Office(2, "Eastview", "Melody");
+        o2.setLocation(44.9601, -93.0228);
         o2.addDoctor(d3);
         o2.addDoctor(d4);
         o2.addDoctor(d5);
@@ -102,11 +115,13 @@ public class MyCommandLineRunner implements CommandLineRunner {
         officeRepoI.saveAndFlush(o2);
 
         Office o3 = new Office(3, "Southtown", "Clair");
+        o3.setLocation(44.8587, -93.2889);
         o3.addDoctor(d6);
         o3.addDoctor(d7);
         officeRepoI.saveAndFlush(o3);
 
         Office o4 = new Office(4, "Westshire", "Brandy");
+        o4.setLocation(44.9211, -93.4687);
         o4.addDoctor(d1);
         officeRepoI.saveAndFlush(o4);
 
@@ -116,19 +131,21 @@ public class MyCommandLineRunner implements CommandLineRunner {
         Patient p1 = new Patient("Zachary Graceman", dobP1, "male", "zgman@gmail.com", "6129106192", 123456789, "nada");
         patientRepoI.saveAndFlush(p1);
 
+        // Only does something when sharding is enabled with "sharding.copy-reference-data"
+        referenceDataCopier.copyIntoEmptyShards();
 
 
         Date appointmentDateA1 = new Date(2023, 4, 1);
-        String time = "";
+        String time = "09:00";
 
         Appointment a1 = new Appointment(appointmentDateA1, time, "Cardiology", d1, o1, p1);
-        appointmentRepoI.saveAndFlush(a1);
+        shardRouter.onShardOf(o1.getId(), () -> appointmentRepoI.saveAndFlush(a1));
 
         Appointment a2 = new Appointment(2, appointmentDateA1, time, "Cardiology", d2, o2, p1);
-        appointmentRepoI.saveAndFlush(a2);
+        shardRouter.onShardOf(o2.getId(), () -> appointmentRepoI.saveAndFlush(a2));
 
         Appointment a3 = new Appointment(3, appointmentDateA1, time, "Dermatology", d3, o2, p1);
-        appointmentRepoI.saveAndFlush(a3);
+        shardRouter.onShardOf(o2.getId(), () -> appointmentRepoI.saveAndFlush(a3));
 
     }
 }
@@ -0,0 +1,130 @@
+package org.perscholas.mbs.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.security.MyUserPrincipal;
+import org.perscholas.mbs.service.AppointmentListingService;
+import org.perscholas.mbs.service.AppointmentListingService.Owner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+/**
+ * The AppointmentApiController class is a Spring REST controller that lists the appointments of a patient, doctor or
+ * office as JSON, for the front desk to page through.
+ *
+ * Listings are ordered by appointment date, then id, and paged with a keyset cursor: the first page is requested
+ * without "afterDate" and "afterId", every following page with the values found under "next" in the previous
+ * response. The response body is streamed by the AppointmentListingService while the rows are read.
+ *
+ * The listings name patients, so a patient may only list their own appointments, and only admins may list those of
+ * any patient, doctor or office. MySecurityConfig turns away callers without the role.
+ */
+@RestController
+@RequestMapping("/api")
+@Slf4j
+public class AppointmentApiController {
+
+    private final AppointmentListingService appointmentListingService;
+
+    /**
+     * Constructor for AppointmentApiController. Initializes the listing service via dependency injection.
+     *
+     * @param appointmentListingService The service writing pages of appointments as JSON.
+     */
+    @Autowired
+    public AppointmentApiController(AppointmentListingService appointmentListingService) {
+        this.appointmentListingService = appointmentListingService;
+    }
+
+    /**
+     * HTTP GET handler for the "/api/patients/{id}/appointments" endpoint.
+     *
+     * @param id The id of the patient whose appointments are listed.
+     * @param afterDate The date of the last appointment of the previous page, omitted for the first page.
+     * @param afterId The id of the last appointment of the previous page, omitted for the first page.
+     * @param limit The maximum number of appointments in the page.
+     * @param principal The logged-in user, who must be the patient or an admin.
+     * @return The streamed page, 404 if there is no such patient, 400 if the limit is out of range, or 403 if the
+     *         user is neither the patient nor an admin.
+     */
+    @GetMapping(value = "/patients/{id}/appointments")
+    public ResponseEntity<StreamingResponseBody> patientAppointments(@PathVariable int id,
+                                                                     @AuthenticationPrincipal MyUserPrincipal principal,
+                                                                     @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate afterDate,
+                                                                     @RequestParam(defaultValue = "0") int afterId,
+                                                                     @RequestParam(defaultValue = "" + AppointmentListingService.DEFAULT_LIMIT) int limit) {
+
+        log.warn("I am in the patientAppointments api controller method");
+
+        if (principal == null || (principal.getPatientId() != id && !principal.isAdmin())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return listing(Owner.PATIENT, id, afterDate, afterId, limit);
+    }
+
+    /**
+     * HTTP GET handler for the "/api/doctors/{id}/appointments" endpoint.
+     *
+     * @param id The id of the doctor whose appointments are listed.
+     * @param afterDate The date of the last appointment of the previous page, omitted for the first page.
+     * @param afterId The id of the last appointment of the previous page, omitted for the first page.
+     * @param limit The maximum number of appointments in the page.
+     * @return The streamed page, 404 if there is no such doctor, or 400 if the limit is out of range.
+     */
+    @GetMapping(value = "/doctors/{id}/appointments")
+    public ResponseEntity<StreamingResponseBody> doctorAppointments(@PathVariable int id,
+                                                                    @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate afterDate,
+                                                                    @RequestParam(defaultValue = "0") int afterId,
+                                                                    @RequestParam(defaultValue = "" + AppointmentListingService.DEFAULT_LIMIT) int limit) {
+
+        log.warn("I am in the doctorAppointments api controller method");
+        return listing(Owner.DOCTOR, id, afterDate, afterId, limit);
+    }
+
+    /**
+     * HTTP GET handler for the "/api/offices/{id}/appointments" endpoint.
+     *
+     * @param id The id of the office whose appointments are listed.
+     * @param afterDate The date of the last appointment of the previous page, omitted for the first page.
+     * @param afterId The id of the last appointment of the previous page, omitted for the first page.
+     * @param limit The maximum number of appointments in the page.
+     * @return The streamed page, 404 if there is no such office, or 400 if the limit is out of range.
+     */
+    @GetMapping(value = "/offices/{id}/appointments")
+    public ResponseEntity<StreamingResponseBody> officeAppointments(@PathVariable int id,
+                                                                    @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate afterDate,
+                                                                    @RequestParam(defaultValue = "0") int afterId,
+                                                                    @RequestParam(defaultValue = "" + AppointmentListingService.DEFAULT_LIMIT) int limit) {
+
+        log.warn("I am in the officeAppointments api controller method");
+        return listing(Owner.OFFICE, id, afterDate, afterId, limit);
+    }
+
+    private ResponseEntity<StreamingResponseBody> listing(Owner owner, int id, LocalDate afterDate, int afterId, int limit) {
+
+        if (limit < 1 || limit > AppointmentListingService.MAX_LIMIT) {
+            log.warn("Listing limit out of range: " + limit);
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (!appointmentListingService.ownerExists(owner, id)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        LocalDate after = afterDate == null ? AppointmentListingService.START_DATE : afterDate;
+
+        StreamingResponseBody body = out -> appointmentListingService.writePage(owner, id, after, afterId, limit, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
@@ -4,12 +4,22 @@ import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.dao.DoctorRepoI;
+import org.perscholas.mbs.dao.OfficeRepoI;
+import org.perscholas.mbs.dao.PatientRepoI;
+import org.perscholas.mbs.dto.BookingResult;
 import org.perscholas.mbs.models.Appointment;
 import org.perscholas.mbs.models.Doctor;
 import org.perscholas.mbs.models.Office;
 import org.perscholas.mbs.models.Patient;
 import org.perscholas.mbs.service.AppointmentService;
+import org.perscholas.mbs.service.AvailabilityService;
+import org.perscholas.mbs.service.BookingService;
+import org.perscholas.mbs.service.BookingState;
+import org.perscholas.mbs.service.BookingStateStore;
+import org.perscholas.mbs.service.SlotSchedule;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -19,115 +29,110 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.ArrayList;
+import java.time.LocalDate;
 import java.util.Date;
-import java.util.List;
+import java.util.Optional;
 
 /**
  * The AppointmentController class is a Spring Web controller that handles requests related to appointments. This
  * controller is responsible for functionalities such as viewing the appointment booking page, booking an appointment,
  * confirming the appointment, and canceling the appointment.
  *
- * The class maintains multiple fields throughout the flow of the application, representing the selected specialty,
- * office, doctor, registered patient, selected date and time, and an Appointment object being created. It also includes
- * instances of AppointmentRepoI and AppointmentService for interacting with the appointment data.
+ * The selections made throughout the flow of the application (specialty, office, doctor, registered patient, selected
+ * date and time, and the appointment last looked up) belong to each user and are kept as ids in their BookingState,
+ * retrieved from the BookingStateStore for every request. The controller itself holds no per-user fields. It also
+ * includes instances of AppointmentRepoI and AppointmentService for interacting with the appointment data, and the
+ * AvailabilityService which decides which appointment times can still be offered for the selected doctor and office.
+ * Appointments are committed and cancelled through the BookingService, which guarantees a slot is never booked twice.
  */
 @Controller
 @Slf4j
 public class AppointmentController {
 
-    // Fields to hold information throughout the flow of the application
-    private String selectedSpecialty = "";
-    private Office selectedOffice = new Office();
-    private Doctor selectedDoctor = new Doctor();
-    private Patient registeredPatient = new Patient();
-    private Date selectedDate = new Date();
-    private String selectedTime = null;
-    private Appointment buildingAppointment = new Appointment();
-
     // Injecting the necessary services and repositories
     private final AppointmentRepoI appointmentRepoI;
+    private final DoctorRepoI doctorRepoI;
+    private final OfficeRepoI officeRepoI;
+    private final PatientRepoI patientRepoI;
     private final AppointmentService appointmentService;
+    private final AvailabilityService availabilityService;
+    private final BookingService bookingService;
+    private final BookingStateStore bookingStateStore;
 
     /**
      * Constructor for AppointmentController. Initializes all repository interfaces and service classes via dependency injection.
      * Dependency injection allows the Spring framework to automatically manage the lifecycle of the dependencies.
      *
      * @param appointmentRepoI The repository for handling database operations related to appointments.
+     * @param doctorRepoI The repository used to load the selected doctor.
+     * @param officeRepoI The repository used to load the selected office.
+     * @param patientRepoI The repository used to load the registered patient.
      * @param appointmentService The service class encapsulating business logic related to appointments.
+     * @param availabilityService The service keeping track of booked and free appointment slots.
+     * @param bookingService The service committing and cancelling appointments without double booking a slot.
+     * @param bookingStateStore The store holding each user's selections throughout the booking flow.
      */
     @Autowired
-    public AppointmentController(AppointmentRepoI appointmentRepoI, AppointmentService appointmentService) {
+    public AppointmentController(AppointmentRepoI appointmentRepoI, DoctorRepoI doctorRepoI, OfficeRepoI officeRepoI, PatientRepoI patientRepoI, AppointmentService appointmentService, AvailabilityService availabilityService, BookingService bookingService, BookingStateStore bookingStateStore) {
         this.appointmentRepoI = appointmentRepoI;
+        this.doctorRepoI = doctorRepoI;
+        this.officeRepoI = officeRepoI;
+        this.patientRepoI = patientRepoI;
         this.appointmentService = appointmentService;
+        this.availabilityService = availabilityService;
+        this.bookingService = bookingService;
+        this.bookingStateStore = bookingStateStore;
     }
 
     /**
      * HTTP GET handler for the "book-appointment" endpoint.
      *
-     * Method to prepare and display the book appointment page. Retrieves necessary objects like selectedSpecialty,
-     * selectedOffice, selectedDoctor, and registeredPatient from the session. Also, adds a new Appointment object
-     * to the model under the attribute "appointment", which is used in the view to bind form data.
+     * Method to prepare and display the book appointment page. Retrieves the user's selected specialty, office,
+     * doctor and registered patient from their BookingState and loads them. Also, adds a new Appointment object
+     * to the model under the attribute "appointment", which is used in the view to bind form data, together with the
+     * free appointment times of the selected doctor and office on the requested date under "freeSlots".
      *
-     * If selectedSpecialty, selectedDoctor or registeredPatient is null, the method redirects the user to the
+     * If the specialty, doctor or patient has not been selected yet, the method redirects the user to the
      * respective previous page with a suitable warning message.
      *
-     * TODO: Create method "isSpecialtyNull" and "isDoctorNull" for better manageability and code readability.
-     *
+     * @param date The date to show free appointment times for. Defaults to tomorrow, the earliest bookable date.
      * @param model The Model object is automatically provided by Spring and can be used to add attributes
      *              to the model, which are then accessible in the view.
-     * @param session The HttpSession object is used to retrieve session attributes like selectedSpecialty,
-     *                selectedOffice, selectedDoctor, and registeredPatient.
+     * @param session The HttpSession object identifies the user whose BookingState is used.
      * @param redirectAttributes The RedirectAttributes object is used to add attributes to the session that
      *                           can be used after a redirect. In this case, it's used to add a warning message
      *                           when no specialty, doctor or patient has been registered.
-     * @return The name of the view to be rendered, or a redirect instruction if necessary objects are null.
+     * @return The name of the view to be rendered, or a redirect instruction if necessary selections are missing.
      * @throws Exception If an error occurs during the method execution.
      */
     @GetMapping(value = "book-appointment")
-    public String bookAppointmentPage(Model model, HttpSession session, RedirectAttributes redirectAttributes) throws Exception {
+    public String bookAppointmentPage(@RequestParam(name = "date", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date, Model model, HttpSession session, RedirectAttributes redirectAttributes) throws Exception {
 
         log.warn("I am in the book-appointment controller method");
 
-        log.info("Retrieving selectedSpecialty from HttpSession. Casting returned value from Object to String");
-        selectedSpecialty = (String) session.getAttribute("selectedSpecialty");
-        System.out.println(selectedSpecialty);
-
-        log.info("Retrieving selectedOffice from HttpSession. Casting returned value from Object to Office");
-        selectedOffice = (Office) session.getAttribute("selectedOffice");
+        BookingState state = bookingStateStore.get(session);
+        log.debug("Booking state: " + state);
 
-        log.info("Retrieving selectedDoctor from HttpSession. Casting returned value from Object to Doctor");
-        selectedDoctor = (Doctor) session.getAttribute("selectedDoctor");
-
-        log.info("Retrieving registeredPatient from HttpSession. Casting returned value from Object to Patient");
-        registeredPatient = (Patient) session.getAttribute("registeredPatient");
-        // TODO: retrieve registeredPatient from database instead of HttpSession - maybe
+        String redirect = checkSelections(state, redirectAttributes);
+        if (redirect != null) {
+            return redirect;
+        }
 
-        // TODO: Create method "isSpecialtyNull", call method, replacing following 5 lines of code. Probably use service layer?
-        if (selectedSpecialty == null) {
-            log.warn("Specialty is empty! Returning to index");
-            redirectAttributes.addFlashAttribute("insertedDanger", "Please select a specialty!");
-            return "redirect:index";
+        if (date == null) {
+            date = LocalDate.now().plusDays(1);
         }
 
-        // TODO: Define and fix selectedDoctor.getName() and selectedDoctor == null bug. then create method "isDoctorNull"
-        if (selectedDoctor == null) {
-            log.warn("Doctor is Empty! Returning to select-clinic");
+        String time = null;
+        Appointment buildingAppointment = draftAppointment(state, SlotSchedule.toDate(date), time);
+
+        if (buildingAppointment == null) {
+            log.warn("Selected doctor, office or patient no longer exists!");
             redirectAttributes.addFlashAttribute("insertedDangerClinic", "Please select a Clinic and Doctor!");
             return "redirect:select-clinic";
         }
 
-        if (registeredPatient == null) {
-            log.warn("Patient Not Registered!");
-            redirectAttributes.addFlashAttribute("insertedDangerPatient", "Please Complete Registration!");
-            return "redirect:patient-registration";
-        }
-
-        String time = null;
-        Date date = null;
-        buildingAppointment = new Appointment(0, date, time, selectedSpecialty, selectedDoctor, selectedOffice, registeredPatient);
-
         model.addAttribute("appointment", buildingAppointment);
+        model.addAttribute("freeSlots", availabilityService.freeSlots(state.getDoctorId(), state.getOfficeId(), date));
 
         return "book-appointment";
     }
@@ -136,27 +141,27 @@ public class AppointmentController {
      * HTTP POST handler for the "/post-book-appointment" endpoint.
      *
      * This method is responsible for processing the appointment booking form.
-     * If the BindingResult has errors, it redirects the user back to the booking page with the incomplete Appointment object
-     * and a warning message.
-     * It also checks that the selected date is not before the current date, redirecting with a warning if it is.
+     * If the BindingResult has errors, it redirects the user back to the booking page with a warning message.
+     * It also checks that the selected date is not before the current date, and that the selected time is still a free
+     * slot for the selected doctor and office on that date, redirecting with a warning if either check fails.
      *
-     * The method updates the buildingAppointment object with the builtAppointment's date and time, and stores these in separate variables
-     * for further use. Once all checks have passed, the user is redirected to the appointment confirmation page.
+     * The selected date and slot are stored in the user's BookingState for the confirmation step.
+     * Once all checks have passed, the user is redirected to the appointment confirmation page.
      *
      * @param builtAppointment The built Appointment object, constructed from the form data by Spring.
      * @param bindingResult The BindingResult object that contains the result of the validation and binding from the form.
+     * @param session The HttpSession object identifies the user whose BookingState is updated.
      * @param redirectAttributes The RedirectAttributes object is used to add attributes to the session that can be used after a redirect.
-     *                           In this case, it's used to add a warning message and the incomplete Appointment object when there are errors.
+     *                           In this case, it's used to add a warning message when there are errors.
      * @return The redirect instruction to the next page in the flow, or back to the booking page if there are errors.
      */
     @PostMapping(value = "/post-book-appointment")
-    public String bookAppointmentProcess(@Valid @ModelAttribute("appointment") Appointment builtAppointment, BindingResult bindingResult, RedirectAttributes redirectAttributes) {
+    public String bookAppointmentProcess(@Valid @ModelAttribute("appointment") Appointment builtAppointment, BindingResult bindingResult, HttpSession session, RedirectAttributes redirectAttributes) {
 
         log.warn("I am in the bookAppointmentProcess controller method");
 
         if (bindingResult.hasErrors()) {
             log.debug(bindingResult.getAllErrors().toString());
-            redirectAttributes.addFlashAttribute("appointment", buildingAppointment);
             redirectAttributes.addFlashAttribute("insertedDangerDateTime", "Please choose appointment Date & Time!");
             return "redirect:book-appointment";
         }
@@ -166,14 +171,29 @@ public class AppointmentController {
 
         if (d1.compareTo(d2) < 0) {
             log.debug("Selected date is before today's date!");
-            redirectAttributes.addFlashAttribute("appointment", buildingAppointment);
             redirectAttributes.addFlashAttribute("insertedDangerWrongDate", "Your appointment cannot be scheduled on or before today's date!");
             return "redirect:book-appointment";
         }
 
-        buildingAppointment = builtAppointment; // Appends newly added Date and Time to appointment
-        selectedDate = builtAppointment.getAppointmentDate();
-        selectedTime = builtAppointment.getAppointmentTime();
+        BookingState state = bookingStateStore.get(session);
+
+        if (!state.hasDoctor()) {
+            log.warn("Doctor is Empty! Returning to select-clinic");
+            redirectAttributes.addFlashAttribute("insertedDangerClinic", "Please select a Clinic and Doctor!");
+            return "redirect:select-clinic";
+        }
+
+        LocalDate day = SlotSchedule.toLocalDate(d1);
+        int slot = SlotSchedule.slotOf(builtAppointment.getAppointmentTime());
+
+        if (slot < 0 || !availabilityService.isFree(state.getDoctorId(), state.getOfficeId(), day, slot)) {
+            log.debug("Selected time is not an available slot!");
+            redirectAttributes.addFlashAttribute("insertedDangerDateTime", "Please choose one of the available appointment times!");
+            return "redirect:book-appointment?date=" + day;
+        }
+
+        state.setEpochDay((int) day.toEpochDay());
+        state.setSlot(slot);
 
         return "redirect:appointment-confirmation";
     }
@@ -186,57 +206,62 @@ public class AppointmentController {
      * to ensure that a specialty, doctor, patient, and appointment date & time have been selected.
      * If any of these elements are missing, the user is redirected back to the appropriate page with a warning message.
      *
-     * If all the necessary elements are present, a final Appointment object is created and saved to the database.
-     * This final Appointment object is added to the model and passed to the view for confirmation.
+     * If all the necessary elements are present, the selected slot is reserved and a final Appointment object is created
+     * and saved to the database. If another patient booked the slot in the meantime, the user is sent back to choose a
+     * different time. This final Appointment object is added to the model and passed to the view for confirmation.
+     * The date & time selection is cleared afterwards, so reloading the page cannot book the appointment twice.
      *
      * @param model The Model object is automatically provided by Spring and can be used to add attributes
      *              to the model, which are then accessible in the view.
+     * @param session The HttpSession object identifies the user whose BookingState is used.
      * @param redirectAttributes The RedirectAttributes object is used to add attributes to the session that can be used
      *                           after a redirect. In this case, it's used to add a warning message when any necessary element is missing.
      * @return The name of the view to be rendered, or a redirect instruction if any necessary element is missing.
      * @throws Exception Throws an Exception if there's an issue creating the Appointment object or saving it to the database.
      */
     @GetMapping(value = "appointment-confirmation")
-    public String appointmentConfirmationPage(Model model, RedirectAttributes redirectAttributes) throws Exception {
+    public String appointmentConfirmationPage(Model model, HttpSession session, RedirectAttributes redirectAttributes) throws Exception {
 
         log.warn("I am in the appointment-confirmation controller method");
 
-        // TODO: Create method "isSpecialtyNull", call method, replacing following 5 lines of code. Probably use service layer?
-        if (selectedSpecialty == null) {
-            log.warn("Specialty is empty! Returning to index");
-            redirectAttributes.addFlashAttribute("insertedDanger", "Please select a specialty!");
-            return "redirect:index";
-        }
+        BookingState state = bookingStateStore.get(session);
 
-        // TODO: Define and fix selectedDoctor.getName() and selectedDoctor == null bug. then create method "isDoctorNull"
-        if (selectedDoctor == null) {
-            log.warn("Doctor is Empty! Returning to select-clinic");
-            redirectAttributes.addFlashAttribute("insertedDangerClinic", "Please select a Clinic and Doctor!");
-            return "redirect:select-clinic";
-        }
-
-        if (registeredPatient == null) {
-            log.warn("Patient Not Registered!");
-            redirectAttributes.addFlashAttribute("insertedDangerPatient", "Please Complete Registration!");
-            return "redirect:patient-registration";
+        String redirect = checkSelections(state, redirectAttributes);
+        if (redirect != null) {
+            return redirect;
         }
 
-        if (buildingAppointment.getAppointmentDate() == null) {
+        if (!state.hasDateAndTime()) {
             log.warn("Appointment Date & Time not set!");
             redirectAttributes.addFlashAttribute("insertedDangerDateTime", "Please choose appointment Date & Time!");
             return "redirect:book-appointment";
         }
 
-        if (buildingAppointment.getAppointmentTime().isBlank()) {
-            log.warn("Appointment Date & Time not set!");
-            redirectAttributes.addFlashAttribute("insertedDangerDateTime", "Please choose appointment Date & Time!");
-            return "redirect:book-appointment";
+        LocalDate day = LocalDate.ofEpochDay(state.getEpochDay());
+        Appointment finalAppointment = draftAppointment(state, SlotSchedule.toDate(day), SlotSchedule.timeOf(state.getSlot()));
+
+        if (finalAppointment == null) {
+            log.warn("Selected doctor, office or patient no longer exists!");
+            redirectAttributes.addFlashAttribute("insertedDangerClinic", "Please select a Clinic and Doctor!");
+            return "redirect:select-clinic";
         }
 
-        Appointment finalAppointment = new Appointment(selectedDate, selectedTime, selectedSpecialty, selectedDoctor, selectedOffice, registeredPatient);
-        appointmentRepoI.saveAndFlush(finalAppointment);
+        BookingResult result = bookingService.book(finalAppointment);
+        state.clearDateAndTime();
 
-        model.addAttribute("appointment", finalAppointment);
+        if (result.getStatus() == BookingResult.Status.OFFICE_FULL) {
+            log.warn("Office is fully booked for that hour!");
+            redirectAttributes.addFlashAttribute("insertedDangerDateTime", "Sorry, the clinic is fully booked at that hour. Please choose another time!");
+            return "redirect:book-appointment?date=" + day;
+        }
+
+        if (!result.isBooked()) {
+            log.warn("Appointment slot was already taken!");
+            redirectAttributes.addFlashAttribute("insertedDangerDateTime", "Sorry, that appointment time was just taken. Please choose another time!");
+            return "redirect:book-appointment?date=" + day;
+        }
+
+        model.addAttribute("appointment", result.getAppointment());
 
         return "appointment-confirmation";
     }
@@ -247,7 +272,8 @@ public class AppointmentController {
      * This method is responsible for processing the confirmation of an appointment.
      * Currently, it doesn't have any specific functionality or validation and simply redirects to the "/post-appointment-confirmation" endpoint.
      *
-     * Future enhancements might include sending an email confirmation, updating appointment status in the database, or other related actions.
+     * Reminders are sent ahead of every booked appointment by the ReminderScheduler. Future enhancements might include
+     * sending an email confirmation, updating appointment status in the database, or other related actions.
      *
      * @return The redirect instruction to the "/post-appointment-confirmation" endpoint.
      */
@@ -287,29 +313,29 @@ public class AppointmentController {
         return "appointment-lookup";
     }
 
-    private Integer cancelID;
-
     /**
      * HTTP POST handler for the "/post-appointment-lookup" endpoint.
      *
      * This method is responsible for processing the appointment lookup form submission.
      * It first checks if the input (id) is null, if so, it redirects back to the appointment lookup page with a warning message.
      *
-     * It retrieves all the appointments and validates the entered id. If the id is not valid (i.e. there is no appointment with that id),
-     * it redirects back to the appointment lookup page with an error message.
+     * It looks the entered id up through the AppointmentService, which rejects unknown ids from memory and otherwise reads
+     * only that appointment by primary key. If there is no appointment with that id, it redirects back to the appointment
+     * lookup page with an error message.
      *
-     * If the id is valid, it fetches the corresponding appointment and adds it as a flash attribute to be used after the redirect.
-     * It also stores the id in a private field, 'cancelID', for further processing.
+     * If the id is valid, it adds the found appointment as a flash attribute to be used after the redirect.
+     * It also stores the id in the user's BookingState, as the appointment a following cancellation applies to.
      *
      * @param id The id of the appointment the user wants to lookup, obtained from the form submission.
+     * @param session The HttpSession object identifies the user whose BookingState is updated.
      * @param redirectAttributes The RedirectAttributes object is used to add attributes to the session that can be used
      *                           after a redirect. In this case, it's used to add a warning message when no id is entered or if no appointment exists for the entered id.
      * @return A redirect instruction back to the appointment lookup page, with the relevant flash attributes added.
-     * @throws Exception Throws an Exception if there's an issue getting the list of all appointments.
+     * @throws Exception Throws an Exception if there's an issue looking up the appointment.
      */
     // TODO: Implement verification so user's cannot see other patient's appointment details
     @PostMapping(value = "/post-appointment-lookup")
-    public String appointmentLookupProcess(@RequestParam(name = "12345", required = false) Integer id, RedirectAttributes redirectAttributes) throws Exception {
+    public String appointmentLookupProcess(@RequestParam(name = "12345", required = false) Integer id, HttpSession session, RedirectAttributes redirectAttributes) throws Exception {
 
         log.warn("I am in the appointmentLookupProcess controller method");
 
@@ -321,23 +347,17 @@ public class AppointmentController {
 
         System.out.println(id);
 
-        List<Appointment> appointments = appointmentService.getAllAppointments();
-        List<Integer> validIDs = new ArrayList<>();
+        Optional<Appointment> flashAppointment = appointmentService.lookup(id);
 
-        for (Appointment appointment : appointments) {
-            validIDs.add(appointment.getId());
-        }
-
-        if (!validIDs.contains(id)) {
+        if (flashAppointment.isEmpty()) {
             log.warn("No Such Appointment Exists!");
             redirectAttributes.addFlashAttribute("noAppointmentDanger", "Sorry, no Appointment exists by this ID.");
             return "redirect:appointment-lookup";
         }
 
-        Appointment flashAppointment = appointmentRepoI.findById(id).get();
-        redirectAttributes.addFlashAttribute("appointment", flashAppointment);
+        redirectAttributes.addFlashAttribute("appointment", flashAppointment.get());
 
-        cancelID = id;
+        bookingStateStore.get(session).setLookupId(id);
 
         return "redirect:appointment-lookup";
     }
@@ -346,21 +366,73 @@ public class AppointmentController {
      * HTTP POST handler for the "/post-appointment-cancellation" endpoint.
      *
      * This method is responsible for handling the cancellation of appointments.
-     * It uses the 'cancelID' field, which should have been previously set by a successful call to the 'appointmentLookupProcess' method,
-     * to identify which appointment to delete.
+     * It uses the lookup id in the user's BookingState, which should have been previously set by a successful call to the
+     * 'appointmentLookupProcess' method, to identify which appointment to delete. The appointment's slot is released so
+     * it can be booked again.
      *
+     * @param session The HttpSession object identifies the user whose BookingState is used.
      * @return The name of the view to be rendered after the appointment is cancelled, in this case the 'appointment-lookup' page.
      */
     // TODO: Prevent users from cancelling other patient's appointments
     @PostMapping(value = "/post-appointment-cancellation")
-    public String appointmentCancellationProcess() {
+    public String appointmentCancellationProcess(HttpSession session) {
 
         log.warn("I am in the appointmentCancellationProcess controller method");
 
-        System.out.println(cancelID);
+        BookingState state = bookingStateStore.get(session);
+        System.out.println(state.getLookupId());
 
-        appointmentRepoI.deleteById(cancelID);
+        if (state.getLookupId() != 0) {
+            bookingService.cancel(state.getLookupId());
+            state.setLookupId(0);
+        }
 
         return "appointment-lookup";
     }
+
+    /**
+     * Checks that the specialty, doctor and patient steps of the booking flow have been completed.
+     *
+     * @return A redirect instruction to the first incomplete step, or null if all of them are complete.
+     */
+    private String checkSelections(BookingState state, RedirectAttributes redirectAttributes) {
+
+        if (!state.hasSpecialty()) {
+            log.warn("Specialty is empty! Returning to index");
+            redirectAttributes.addFlashAttribute("insertedDanger", "Please select a specialty!");
+            return "redirect:index";
+        }
+
+        if (!state.hasDoctor()) {
+            log.warn("Doctor is Empty! Returning to select-clinic");
+            redirectAttributes.addFlashAttribute("insertedDangerClinic", "Please select a Clinic and Doctor!");
+            return "redirect:select-clinic";
+        }
+
+        if (!state.hasPatient()) {
+            log.warn("Patient Not Registered!");
+            redirectAttributes.addFlashAttribute("insertedDangerPatient", "Please Complete Registration!");
+            return "redirect:patient-registration";
+        }
+
+        return null;
+    }
+
+    /**
+     * Loads the selected doctor, office and patient and builds an unsaved Appointment from them.
+     *
+     * @return The Appointment, or null if any of the selected entities no longer exists.
+     */
+    private Appointment draftAppointment(BookingState state, Date date, String time) {
+
+        Doctor doctor = doctorRepoI.findById(state.getDoctorId()).orElse(null);
+        Office office = officeRepoI.findById(state.getOfficeId()).orElse(null);
+        Patient patient = patientRepoI.findById(state.getPatientId()).orElse(null);
+
+        if (doctor == null || office == null || patient == null) {
+            return null;
+        }
+
+        return new Appointment(date, time, state.getSpecialty(), doctor, office, patient);
+    }
 }
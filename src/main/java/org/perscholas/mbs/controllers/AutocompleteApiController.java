@@ -0,0 +1,62 @@
+package org.perscholas.mbs.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.AutocompleteSuggestionDTO;
+import org.perscholas.mbs.service.AutocompleteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * The AutocompleteApiController class is a Spring REST controller suggesting doctors, offices and specialties while
+ * a patient or the front desk types, served from memory by the AutocompleteService.
+ */
+@RestController
+@RequestMapping("/api")
+@Slf4j
+public class AutocompleteApiController {
+
+    private static final int MAX_LIMIT = 50;
+    private static final int MAX_QUERY_LENGTH = 100;
+
+    private final AutocompleteService autocompleteService;
+
+    /**
+     * Constructor for AutocompleteApiController. Initializes the autocomplete service via dependency injection.
+     *
+     * @param autocompleteService The service holding the autocomplete index.
+     */
+    @Autowired
+    public AutocompleteApiController(AutocompleteService autocompleteService) {
+        this.autocompleteService = autocompleteService;
+    }
+
+    /**
+     * HTTP GET handler for the "/api/autocomplete" endpoint.
+     *
+     * Every word typed must start a word of the name ("bil ny" finds "Dr. Bill Nye"), case and accents aside. Words
+     * matching nothing are retried allowing a typo or two, and such matches are listed after exact ones.
+     *
+     * @param query The text typed so far.
+     * @param limit The number of suggestions to return, at most 50.
+     * @return The suggestions, each with its type ("specialty", "office" or "doctor"), id and name, or 400 if the
+     *         query is too long or the limit is out of range.
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<AutocompleteSuggestionDTO>> autocomplete(@RequestParam(name = "q") String query,
+                                                                        @RequestParam(name = "limit", defaultValue = "10") int limit) {
+
+        log.warn("I am in the autocomplete api controller method");
+
+        if (limit < 1 || limit > MAX_LIMIT || query.length() > MAX_QUERY_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(autocompleteService.suggest(query, limit));
+    }
+}
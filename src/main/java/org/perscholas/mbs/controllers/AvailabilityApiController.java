@@ -0,0 +1,97 @@
+package org.perscholas.mbs.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.AvailableSlotDTO;
+import org.perscholas.mbs.dto.DayViewEntryDTO;
+import org.perscholas.mbs.service.DayViewService;
+import org.perscholas.mbs.service.NextAvailableService;
+import org.perscholas.mbs.service.OfficeDayView;
+import org.perscholas.mbs.service.SlotSchedule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The AvailabilityApiController class is a Spring REST controller answering questions about free and booked
+ * appointment slots from the in-memory calendars, without touching the database.
+ */
+@RestController
+@RequestMapping("/api")
+@Slf4j
+public class AvailabilityApiController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final NextAvailableService nextAvailableService;
+    private final DayViewService dayViewService;
+
+    /**
+     * Constructor for AvailabilityApiController. Initializes the search services via dependency injection.
+     *
+     * @param nextAvailableService The service finding the earliest free slots of a specialty.
+     * @param dayViewService The service holding the schedule of every office and day.
+     */
+    @Autowired
+    public AvailabilityApiController(NextAvailableService nextAvailableService, DayViewService dayViewService) {
+        this.nextAvailableService = nextAvailableService;
+        this.dayViewService = dayViewService;
+    }
+
+    /**
+     * HTTP GET handler for the "/api/specialties/{specialty}/next-available" endpoint.
+     *
+     * Returns the earliest free slots for the specialty across all doctors and offices, for patients who want
+     * "the soonest appointment anywhere".
+     *
+     * @param specialty The specialty, as shown on the index page (for example "Cardiology").
+     * @param limit The number of slots to return, at most 100.
+     * @return The slots, earliest first, or 400 if the limit is out of range.
+     */
+    @GetMapping("/specialties/{specialty}/next-available")
+    public ResponseEntity<List<AvailableSlotDTO>> nextAvailable(@PathVariable(name = "specialty") String specialty,
+                                                                @RequestParam(name = "limit", defaultValue = "10") int limit) {
+
+        log.warn("I am in the nextAvailable api controller method");
+
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(nextAvailableService.nextAvailable(specialty, limit));
+    }
+
+    /**
+     * HTTP GET handler for the "/api/offices/{id}/day-view" endpoint.
+     *
+     * Returns the office's schedule for the day, ordered by appointment time and then doctor, for the front desk
+     * calendar. Patient and doctor details can be looked up through the appointment listing endpoints.
+     *
+     * @param id The id of the office.
+     * @param date The day to show, defaults to today.
+     * @return The appointments of the day, empty if there are none.
+     */
+    @GetMapping("/offices/{id}/day-view")
+    public List<DayViewEntryDTO> dayView(@PathVariable(name = "id") int id,
+                                         @RequestParam(name = "date", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date) {
+
+        log.warn("I am in the dayView api controller method");
+
+        OfficeDayView view = dayViewService.dayView(id, date == null ? LocalDate.now() : date);
+
+        List<DayViewEntryDTO> entries = new ArrayList<>(view.size());
+        for (int i = 0; i < view.size(); i++) {
+            entries.add(new DayViewEntryDTO(view.appointmentId(i), SlotSchedule.timeOf(view.slot(i)), view.doctorId(i),
+                    view.patientId(i), view.specialty(i)));
+        }
+        return entries;
+    }
+}
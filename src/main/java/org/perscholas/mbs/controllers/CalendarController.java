@@ -0,0 +1,109 @@
+package org.perscholas.mbs.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.DoctorRepoI;
+import org.perscholas.mbs.dao.OfficeRepoI;
+import org.perscholas.mbs.service.CalendarFeedService;
+import org.perscholas.mbs.service.CalendarVersionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The CalendarController class is a Spring REST controller serving iCalendar feeds that doctors subscribe to from
+ * their calendar clients.
+ *
+ * Calendar clients poll every few minutes, and almost always nothing has changed. Every response therefore carries an
+ * ETag and Last-Modified taken from the CalendarVersionService, and a conditional GET whose ETag still matches is
+ * answered with 304 Not Modified from memory, before the database is touched at all. Only a changed calendar is
+ * streamed again by the CalendarFeedService.
+ */
+@RestController
+@Slf4j
+public class CalendarController {
+
+    private static final MediaType TEXT_CALENDAR = new MediaType("text", "calendar", StandardCharsets.UTF_8);
+
+    private final DoctorRepoI doctorRepoI;
+    private final OfficeRepoI officeRepoI;
+    private final CalendarFeedService calendarFeedService;
+    private final CalendarVersionService calendarVersionService;
+
+    /**
+     * Constructor for CalendarController. Initializes all repository interfaces and service classes via dependency injection.
+     *
+     * @param doctorRepoI The repository used to check that the doctor exists.
+     * @param officeRepoI The repository used to check that the office exists.
+     * @param calendarFeedService The service writing the iCalendar feeds.
+     * @param calendarVersionService The service tracking when each calendar last changed.
+     */
+    @Autowired
+    public CalendarController(DoctorRepoI doctorRepoI, OfficeRepoI officeRepoI, CalendarFeedService calendarFeedService, CalendarVersionService calendarVersionService) {
+        this.doctorRepoI = doctorRepoI;
+        this.officeRepoI = officeRepoI;
+        this.calendarFeedService = calendarFeedService;
+        this.calendarVersionService = calendarVersionService;
+    }
+
+    /**
+     * HTTP GET handler for the "/doctors/{id}/calendar.ics" endpoint.
+     *
+     * @param id The id of the doctor.
+     * @param request The WebRequest used to evaluate If-None-Match / If-Modified-Since.
+     * @return The streamed feed, null once a 304 has been sent, or 404 if there is no such doctor.
+     */
+    @GetMapping("/doctors/{id}/calendar.ics")
+    public ResponseEntity<StreamingResponseBody> doctorCalendar(@PathVariable(name = "id") int id, WebRequest request) {
+
+        log.warn("I am in the doctorCalendar controller method");
+
+        if (request.checkNotModified(calendarVersionService.doctorETag(id), calendarVersionService.doctorLastModified(id))) {
+            return null;
+        }
+
+        if (!doctorRepoI.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return feed(out -> calendarFeedService.writeDoctorFeed(id, out));
+    }
+
+    /**
+     * HTTP GET handler for the "/offices/{id}/calendar.ics" endpoint.
+     *
+     * @param id The id of the office.
+     * @param request The WebRequest used to evaluate If-None-Match / If-Modified-Since.
+     * @return The streamed feed, null once a 304 has been sent, or 404 if there is no such office.
+     */
+    @GetMapping("/offices/{id}/calendar.ics")
+    public ResponseEntity<StreamingResponseBody> officeCalendar(@PathVariable(name = "id") int id, WebRequest request) {
+
+        log.warn("I am in the officeCalendar controller method");
+
+        if (request.checkNotModified(calendarVersionService.officeETag(id), calendarVersionService.officeLastModified(id))) {
+            return null;
+        }
+
+        if (!officeRepoI.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return feed(out -> calendarFeedService.writeOfficeFeed(id, out));
+    }
+
+    // The ETag and Last-Modified headers have already been set by checkNotModified
+    private static ResponseEntity<StreamingResponseBody> feed(StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(TEXT_CALENDAR)
+                .cacheControl(CacheControl.noCache())
+                .body(body);
+    }
+}
@@ -0,0 +1,64 @@
+package org.perscholas.mbs.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.NearbyClinicDTO;
+import org.perscholas.mbs.service.ClinicLocator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * The ClinicApiController class is a Spring REST controller that finds the offices closest to a patient, served from
+ * the in-memory spatial index of the ClinicLocator.
+ */
+@RestController
+@RequestMapping("/api")
+@Slf4j
+public class ClinicApiController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final ClinicLocator clinicLocator;
+
+    /**
+     * Constructor for ClinicApiController. Initializes the locator via dependency injection.
+     *
+     * @param clinicLocator The service holding the locations of the offices.
+     */
+    @Autowired
+    public ClinicApiController(ClinicLocator clinicLocator) {
+        this.clinicLocator = clinicLocator;
+    }
+
+    /**
+     * HTTP GET handler for the "/api/offices/nearest" endpoint.
+     *
+     * Returns the offices nearest to the given location, with their great-circle distance in kilometers. Offices
+     * without a location are never returned.
+     *
+     * @param latitude The latitude of the patient, in degrees.
+     * @param longitude The longitude of the patient, in degrees.
+     * @param specialty Only offices where a doctor practices this specialty, omitted for any office.
+     * @param limit The number of offices to return, at most 100.
+     * @return The offices, nearest first, or 400 if the location or the limit is out of range.
+     */
+    @GetMapping("/offices/nearest")
+    public ResponseEntity<List<NearbyClinicDTO>> nearest(@RequestParam(name = "lat") double latitude,
+                                                         @RequestParam(name = "lon") double longitude,
+                                                         @RequestParam(name = "specialty", required = false) String specialty,
+                                                         @RequestParam(name = "limit", defaultValue = "5") int limit) {
+
+        log.warn("I am in the nearest api controller method");
+
+        if (limit < 1 || limit > MAX_LIMIT || !(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(clinicLocator.nearest(latitude, longitude, specialty, limit));
+    }
+}
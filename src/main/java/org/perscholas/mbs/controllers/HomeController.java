@@ -28,16 +28,14 @@ import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
 import org.perscholas.mbs.dao.DoctorRepoI;
 import org.perscholas.mbs.dao.OfficeRepoI;
-import org.perscholas.mbs.models.Doctor;
-import org.perscholas.mbs.models.Office;
+import org.perscholas.mbs.service.BookingState;
+import org.perscholas.mbs.service.BookingStateStore;
 import org.perscholas.mbs.service.DoctorService;
-import org.perscholas.mbs.service.OfficeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
-import java.util.List;
 
 /**
  * The HomeController class is a Spring MVC Controller that manages the flow of the application from the home page.
@@ -47,9 +45,9 @@ import java.util.List;
  * This controller interacts with both the Doctor and Office domains and their respective repositories and services,
  * which encapsulate all the operations related to these domains.
  *
- * HomeController utilizes HttpSession for maintaining user's selections (like selected specialty, office, doctor)
- * across different requests. It also makes use of the Model and RedirectAttributes to send data to the views
- * and handle redirects.
+ * HomeController keeps the user's selections (like selected specialty, office, doctor) across different requests in
+ * their BookingState, looked up by HttpSession in the BookingStateStore. It also makes use of the Model and
+ * RedirectAttributes to send data to the views and handle redirects.
  */
 @Controller
 @Slf4j
@@ -60,10 +58,7 @@ public class  HomeController {
     private final OfficeRepoI officeRepoI;
 
     private final DoctorService doctorService;
-    private final OfficeService officeService;
-
-    // Fields to hold information throughout the flow of the application
-    private String selectedSpecialty = "";
+    private final BookingStateStore bookingStateStore;
 
     /**
      * Constructor for HomeController. Initializes all repository interfaces and service classes via dependency injection.
@@ -72,14 +67,14 @@ public class  HomeController {
      * @param doctorRepoI The repository for handling database operations related to doctors.
      * @param officeRepoI The repository for handling database operations related to offices.
      * @param doctorService The service class encapsulating business logic related to doctors.
-     * @param officeService The service class encapsulating business logic related to offices.
+     * @param bookingStateStore The store holding each user's selections throughout the booking flow.
      */
     @Autowired
-    public HomeController(DoctorRepoI doctorRepoI, OfficeRepoI officeRepoI, DoctorService doctorService, OfficeService officeService) {
+    public HomeController(DoctorRepoI doctorRepoI, OfficeRepoI officeRepoI, DoctorService doctorService, BookingStateStore bookingStateStore) {
         this.doctorRepoI = doctorRepoI;
         this.officeRepoI = officeRepoI;
         this.doctorService = doctorService;
-        this.officeService = officeService;
+        this.bookingStateStore = bookingStateStore;
     }
 
     /**
@@ -108,14 +103,14 @@ public class  HomeController {
      * HTTP POST handler for the "/post-index" endpoint.
      *
      * This method is used to process the selected specialty. It retrieves the selected specialty from the
-     * form data and stores it in the session and in the `selectedSpecialty` instance variable. If no specialty
-     * is selected, it redirects the user back to the index page with a warning message.
+     * form data and stores it in the user's BookingState. If no specialty is selected, it redirects the user back
+     * to the index page with a warning message.
      *
      * @param specialty A String representing the selected specialty, annotated with @ModelAttribute to indicate
      *                  that it should be populated with form data.
      * @param model The Model object is automatically provided by Spring and can be used to add attributes
      *              to the model, which are then accessible in the view.
-     * @param session The HttpSession object is used to store the selected specialty.
+     * @param session The HttpSession object identifies the user whose BookingState stores the selected specialty.
      * @param redirectAttributes The RedirectAttributes object is used to add attributes to the session that
      *                           can be used after a redirect. In this case, it's used to add a warning message
      *                           when no specialty has been selected.
@@ -128,13 +123,12 @@ public class  HomeController {
         log.warn("I am in the indexProcess controller method");
         // Debug
         System.out.println("specialty: " + specialty);
-        System.out.println("selectedSpecialty: " + selectedSpecialty);
 
-        session.setAttribute("selectedSpecialty", specialty);
-        selectedSpecialty = specialty;
+        BookingState state = bookingStateStore.get(session);
+        state.setSpecialty(specialty);
 
         // Redirects back to the index page if no specialty is selected.
-        if (selectedSpecialty.isEmpty()) {
+        if (!state.hasSpecialty()) {
             log.warn("Specialty is empty! (No specialty selected) Returning to index");
             redirectAttributes.addFlashAttribute("insertedDanger", "Please select a specialty!");
             return "redirect:index";
@@ -149,10 +143,11 @@ public class  HomeController {
      * HTTP GET handler for the "/select-clinic" endpoint.
      *
      * This method prepares data required to display the clinic selection page. It validates the selected
-     * specialty and retrieves doctors belonging to the chosen specialty from all offices.
+     * specialty and looks up every office offering it, with the doctors practicing it there, in the in-memory
+     * SpecialtyIndex, so redirects back to this page never query the database.
      * If the specialty is not selected, it redirects the user back to the index page with a warning message.
      *
-     * @param session The HttpSession object is used to retrieve the selected specialty.
+     * @param session The HttpSession object identifies the user whose BookingState holds the selected specialty.
      * @param model The Model object is automatically provided by Spring and can be used to add attributes
      *              to the model, which are then accessible in the view.
      * @param redirectAttributes The RedirectAttributes object is used to add attributes to the session that
@@ -166,35 +161,21 @@ public class  HomeController {
     public String selectClinicPage(HttpSession session, Model model, RedirectAttributes redirectAttributes) throws Exception {
 
         log.warn("I am in the select-clinic controller method");
+
+        BookingState state = bookingStateStore.get(session);
+        String selectedSpecialty = state.getSpecialty();
         // Debug
-        System.out.println("specialty: " + session.getAttribute("specialty"));
         System.out.println("selectedSpecialty: " + selectedSpecialty);
 
         // TODO: Create method "isSpecialtyNull", call method, replacing following 5 lines of code. Probably use service layer?
-        if (selectedSpecialty.isEmpty()) {
+        if (!state.hasSpecialty()) {
             log.warn("Specialty is empty! Returning to index");
             redirectAttributes.addFlashAttribute("insertedDanger", "Please select a specialty!");
             return "redirect:index";
         }
 
-        /* TODO: Fix query redirect problem.
-         * Everytime this page gets redirected to, it re-queries everything below. This occurs when the user is using
-         * the select-clinic page and redirects to a further page without first selecting a clinic & doctor. This is
-         * inefficient and could cause possible memory leakages. Consider different ways to fix this, such as saving the
-         * query results and retrieving them after every redirect instead of rerunning the queries. */
-
-        List<Office> allOffices = officeService.getAllOffices();
-
-        List<Doctor> specialtyDoctorsNorthdale = doctorService.specialtyDoctorsInOffice(allOffices.get(0), selectedSpecialty);
-        List<Doctor> specialtyDoctorsEastview = doctorService.specialtyDoctorsInOffice(allOffices.get(1), selectedSpecialty);
-        List<Doctor> specialtyDoctorsSouthtown = doctorService.specialtyDoctorsInOffice(allOffices.get(2), selectedSpecialty);
-        List<Doctor> specialtyDoctorsWestshire = doctorService.specialtyDoctorsInOffice(allOffices.get(3), selectedSpecialty);
-
         model.addAttribute("infoSelectClinic", selectedSpecialty);
-        model.addAttribute("specialtyDoctorsNorth", specialtyDoctorsNorthdale);
-        model.addAttribute("specialtyDoctorsEast", specialtyDoctorsEastview);
-        model.addAttribute("specialtyDoctorsSouth", specialtyDoctorsSouthtown);
-        model.addAttribute("specialtyDoctorsWest", specialtyDoctorsWestshire);
+        model.addAttribute("clinics", doctorService.clinicsWithSpecialty(selectedSpecialty));
 
         return "select-clinic";
     }
@@ -203,13 +184,13 @@ public class  HomeController {
      * HTTP POST handler for the "/post-select-clinic" endpoint.
      *
      * This method processes the selected clinic and doctor. It retrieves these values from the form data
-     * and stores them in the session.
+     * and stores their ids in the user's BookingState.
      *
      * @param clinic A String representing the selected clinic, annotated with @RequestParam to indicate
      *               that it should be populated with form data.
      * @param doctorName A String representing the selected doctor, annotated with @RequestParam to indicate
      *                   that it should be populated with form data.
-     * @param session The HttpSession object is used to store the selected clinic and doctor.
+     * @param session The HttpSession object identifies the user whose BookingState stores the selected clinic and doctor.
      * @return A redirect instruction to the patient-registration page.
      */
     @PostMapping("/post-select-clinic")
@@ -217,13 +198,15 @@ public class  HomeController {
 
         log.warn("I am in the selectClinicProcess controller method");
 
-        log.info("Setting selectedOffice in HttpSession");
-        // Getting the entire Office object by searching it by name
-        session.setAttribute("selectedOffice", officeRepoI.findByName(clinic).get());
+        BookingState state = bookingStateStore.get(session);
+
+        log.info("Setting selected office in BookingState");
+        // Looking up only the id of the Office by its name, the entity is not loaded
+        state.setOfficeId(officeRepoI.findIdByName(clinic).get());
 
-        log.info("Setting selectedDoctor in HttpSession");
-        // Getting the entire Doctor Object by searching it by name
-        session.setAttribute("selectedDoctor", doctorRepoI.findByName(doctorName).get());
+        log.info("Setting selected doctor in BookingState");
+        // Looking up only the id of the Doctor by its name, the entity is not loaded
+        state.setDoctorId(doctorRepoI.findIdByName(doctorName).get());
 
         return "redirect:patient-registration";
     }
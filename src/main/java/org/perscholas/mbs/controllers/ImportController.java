@@ -0,0 +1,99 @@
+package org.perscholas.mbs.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.ImportReport;
+import org.perscholas.mbs.service.ImportRowReader;
+import org.perscholas.mbs.service.ImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The ImportController class is a Spring REST controller for migrating the existing patients and schedule of a
+ * clinic we onboard. Only admins may import; the file is sent as the raw request body, for example:
+ *
+ *     curl -u admin@example.com -H "Content-Type: text/csv" --data-binary @appointments.csv "http://localhost:8080/admin/import/appointments?format=csv"
+ *
+ * The body must be sent as text/csv or application/x-ndjson. A browser cannot send either from another site without
+ * a CORS preflight, which this application never grants, so a page an admin visits cannot import on their behalf.
+ *
+ * The body is read as a stream by the ImportService, so files of any size can be sent. The response is an
+ * ImportReport with the number of imported and rejected rows, the throughput, and the first rejected rows with
+ * their reason.
+ */
+@RestController
+@RequestMapping("/admin/import")
+@Slf4j
+public class ImportController {
+
+    private final ImportService importService;
+
+    /**
+     * Constructor for ImportController. Initializes the import service via dependency injection.
+     *
+     * @param importService The service reading, validating and writing the imported rows.
+     */
+    @Autowired
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    /**
+     * HTTP POST handler for the "/admin/import/patients" endpoint.
+     *
+     * @param format "csv" (with a header line) or "ndjson" (one JSON object per line).
+     * @param body The request body holding the file.
+     * @return The ImportReport, 400 if the format is unknown, 401 without a login, or 403 for a user who is not an admin.
+     * @throws IOException If the request body cannot be read.
+     */
+    @PostMapping(value = "/patients", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ImportReport> importPatients(@RequestParam(name = "format", defaultValue = "csv") String format, InputStream body) throws IOException {
+
+        log.warn("I am in the importPatients controller method");
+
+        ImportRowReader.Format rowFormat = parseFormat(format);
+        if (rowFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(importService.importPatients(body, rowFormat));
+    }
+
+    /**
+     * HTTP POST handler for the "/admin/import/appointments" endpoint. The referenced doctors, offices and patients
+     * must already exist.
+     *
+     * @param format "csv" (with a header line) or "ndjson" (one JSON object per line).
+     * @param body The request body holding the file.
+     * @return The ImportReport, 400 if the format is unknown, 401 without a login, or 403 for a user who is not an admin.
+     * @throws IOException If the request body cannot be read.
+     */
+    @PostMapping(value = "/appointments", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ImportReport> importAppointments(@RequestParam(name = "format", defaultValue = "csv") String format, InputStream body) throws IOException {
+
+        log.warn("I am in the importAppointments controller method");
+
+        ImportRowReader.Format rowFormat = parseFormat(format);
+        if (rowFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(importService.importAppointments(body, rowFormat));
+    }
+
+    private static ImportRowReader.Format parseFormat(String format) {
+        for (ImportRowReader.Format candidate : ImportRowReader.Format.values()) {
+            if (candidate.name().equalsIgnoreCase(format)) {
+                return candidate;
+            }
+        }
+        log.warn("Unknown import format: " + format);
+        return null;
+    }
+}
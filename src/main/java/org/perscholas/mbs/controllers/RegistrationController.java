@@ -4,11 +4,12 @@ import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.perscholas.mbs.dao.PatientRepoI;
-import org.perscholas.mbs.models.Doctor;
-import org.perscholas.mbs.models.Office;
 import org.perscholas.mbs.models.Patient;
+import org.perscholas.mbs.service.BookingState;
+import org.perscholas.mbs.service.BookingStateStore;
 import org.perscholas.mbs.service.PatientService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -23,21 +24,17 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
  * and doctor, and managing patient data before and during the registration.
  *
  * Internally, the controller uses a PatientRepoI for interacting with the database, and a PatientService
- * for handling business rules related to patients. It maintains the state of the selected specialty, office,
- * and doctor between requests using class-level fields.
+ * for handling business rules related to patients. The selected specialty, office, doctor and the registered patient
+ * are kept between requests in the user's BookingState, never in class-level fields.
  */
 @Controller
 @Slf4j
 public class RegistrationController {
 
-    // Fields to hold information throughout the flow of the application
-    private String selectedSpecialty = null;
-    private Office selectedOffice = new Office();
-    private Doctor selectedDoctor = new Doctor();
-
     // Injecting the necessary services and repositories
     private final PatientRepoI patientRepoI;
     private final PatientService patientService;
+    private final BookingStateStore bookingStateStore;
 
     /**
      * Constructor for RegistrationController. Initializes all repository interfaces and service classes via dependency injection.
@@ -45,21 +42,23 @@ public class RegistrationController {
      *
      * @param patientRepoI The repository for handling database operations related to patients.
      * @param patientService The service class encapsulating business logic related to patients.
+     * @param bookingStateStore The store holding each user's selections throughout the booking flow.
      */
     @Autowired
-    public RegistrationController(PatientRepoI patientRepoI, PatientService patientService) {
+    public RegistrationController(PatientRepoI patientRepoI, PatientService patientService, BookingStateStore bookingStateStore) {
         this.patientRepoI = patientRepoI;
         this.patientService = patientService;
+        this.bookingStateStore = bookingStateStore;
     }
 
     /**
      * HTTP GET handler for the "/patient-registration" endpoint.
      *
      * This method prepares the data required to display the patient registration page. It validates the selected
-     * specialty and doctor from the session. If either of these values are not set, it redirects the user back to the
+     * specialty and doctor from the user's BookingState. If either of these values are not set, it redirects the user back to the
      * appropriate page with a warning message. Additionally, it adds a new Patient object to the model for form binding.
      *
-     * @param session The HttpSession object is used to retrieve the selected specialty and doctor.
+     * @param session The HttpSession object identifies the user whose BookingState holds the selected specialty and doctor.
      * @param model The Model object is automatically provided by Spring and can be used to add attributes
      *              to the model, which are then accessible in the view.
      * @param redirectAttributes The RedirectAttributes object is used to add attributes to the session that
@@ -73,20 +72,18 @@ public class RegistrationController {
     public String patientRegistrationPage(HttpSession session, Model model, RedirectAttributes redirectAttributes) {
 
         log.warn("I am in the patient-registration controller method");
-        selectedSpecialty = (String) session.getAttribute("selectedSpecialty");
+        BookingState state = bookingStateStore.get(session);
 
-        System.out.println("selectedSpecialty: " + selectedSpecialty);
-        System.out.println("selectedDoctor: " + selectedDoctor);
+        System.out.println("booking state: " + state);
 
         // TODO: Create method "isSpecialtyNull", call method, replacing following 5 lines of code. Probably use service layer?
-        if (selectedSpecialty == null) {
+        if (!state.hasSpecialty()) {
             log.warn("Specialty is empty! Returning to index");
             redirectAttributes.addFlashAttribute("insertedDanger", "Please select a specialty!");
             return "redirect:index";
         }
-        /* TODO: Define and fix selectedDoctor.getName() and selectedDoctor == null bug. then create method "isDoctorNull".
-         *  User currently can navigate from select clinic to patient registration without making a selection.*/
-        if (selectedDoctor == null) {
+
+        if (!state.hasDoctor()) {
             log.warn("Doctor is Empty! Returning to select-clinic");
             redirectAttributes.addFlashAttribute("insertedDangerClinic", "Please select a Clinic and Doctor!");
             return "redirect:select-clinic";
@@ -101,13 +98,15 @@ public class RegistrationController {
      * HTTP POST handler for the "/post-patient-registration" endpoint.
      *
      * This method processes the form data submitted from the patient registration page. It validates the Patient object
-     * and if there are errors, it returns back to the registration page. If the form data is valid, it saves the Patient
-     * object in the database and sets it in the session as "registeredPatient". The user is then redirected to the
-     * book-appointment page.
+     * and if there are errors, it returns back to the registration page. An email that is already registered, whatever
+     * its case, is rejected through the unique email key before anything is written (or by a violation of its constraint,
+     * if two registrations race; other violations are not reported as a duplicate). If the form data is valid, it saves
+     * the Patient object in the database and stores its id in the user's BookingState as the registered patient. The
+     * user is then redirected to the book-appointment page.
      *
      * @param patient A Patient object, annotated with @Valid and @ModelAttribute, which is populated with form data and validated.
      * @param bindingResult The BindingResult object that holds the result of the validation and binding and contains errors if any.
-     * @param session The HttpSession object is used to store the registered patient.
+     * @param session The HttpSession object identifies the user whose BookingState stores the registered patient.
      * @param model The Model object is automatically provided by Spring and can be used to add attributes
      *              to the model, which are then accessible in the view.
      * @return A redirect instruction to the book-appointment page if the form data is valid, or
@@ -123,11 +122,23 @@ public class RegistrationController {
             return "patient-registration";
         }
 
-        patientRepoI.saveAndFlush(patient);
+        if (patientRepoI.existsByEmailKey(Patient.emailKeyOf(patient.getEmail()))) {
+            bindingResult.rejectValue("email", "duplicate", "An account with this email already exists");
+            return "patient-registration";
+        }
+
+        try {
+            patientRepoI.saveAndFlush(patient);
+        } catch (DataIntegrityViolationException e) {
+            if (!PatientService.violatesEmailKeyConstraint(e)) {
+                throw e;  // a value too long for its column, say, is no duplicate email
+            }
+            bindingResult.rejectValue("email", "duplicate", "An account with this email already exists");
+            return "patient-registration";
+        }
         System.out.println(patient.toString());
 
-        // TODO: use database for registeredPatient instead of using HttpSession - maybe
-        session.setAttribute("registeredPatient", patient);
+        bookingStateStore.get(session).setPatientId(patient.getId());
 
         return "redirect:book-appointment";
     }
@@ -0,0 +1,98 @@
+package org.perscholas.mbs.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.SpecialtyRecommendationDTO;
+import org.perscholas.mbs.dto.SymptomCatalogDTO;
+import org.perscholas.mbs.service.SymptomRecommender;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SymptomApiController class is a Spring REST controller behind the symptom checker of the home page, which
+ * lists the symptoms and specialties to choose from and recommends specialties for the ticked symptoms.
+ *
+ * Both answers only change with the weights of the SymptomRecommender, and the catalog with the registered
+ * specialties, so they carry an ETag derived from those and may be cached by the browser for
+ * "symptoms.max-age-minutes"; a conditional GET whose ETag still matches is answered with 304 Not Modified.
+ */
+@RestController
+@RequestMapping("/api")
+@Slf4j
+public class SymptomApiController {
+
+    private static final int MAX_LIMIT = 10;
+
+    private final SymptomRecommender symptomRecommender;
+    private final CacheControl cacheControl;
+
+    /**
+     * Constructor for SymptomApiController. Initializes the recommender via dependency injection.
+     *
+     * @param symptomRecommender The service holding the symptom to specialty weights.
+     * @param maxAgeMinutes How long browsers may reuse an answer without asking again.
+     */
+    @Autowired
+    public SymptomApiController(SymptomRecommender symptomRecommender,
+                                @Value("${symptoms.max-age-minutes:60}") long maxAgeMinutes) {
+        this.symptomRecommender = symptomRecommender;
+        this.cacheControl = CacheControl.maxAge(maxAgeMinutes, TimeUnit.MINUTES).cachePublic();
+    }
+
+    /**
+     * HTTP GET handler for the "/api/symptoms" endpoint.
+     *
+     * @param request The WebRequest used to evaluate If-None-Match.
+     * @return The symptoms and specialties offered on the home page, or null once a 304 has been sent.
+     */
+    @GetMapping("/symptoms")
+    public ResponseEntity<SymptomCatalogDTO> symptoms(WebRequest request) {
+
+        log.warn("I am in the symptoms api controller method");
+
+        String etag = symptomRecommender.catalogETag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(symptomRecommender.catalog());
+    }
+
+    /**
+     * HTTP GET handler for the "/api/symptoms/recommendations" endpoint.
+     *
+     * @param symptoms The codes of the ticked symptoms, as listed by "/api/symptoms". Unknown codes are ignored.
+     * @param limit The number of specialties to return, at most 10.
+     * @param request The WebRequest used to evaluate If-None-Match.
+     * @return The recommended specialties, best first, null once a 304 has been sent, or 400 if the limit is out of
+     *         range.
+     */
+    @GetMapping("/symptoms/recommendations")
+    public ResponseEntity<List<SpecialtyRecommendationDTO>> recommendations(@RequestParam(name = "symptom", required = false) List<String> symptoms,
+                                                                            @RequestParam(name = "limit", defaultValue = "3") int limit,
+                                                                            WebRequest request) {
+
+        log.warn("I am in the recommendations api controller method");
+
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        int[] resolved = symptomRecommender.resolve(symptoms == null ? List.of() : symptoms);
+        String etag = symptomRecommender.recommendationETag(resolved, limit);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(symptomRecommender.recommend(resolved, limit));
+    }
+}
@@ -0,0 +1,59 @@
+package org.perscholas.mbs.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.UtilizationReportDTO;
+import org.perscholas.mbs.service.UtilizationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+/**
+ * The UtilizationApiController class is a Spring REST controller for operations, reporting how many of the appointment
+ * slots of every doctor, office and specialty were booked over a range of days.
+ *
+ * The counting is done by the database, partition by partition (see UtilizationService), so any range can be asked
+ * for without loading its appointments.
+ */
+@RestController
+@RequestMapping("/api")
+@Slf4j
+public class UtilizationApiController {
+
+    private final UtilizationService utilizationService;
+
+    /**
+     * Constructor for UtilizationApiController. Initializes the utilization service via dependency injection.
+     *
+     * @param utilizationService The service counting booked and available slots.
+     */
+    @Autowired
+    public UtilizationApiController(UtilizationService utilizationService) {
+        this.utilizationService = utilizationService;
+    }
+
+    /**
+     * HTTP GET handler for the "/api/analytics/utilization" endpoint.
+     *
+     * @param from The first day, included.
+     * @param to The last day, included.
+     * @return The booked and available slots per doctor, office and specialty, or 400 if the range ends before it starts.
+     */
+    @GetMapping("/analytics/utilization")
+    public ResponseEntity<UtilizationReportDTO> utilization(@RequestParam(name = "from") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+                                                            @RequestParam(name = "to") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to) {
+
+        log.warn("I am in the utilization api controller method");
+
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(utilizationService.utilization(from, to));
+    }
+}
@@ -0,0 +1,93 @@
+package org.perscholas.mbs.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.WaitlistEntryDTO;
+import org.perscholas.mbs.models.WaitlistEntry;
+import org.perscholas.mbs.security.MyUserPrincipal;
+import org.perscholas.mbs.service.WaitlistService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+/**
+ * The WaitlistController class is a Spring REST controller for putting patients on, and taking them off, the waitlist
+ * of a doctor. Whenever an appointment with that doctor and specialty is cancelled, the WaitlistService books the
+ * freed slot for the first waiting patient it suits.
+ *
+ * Patients must be logged in, and only put themselves on a waitlist and take their own entries off it. Admins may take
+ * any entry off.
+ */
+@RestController
+@RequestMapping("/api/waitlist")
+@Slf4j
+public class WaitlistController {
+
+    private final WaitlistService waitlistService;
+
+    /**
+     * Constructor for WaitlistController. Initializes the waitlist service via dependency injection.
+     *
+     * @param waitlistService The service keeping the waitlist queues.
+     */
+    @Autowired
+    public WaitlistController(WaitlistService waitlistService) {
+        this.waitlistService = waitlistService;
+    }
+
+    /**
+     * HTTP POST handler for the "/api/waitlist" endpoint.
+     *
+     * @param principal The logged-in patient, who is put on the waitlist.
+     * @param doctorId The id of the doctor the patient wants to see.
+     * @param specialty The specialty of the appointment.
+     * @param officeId The office the patient wants to be seen at, omitted for any of the doctor's offices.
+     * @param earliestDate The first date the patient can come in.
+     * @param latestDate The last date the patient can come in.
+     * @param priority Higher priorities are served first, defaults to 0.
+     * @return The new waitlist entry, or 400 with the reason if it cannot be created.
+     */
+    @PostMapping
+    public ResponseEntity<?> join(@AuthenticationPrincipal MyUserPrincipal principal,
+                                  @RequestParam(name = "doctorId") int doctorId,
+                                  @RequestParam(name = "specialty") String specialty,
+                                  @RequestParam(name = "officeId", required = false) Integer officeId,
+                                  @RequestParam(name = "earliestDate") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate earliestDate,
+                                  @RequestParam(name = "latestDate") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate latestDate,
+                                  @RequestParam(name = "priority", defaultValue = "0") int priority) {
+
+        log.warn("I am in the waitlist join controller method");
+
+        try {
+            WaitlistEntry entry = waitlistService.join(principal.getPatientId(), doctorId, officeId, specialty, earliestDate, latestDate, priority);
+            return ResponseEntity.ok(WaitlistEntryDTO.of(entry, earliestDate, latestDate));
+        } catch (IllegalArgumentException e) {
+            log.warn("Cannot join waitlist: " + e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * HTTP DELETE handler for the "/api/waitlist/{id}" endpoint.
+     *
+     * @param id The id of the waitlist entry.
+     * @param principal The logged-in patient, who must own the entry unless they are an admin.
+     * @return 204, or 404 if the patient has no such entry (it may already have been given a slot).
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> leave(@PathVariable(name = "id") int id, @AuthenticationPrincipal MyUserPrincipal principal) {
+
+        log.warn("I am in the waitlist leave controller method");
+
+        boolean left = principal.isAdmin() ? waitlistService.leave(id) : waitlistService.leave(id, principal.getPatientId());
+        return left ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
@@ -1,13 +1,74 @@
 package org.perscholas.mbs.dao;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.perscholas.mbs.dto.AppointmentListingDTO;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.perscholas.mbs.dto.ReminderDTO;
+import org.perscholas.mbs.dto.UtilizationCountDTO;
 import org.perscholas.mbs.models.Appointment;
 import org.perscholas.mbs.models.Doctor;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AppointmentRepoI extends JpaRepository<Appointment, Integer> {
+
+    // Makes MySQL Connector/J send rows as they are read instead of buffering the whole result
+    String STREAM_FETCH_SIZE = "" + Integer.MIN_VALUE;
+
+    String LISTING_SELECT = "select new org.perscholas.mbs.dto.AppointmentListingDTO(a.id, a.appointmentDate, a.appointmentTime, a.appointmentSpecialty, d.id, d.name, o.id, o.name, p.id, p.fullName) from Appointment a join a.doctor d join a.office o join a.patient p ";
+    String LISTING_AFTER = " and (a.appointmentDate > :afterDate or (a.appointmentDate = :afterDate and a.id > :afterId)) order by a.appointmentDate, a.id";
+
+    String UTILIZATION_SELECT = "select new org.perscholas.mbs.dto.UtilizationCountDTO(a.doctor.id, a.office.id, a.appointmentSpecialty, count(a)) ";
+    String UTILIZATION_GROUP = "where a.appointmentDate >= :from and a.appointmentDate < :to group by a.doctor.id, a.office.id, a.appointmentSpecialty";
+
     Optional<Appointment> findById(int id);
+
+    // Locks the rows, so they cannot be cancelled while they are being archived
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a.id from Appointment a where a.appointmentDate < :before")
+    List<Integer> findIdsBefore(@Param("before") Date before, Pageable page);
+
+    // Must be consumed inside a transaction and closed after use
+    @Query("select new org.perscholas.mbs.dto.AppointmentSlotDTO(a.id, a.doctor.id, a.office.id, a.patient.id, a.appointmentDate, a.appointmentTime, a.appointmentSpecialty) from Appointment a")
+    Stream<AppointmentSlotDTO> streamAllSlots();
+
+    // Must be consumed inside a transaction and closed after use
+    @Query("select new org.perscholas.mbs.dto.AppointmentSlotDTO(a.id, a.doctor.id, a.office.id, a.patient.id, a.appointmentDate, a.appointmentTime, a.appointmentSpecialty) from Appointment a where a.appointmentDate >= :from")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<AppointmentSlotDTO> streamSlotsFrom(@Param("from") Date from);
+
+    // Booked slots per doctor, office and specialty in [from, to), grouped by the database so only one row per group comes back
+    @Query(UTILIZATION_SELECT + "from Appointment a " + UTILIZATION_GROUP)
+    List<UtilizationCountDTO> countBooked(@Param("from") Date from, @Param("to") Date to);
+
+    @Query("select new org.perscholas.mbs.dto.ReminderDTO(a.id, a.appointmentDate, a.appointmentTime, a.appointmentSpecialty, d.name, o.name, p.fullName, p.email) "
+            + "from Appointment a join a.doctor d join a.office o join a.patient p where a.id in :ids")
+    List<ReminderDTO> findReminders(@Param("ids") Collection<Integer> ids);
+
+    // Keyset pages ordered by (appointmentDate, id), starting after the given row. Must be consumed inside a transaction and closed after use
+    @Query(LISTING_SELECT + "where p.id = :patientId" + LISTING_AFTER)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<AppointmentListingDTO> streamPatientListing(@Param("patientId") int patientId, @Param("afterDate") Date afterDate, @Param("afterId") int afterId, Pageable page);
+
+    @Query(LISTING_SELECT + "where d.id = :doctorId" + LISTING_AFTER)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<AppointmentListingDTO> streamDoctorListing(@Param("doctorId") int doctorId, @Param("afterDate") Date afterDate, @Param("afterId") int afterId, Pageable page);
+
+    @Query(LISTING_SELECT + "where o.id = :officeId" + LISTING_AFTER)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<AppointmentListingDTO> streamOfficeListing(@Param("officeId") int officeId, @Param("afterDate") Date afterDate, @Param("afterId") int afterId, Pageable page);
 }
@@ -0,0 +1,24 @@
+package org.perscholas.mbs.dao;
+
+import org.perscholas.mbs.dto.UtilizationCountDTO;
+import org.perscholas.mbs.models.ArchivedAppointment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface ArchivedAppointmentRepoI extends JpaRepository<ArchivedAppointment, Integer> {
+
+    // Must be consumed inside a transaction and closed after use
+    @Query("select a.id from ArchivedAppointment a")
+    Stream<Integer> streamAllIds();
+
+    // Same as AppointmentRepoI.countBooked, for appointments archived since
+    @Query(AppointmentRepoI.UTILIZATION_SELECT + "from ArchivedAppointment a " + AppointmentRepoI.UTILIZATION_GROUP)
+    List<UtilizationCountDTO> countBooked(@Param("from") Date from, @Param("to") Date to);
+}
@@ -4,11 +4,8 @@ import org.perscholas.mbs.models.AuthGroup;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-
+// Roles are read together with the patient on login, see PatientRepoI.findLogin
 @Repository
 public interface AuthGroupRepoI extends JpaRepository<AuthGroup, Integer> {
 
-    List<AuthGroup> findByEmail(String email);
-
 }
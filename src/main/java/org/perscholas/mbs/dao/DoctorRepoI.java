@@ -1,12 +1,52 @@
 package org.perscholas.mbs.dao;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.perscholas.mbs.dto.ClinicRowDTO;
+import org.perscholas.mbs.dto.DoctorDTO;
 import org.perscholas.mbs.models.Doctor;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface DoctorRepoI extends JpaRepository<Doctor, Integer> {
+
+    // Name lookups are answered from the query cache until the Doctors table changes
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<Doctor> findByName(String name);
-}
\ No newline at end of file
+
+    // Doctors with their specialties in one query, offices stay lazy
+    @Override
+    @EntityGraph(attributePaths = "specialties")
+    List<Doctor> findAll();
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("select d.id from Doctor d where d.name = :name")
+    Optional<Integer> findIdByName(@Param("name") String name);
+
+    // Only the columns of DoctorDTO, without loading Doctor entities
+    @Query("select new org.perscholas.mbs.dto.DoctorDTO(d.id, d.name) from Doctor d order by d.id")
+    List<DoctorDTO> findEssentialInfo();
+
+    @Query("select d.id from Doctor d where d.id in :ids")
+    Set<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    // Portable, through the Doctor_Specialties join table
+    @EntityGraph(attributePaths = "specialties")
+    @Query("select d from Doctor d join d.specialties s where s.id = :specialtyId order by d.id")
+    List<Doctor> findBySpecialtyId(@Param("specialtyId") int specialtyId);
+
+    // Every doctor/office pair, without loading Doctor or Office entities and their collections; see SpecialtyIndex, and
+    // UtilizationService, for which each pair offers a full day of slots
+    @Query("select new org.perscholas.mbs.dto.ClinicRowDTO(o.id, o.name, d.id, d.name, d.specialtyMask) from Doctor d join d.offices o order by o.id, d.id")
+    List<ClinicRowDTO> findAllClinicRows();
+}
@@ -1,12 +1,43 @@
 package org.perscholas.mbs.dao;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.perscholas.mbs.dto.OfficeDTO;
+import org.perscholas.mbs.dto.OfficeLocationDTO;
 import org.perscholas.mbs.models.Office;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface OfficeRepoI extends JpaRepository<Office, Integer> {
+
+    // Name lookups are answered from the query cache until the offices table changes
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<Office> findByName(String name);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("select o.id from Office o where o.name = :name")
+    Optional<Integer> findIdByName(@Param("name") String name);
+
+    // Only the columns of OfficeDTO, without loading Office entities
+    @Query("select new org.perscholas.mbs.dto.OfficeDTO(o.id, o.name) from Office o order by o.id")
+    List<OfficeDTO> findEssentialInfo();
+
+    // One row per located office and doctor working there, for the ClinicLocator. An office without doctors still has
+    // one row, with an empty mask
+    @Query("select new org.perscholas.mbs.dto.OfficeLocationDTO(o.id, o.name, o.latitude, o.longitude, coalesce(d.specialtyMask, 0L)) "
+            + "from Office o left join o.doctors d "
+            + "where o.latitude is not null and o.longitude is not null order by o.id")
+    List<OfficeLocationDTO> findLocations();
+
+    @Query("select o.id from Office o where o.id in :ids")
+    Set<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,35 @@
+package org.perscholas.mbs.dao;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.perscholas.mbs.models.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface OutboxRepoI extends JpaRepository<OutboxEvent, Long> {
+
+    // Locks the batch, rows locked by a relay on another application instance are skipped where the database supports it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select e from OutboxEvent e where e.publishedAt is null order by e.id")
+    List<OutboxEvent> findUnpublished(Pageable page);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.publishedAt = :publishedAt where e.id in :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") Date publishedAt);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") Date before);
+}
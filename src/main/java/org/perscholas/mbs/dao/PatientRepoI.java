@@ -1,16 +1,30 @@
 package org.perscholas.mbs.dao;
 
+import org.perscholas.mbs.dto.PatientLoginDTO;
 import org.perscholas.mbs.models.Doctor;
 import org.perscholas.mbs.models.Patient;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface PatientRepoI extends JpaRepository<Patient, Integer> {
-    Optional<Patient> findByEmailAllIgnoreCase(String email);
+
+    // The patient and their roles in one statement, found through the unique index on the normalized email
+    @Query("select new org.perscholas.mbs.dto.PatientLoginDTO(p, a) from Patient p left join AuthGroup a on a.emailKey = p.emailKey "
+            + "where p.emailKey = :emailKey")
+    List<PatientLoginDTO> findLogin(@Param("emailKey") String emailKey);
+
+    boolean existsByEmailKey(String emailKey);
+
+    @Query("select p.id from Patient p where p.id in :ids")
+    Set<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
 
     //Optional<Patient> findByName(String name);
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package org.perscholas.mbs.dao;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.perscholas.mbs.models.Specialty;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SpecialtyRepoI extends JpaRepository<Specialty, Integer> {
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    Optional<Specialty> findByName(String name);
+}
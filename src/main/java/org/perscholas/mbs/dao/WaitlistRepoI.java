@@ -0,0 +1,27 @@
+package org.perscholas.mbs.dao;
+
+import org.perscholas.mbs.models.WaitlistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+
+@Repository
+public interface WaitlistRepoI extends JpaRepository<WaitlistEntry, Integer> {
+
+    // Returns 0 if the entry is already gone, which lets concurrent hand-offs claim an entry only once
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.id = :id")
+    int deleteEntry(@Param("id") int id);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.id = :id and w.patient.id = :patientId")
+    int deleteEntryOf(@Param("id") int id, @Param("patientId") int patientId);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.latestDate < :date")
+    int deleteExpired(@Param("date") Date date);
+}
@@ -0,0 +1,18 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+import org.perscholas.mbs.models.OutboxEvent;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Getter
+@ToString
+@AllArgsConstructor
+public class AppointmentLifecycleEvent {  // Published to in-process @EventListener methods, one per outbox event
+    long eventId;
+    OutboxEvent.Type type;
+    AppointmentSlotDTO appointment;
+}
@@ -0,0 +1,26 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Date;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentListingDTO {  // One row of an appointment listing, read in a single query without loading entities
+    int id;
+    Date appointmentDate;
+    String appointmentTime;
+    String appointmentSpecialty;
+    int doctorId;
+    String doctorName;
+    int officeId;
+    String officeName;
+    int patientId;
+    String patientName;
+}
@@ -0,0 +1,30 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.perscholas.mbs.models.Appointment;
+
+import java.util.Date;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentSlotDTO {  // Only the columns needed to rebuild in-memory schedules
+    int id;
+    int doctorId;
+    int officeId;
+    int patientId;
+    Date appointmentDate;
+    String appointmentTime;
+    String appointmentSpecialty;
+
+    public static AppointmentSlotDTO of(Appointment appointment) {
+        return new AppointmentSlotDTO(appointment.getId(), appointment.getDoctor().getId(), appointment.getOffice().getId(),
+                appointment.getPatient().getId(), appointment.getAppointmentDate(), appointment.getAppointmentTime(),
+                appointment.getAppointmentSpecialty());
+    }
+}
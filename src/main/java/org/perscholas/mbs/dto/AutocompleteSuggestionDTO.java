@@ -0,0 +1,17 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AutocompleteSuggestionDTO {  // A doctor, office or specialty matching what has been typed so far
+    String type;
+    int id;
+    String label;
+}
@@ -0,0 +1,22 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDate;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailableSlotDTO {  // A free slot found by the next available search
+    int doctorId;
+    String doctorName;
+    int officeId;
+    String officeName;
+    LocalDate appointmentDate;
+    String appointmentTime;
+}
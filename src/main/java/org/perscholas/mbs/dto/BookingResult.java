@@ -0,0 +1,38 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import org.perscholas.mbs.models.Appointment;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BookingResult {  // Outcome of committing an Appointment, the appointment is only set when BOOKED
+
+    public enum Status {
+        BOOKED,
+        SLOT_TAKEN,
+        OFFICE_FULL
+    }
+
+    Status status;
+    Appointment appointment;
+
+    public static BookingResult booked(Appointment appointment) {
+        return new BookingResult(Status.BOOKED, appointment);
+    }
+
+    public static BookingResult slotTaken() {
+        return new BookingResult(Status.SLOT_TAKEN, null);
+    }
+
+    public static BookingResult officeFull() {
+        return new BookingResult(Status.OFFICE_FULL, null);
+    }
+
+    public boolean isBooked() {
+        return status == Status.BOOKED;
+    }
+}
@@ -0,0 +1,19 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClinicRowDTO {  // One doctor at one office, with the doctor's specialties as a bitmask
+    int officeId;
+    String officeName;
+    int doctorId;
+    String doctorName;
+    long specialtyMask;
+}
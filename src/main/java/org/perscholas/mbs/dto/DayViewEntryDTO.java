@@ -0,0 +1,19 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DayViewEntryDTO {  // One appointment in an office's day view
+    int appointmentId;
+    String appointmentTime;
+    int doctorId;
+    int patientId;
+    String appointmentSpecialty;
+}
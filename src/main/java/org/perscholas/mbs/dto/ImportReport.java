@@ -0,0 +1,22 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReport {  // Outcome of a bulk import, only the first rejections are listed
+    long rowsRead;
+    long imported;
+    long rejected;
+    long elapsedMillis;
+    long rowsPerSecond;
+    List<String> rejections;
+}
@@ -0,0 +1,19 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyClinicDTO {  // An office found by the nearest clinic search
+    int officeId;
+    String officeName;
+    double latitude;
+    double longitude;
+    double distanceKm;
+}
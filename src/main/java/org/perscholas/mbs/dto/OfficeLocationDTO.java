@@ -0,0 +1,19 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OfficeLocationDTO {  // A located office and the specialties of one of its doctors as a bitmask
+    int officeId;
+    String officeName;
+    Double latitude;
+    Double longitude;
+    long specialtyMask;
+}
@@ -0,0 +1,18 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.perscholas.mbs.models.AuthGroup;
+import org.perscholas.mbs.models.Patient;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientLoginDTO {  // One row per role of the patient, or a single row without one
+    Patient patient;
+    AuthGroup authGroup;
+}
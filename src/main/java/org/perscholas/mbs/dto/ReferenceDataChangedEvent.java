@@ -0,0 +1,16 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Getter
+@ToString
+@AllArgsConstructor
+public class ReferenceDataChangedEvent {  // Published whenever a Doctor, Office or Specialty is saved or deleted
+    String entity;
+    int id;
+}
@@ -0,0 +1,24 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Date;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReminderDTO {  // Everything a reminder message needs about one upcoming appointment
+    int appointmentId;
+    Date appointmentDate;
+    String appointmentTime;
+    String appointmentSpecialty;
+    String doctorName;
+    String officeName;
+    String patientName;
+    String patientEmail;
+}
@@ -0,0 +1,19 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpecialtyRecommendationDTO {  // A specialty recommended for the ticked symptoms, with the symptoms pointing to it
+    String specialty;
+    double score;
+    List<String> symptoms;
+}
@@ -0,0 +1,18 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UtilizationCountDTO {  // The number of appointments of one doctor at one office for one specialty, grouped by the database
+    int doctorId;
+    int officeId;
+    String specialty;
+    long booked;
+}
@@ -0,0 +1,22 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UtilizationReportDTO {  // Utilization over the days from and to, both included, ordered by id
+    LocalDate from;
+    LocalDate to;
+    List<UtilizationDTO> doctors;
+    List<UtilizationDTO> offices;
+    List<UtilizationDTO> specialties;
+}
@@ -0,0 +1,31 @@
+package org.perscholas.mbs.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.perscholas.mbs.models.WaitlistEntry;
+
+import java.time.LocalDate;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistEntryDTO {  // A waitlist entry without the patient's personal details
+    int id;
+    int patientId;
+    int doctorId;
+    Integer officeId;
+    String appointmentSpecialty;
+    LocalDate earliestDate;
+    LocalDate latestDate;
+    int priority;
+
+    public static WaitlistEntryDTO of(WaitlistEntry entry, LocalDate earliestDate, LocalDate latestDate) {
+        return new WaitlistEntryDTO(entry.getId(), entry.getPatient().getId(), entry.getDoctor().getId(),
+                entry.getOffice() == null ? null : entry.getOffice().getId(), entry.getAppointmentSpecialty(),
+                earliestDate, latestDate, entry.getPriority());
+    }
+}
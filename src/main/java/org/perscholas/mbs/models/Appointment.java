@@ -13,7 +13,14 @@ import java.time.LocalTime;
 import java.util.*;
 
 @Entity
-@Table(name = "Appointments")
+@Table(name = "Appointments",
+        uniqueConstraints = @UniqueConstraint(name = Appointment.SLOT_CONSTRAINT, columnNames = {"doctor_id", "office_id", "appointment_date", "appointment_time"}),
+        indexes = {  // Keyset pagination of the appointment listings, see AppointmentRepoI
+                @Index(name = "idx_appointment_patient_date", columnList = "patient_id, appointment_date, id"),
+                @Index(name = "idx_appointment_doctor_date", columnList = "doctor_id, appointment_date, id"),
+                @Index(name = "idx_appointment_office_date", columnList = "office_id, appointment_date, id"),
+                @Index(name = "idx_appointment_date", columnList = "appointment_date")  // Finding rows to archive, see ArchiveService
+        })
 @Slf4j
 @NoArgsConstructor
 @Setter
@@ -22,16 +29,22 @@ import java.util.*;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class Appointment {
 
+    // Unique per doctor, office, date and time; booking reports a violation of it as a taken slot
+    public static final String SLOT_CONSTRAINT = "uk_appointment_slot";
+
     @Id
     @NonNull
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointment_seq")
+    @SequenceGenerator(name = "appointment_seq", sequenceName = "appointment_seq", allocationSize = 50)  // Ids are handed out in blocks so inserts can be batched
     int id;
 
     @DateTimeFormat(pattern = "yyyy-MM-dd")
     @NotNull(message = "Please enter appointment Date")
+    @Column(name = "appointment_date")  // Named in uk_appointment_slot and the indexes
     Date appointmentDate;  // validate so appointment is at/after current date.
 
     @NotNull(message = "Please enter an Appointment Time")
+    @Column(name = "appointment_time")  // Named in uk_appointment_slot
     String appointmentTime;
 
     String appointmentSpecialty;
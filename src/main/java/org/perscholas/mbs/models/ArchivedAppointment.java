@@ -0,0 +1,55 @@
+package org.perscholas.mbs.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Date;
+
+/**
+ * An appointment moved out of the Appointments table by the ArchiveService once it is past the archive horizon.
+ * Keeps the id it had as an Appointment, so it can still be looked up by the same id.
+ */
+@Entity
+@Table(name = "Appointments_Archive")
+@Slf4j
+@NoArgsConstructor
+@Setter
+@Getter
+@ToString
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ArchivedAppointment {
+
+    @Id
+    int id;
+
+    @Column(name = "appointment_date")  // Same columns as the Appointments table the rows are copied from
+    Date appointmentDate;
+
+    @Column(name = "appointment_time")
+    String appointmentTime;
+
+    String appointmentSpecialty;
+
+    @ManyToOne
+    @JoinColumn(name = "doctor_id")
+    Doctor doctor;
+
+    @ManyToOne
+    @JoinColumn(name = "office_id")
+    Office office;
+
+    @ManyToOne
+    @JoinColumn(name = "patient_id")
+    Patient patient;
+
+    Date archivedAt;
+
+    /**
+     * @return A detached, read only Appointment with the same values, for views that display appointments.
+     */
+    public Appointment toAppointment() {
+        return new Appointment(id, appointmentDate, appointmentTime, appointmentSpecialty, doctor, office, patient);
+    }
+}
@@ -1,14 +1,25 @@
 package org.perscholas.mbs.models;
 
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_auth_group_email_key_role", columnNames = {"email_key", "role"}))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)  // Read on every login
 @NoArgsConstructor
 @RequiredArgsConstructor
 @Getter
@@ -27,4 +38,14 @@ public class AuthGroup {
     @NonNull
     String role;
 
+    // Joined with Patient.emailKey when a patient logs in, see PatientRepoI.findLogin
+    @Setter(AccessLevel.NONE)
+    @Column(name = "email_key")  // Named in uk_auth_group_email_key_role
+    String emailKey;
+
+    @PrePersist
+    @PreUpdate
+    void updateEmailKey() {
+        emailKey = Patient.emailKeyOf(email);
+    }
 }
@@ -4,14 +4,21 @@ import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 @Entity
 @Table(name = "Doctors")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)  // Second level cache regions are sized in hibernate-jcache.conf
+@EntityListeners(ReferenceDataListener.class)
 @Slf4j
 @NoArgsConstructor
 @Setter
@@ -30,20 +37,65 @@ public class Doctor {
     @NonNull
     String email;
 
-    @NonNull
-    List<String> specialties = new ArrayList<>();
+    // Kept in a join table for portability, and mirrored into specialtyMask for bitwise filtering
+    @ToString.Exclude
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "Doctor_Specialties",
+            joinColumns = @JoinColumn(name = "Doctor_id"),
+            inverseJoinColumns = @JoinColumn(name = "Specialty_id"))
+    Set<Specialty> specialties = new LinkedHashSet<>();
+
+    @Setter(AccessLevel.NONE)
+    @Column(nullable = false)
+    long specialtyMask;  // Bit N set for the Specialty with id N
 
+    // Lazy, so loading a doctor does not pull in every office and through them every other doctor
     @ToString.Exclude
-    @ManyToMany(fetch = FetchType.EAGER, cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REFRESH, CascadeType.DETACH})
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @ManyToMany(fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REFRESH, CascadeType.DETACH})
     @JoinTable(name = "Doctor_Offices",
             joinColumns = @JoinColumn(name = "Doctor_id"),
             inverseJoinColumns = @JoinColumn(name = "Office_id"))
     Set<Office> offices = new LinkedHashSet<>();
 
-    public Doctor(@NonNull int id, @NonNull String name, @NonNull String email, @NonNull List<String> specialties) {
+    public Doctor(@NonNull int id, @NonNull String name, @NonNull String email, @NonNull Set<Specialty> specialties) {
         this.id = id;
         this.name = name;
         this.email = email;
-        this.specialties = specialties;
+        setSpecialties(specialties);
+    }
+
+    public Set<Specialty> getSpecialties() {
+        return Collections.unmodifiableSet(specialties);
+    }
+
+    public void setSpecialties(Set<Specialty> specialties) {
+        this.specialties = new LinkedHashSet<>(specialties);
+        updateSpecialtyMask();
+    }
+
+    public boolean practices(Specialty specialty) {
+        return (specialtyMask & specialty.bit()) != 0;
+    }
+
+    /**
+     * @return The names of the doctor's specialties, ordered by specialty id.
+     */
+    public List<String> getSpecialtyNames() {
+        return specialties.stream().sorted(Comparator.comparingInt(Specialty::getId)).map(Specialty::getName).toList();
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateSpecialtyMask() {
+        if (!Hibernate.isInitialized(specialties)) {
+            return;  // never loaded, so not changed either
+        }
+        long mask = 0;
+        for (Specialty specialty : specialties) {
+            mask |= specialty.bit();
+        }
+        specialtyMask = mask;
     }
 }
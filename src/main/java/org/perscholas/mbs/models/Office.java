@@ -5,6 +5,8 @@ import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -12,6 +14,9 @@ import java.util.Set;
 @AllArgsConstructor
 @Entity
 @Table(name = "offices")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners(ReferenceDataListener.class)
 @Slf4j
 @NoArgsConstructor
 @Setter
@@ -32,11 +37,29 @@ public class Office {
     @NonNull
     String manager;
 
+    @Column(nullable = false)
+    int hourlyCapacity;  // Patients the office can see per hour across all its doctors, 0 for no limit
+
+    // Degrees (WGS 84), both null while the office has no location, which leaves it out of the nearest clinic search
+    Double latitude;
+    Double longitude;
+
     @JsonBackReference
-    @ManyToMany(fetch = FetchType.EAGER, mappedBy = "offices", cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REFRESH, CascadeType.DETACH})
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @ManyToMany(fetch = FetchType.LAZY, mappedBy = "offices", cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REFRESH, CascadeType.DETACH})
     private Set<Doctor> doctors = new LinkedHashSet<>();
 
 
+    public void setLocation(double latitude, double longitude) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Not a location: " + latitude + ", " + longitude);
+        }
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
     public void addDoctor(Doctor doctor) {
         doctors.add(doctor);
         doctor.getOffices().add(this);
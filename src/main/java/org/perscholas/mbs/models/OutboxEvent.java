@@ -0,0 +1,56 @@
+package org.perscholas.mbs.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Date;
+
+/**
+ * A change to an appointment, written in the same transaction as the change itself and relayed to the OutboxSinkI
+ * beans afterwards by the OutboxRelay. publishedAt stays null until every sink has accepted the event.
+ */
+@Entity
+@Table(name = "Outbox", indexes = @Index(name = "idx_outbox_published_at", columnList = "published_at, id"))
+@Slf4j
+@NoArgsConstructor
+@Setter
+@Getter
+@ToString
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OutboxEvent {
+
+    public enum Type {
+        APPOINTMENT_BOOKED,
+        APPOINTMENT_CANCELLED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq")
+    @SequenceGenerator(name = "outbox_seq", sequenceName = "outbox_seq", allocationSize = 50)  // Ids are handed out in blocks so inserts can be batched
+    long id;
+
+    @Enumerated(EnumType.STRING)
+    @NonNull
+    Type type;
+
+    int appointmentId;
+
+    @Column(columnDefinition = "TEXT")
+    @NonNull
+    String payload;  // The AppointmentSlotDTO as JSON
+
+    @NonNull
+    Date createdAt;
+
+    @Column(name = "published_at")  // Named in idx_outbox_published_at
+    Date publishedAt;
+
+    public OutboxEvent(@NonNull Type type, int appointmentId, @NonNull String payload) {
+        this.type = type;
+        this.appointmentId = appointmentId;
+        this.payload = payload;
+        this.createdAt = new Date();
+    }
+}
@@ -13,6 +13,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import java.util.Date;
 import java.util.LinkedHashSet;
+import java.util.Locale;
 import java.util.Set;
 
 /**
@@ -28,7 +29,7 @@ import java.util.Set;
  * for persistence.
  */
 @Entity
-@Table(name = "Patients")
+@Table(name = "Patients", uniqueConstraints = @UniqueConstraint(name = Patient.EMAIL_KEY_CONSTRAINT, columnNames = "email_key"))
 @Slf4j
 @NoArgsConstructor
 @Setter
@@ -37,7 +38,12 @@ import java.util.Set;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class Patient {
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Unique per normalized email; registration reports a violation of it as an email already in use
+    public static final String EMAIL_KEY_CONSTRAINT = "uk_patient_email_key";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "patient_seq")
+    @SequenceGenerator(name = "patient_seq", sequenceName = "patient_seq", allocationSize = 50)  // Ids are handed out in blocks so inserts can be batched
     int id;
 
     @NonNull
@@ -55,6 +61,11 @@ public class Patient {
     @Email(message = "Please provide a valid email address", regexp = ".+@.+\\..+")
     String email;
 
+    // The email as it is looked up, see emailKeyOf; kept in sync with email on every insert and update
+    @Setter(AccessLevel.NONE)
+    @Column(name = "email_key")  // Named in uk_patient_email_key
+    String emailKey;
+
     @NonNull
     @Size(min = 6, max = 10, message = "Please enter a length between 6-10 numbers")
     String phoneNumber;
@@ -85,5 +96,18 @@ public class Patient {
         this.password = setPassword(password);
     }
 
+    /**
+     * Normalizes an email for lookups, so logins and duplicate checks match "User@Gmail.com " with "user@gmail.com"
+     * through the unique index on email_key instead of a case-insensitive scan.
+     */
+    public static String emailKeyOf(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateEmailKey() {
+        emailKey = emailKeyOf(email);
+    }
 
 }
@@ -0,0 +1,39 @@
+package org.perscholas.mbs.models;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.perscholas.mbs.dto.ReferenceDataChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener on Doctor, Office and Specialty, which turns every insert, update and delete into a
+ * ReferenceDataChangedEvent, so in-memory indexes of the reference data know when to rebuild.
+ *
+ * Hibernate obtains the listener from Spring, so it can have the ApplicationEventPublisher injected.
+ */
+@Component
+public class ReferenceDataListener {
+
+    private final ApplicationEventPublisher publisher;
+
+    @Autowired
+    public ReferenceDataListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void changed(Object entity) {
+        if (entity instanceof Doctor doctor) {
+            publisher.publishEvent(new ReferenceDataChangedEvent("Doctor", doctor.getId()));
+        } else if (entity instanceof Office office) {
+            publisher.publishEvent(new ReferenceDataChangedEvent("Office", office.getId()));
+        } else if (entity instanceof Specialty specialty) {
+            publisher.publishEvent(new ReferenceDataChangedEvent("Specialty", specialty.getId()));
+        }
+    }
+}
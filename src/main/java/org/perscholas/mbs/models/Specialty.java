@@ -0,0 +1,39 @@
+package org.perscholas.mbs.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+/**
+ * A care service doctors can practice, such as "Cardiology".
+ *
+ * Ids are small (0 to 63) and double as bit positions: a doctor's specialtyMask has bit N set when they practice the
+ * specialty with id N, so all of a doctor's specialties fit in one long. Ids are handed out by the SpecialtyRegistry.
+ */
+@Entity
+@Table(name = "Specialties")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners(ReferenceDataListener.class)
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@ToString
+@EqualsAndHashCode
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class Specialty {
+
+    public static final int MAX_SPECIALTIES = Long.SIZE;
+
+    @Id
+    int id;
+
+    @Column(nullable = false, unique = true)
+    String name;
+
+    public long bit() {
+        return 1L << id;
+    }
+}
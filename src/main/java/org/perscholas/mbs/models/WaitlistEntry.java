@@ -0,0 +1,74 @@
+package org.perscholas.mbs.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+
+/**
+ * A patient waiting for an appointment with a doctor for a specialty, to be given the first slot of that doctor that
+ * is cancelled between earliestDate and latestDate. If office is null, a slot at any of the doctor's offices will do.
+ *
+ * Entries with a higher priority are served first, entries with the same priority in the order they were created.
+ */
+@Entity
+@Table(name = "Waitlist", indexes = @Index(name = "idx_waitlist_latest_date", columnList = "latest_date"))
+@Slf4j
+@NoArgsConstructor
+@Setter
+@Getter
+@ToString
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class WaitlistEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    int id;
+
+    @ManyToOne
+    @JoinColumn(name = "patient_id")
+    @NonNull
+    Patient patient;
+
+    @ManyToOne
+    @JoinColumn(name = "doctor_id")
+    @NonNull
+    Doctor doctor;
+
+    @ManyToOne
+    @JoinColumn(name = "office_id")
+    Office office;
+
+    @NotBlank(message = "Please select a specialty")
+    String appointmentSpecialty;
+
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
+    @NotNull(message = "Please enter the earliest appointment Date")
+    Date earliestDate;
+
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
+    @NotNull(message = "Please enter the latest appointment Date")
+    @Column(name = "latest_date")  // Named in idx_waitlist_latest_date
+    Date latestDate;
+
+    int priority;
+
+    @NotNull
+    Date createdAt;
+
+    public WaitlistEntry(@NonNull Patient patient, @NonNull Doctor doctor, Office office, String appointmentSpecialty, Date earliestDate, Date latestDate, int priority) {
+        this.patient = patient;
+        this.doctor = doctor;
+        this.office = office;
+        this.appointmentSpecialty = appointmentSpecialty;
+        this.earliestDate = earliestDate;
+        this.latestDate = latestDate;
+        this.priority = priority;
+        this.createdAt = new Date();
+    }
+}
@@ -1,32 +1,37 @@
 package org.perscholas.mbs.security;
 
-import org.perscholas.mbs.dao.AuthGroupRepoI;
 import org.perscholas.mbs.dao.PatientRepoI;
-import org.perscholas.mbs.service.PatientService;
+import org.perscholas.mbs.dto.PatientLoginDTO;
+import org.perscholas.mbs.models.AuthGroup;
+import org.perscholas.mbs.models.Patient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Objects;
+
 @Service
 public class MyUserDetailsService implements UserDetailsService {
 
     PatientRepoI patientRepoI;
-    AuthGroupRepoI authGroupRepoI;
 
     @Autowired
-    public MyUserDetailsService(PatientRepoI patientRepoI, AuthGroupRepoI authGroupRepoI) {
+    public MyUserDetailsService(PatientRepoI patientRepoI) {
         this.patientRepoI = patientRepoI;
-        this.authGroupRepoI = authGroupRepoI;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
-        return new MyUserPrincipal
-                (patientRepoI.findByEmailAllIgnoreCase(username)
-                .orElseThrow(() -> new UsernameNotFoundException("Email not found, " + username)),
-                        authGroupRepoI.findByEmail(username));
+        List<PatientLoginDTO> rows = patientRepoI.findLogin(Patient.emailKeyOf(username));
+        if (rows.isEmpty()) {
+            throw new UsernameNotFoundException("Email not found, " + username);
+        }
+
+        List<AuthGroup> authGroups = rows.stream().map(PatientLoginDTO::getAuthGroup).filter(Objects::nonNull).toList();
+        return new MyUserPrincipal(rows.get(0).getPatient(), authGroups);
     }
 }
@@ -20,6 +20,14 @@ public class MyUserPrincipal implements UserDetails {
         this.authGroup = authGroup;
     }
 
+    public int getPatientId() {
+        return patient.getId();
+    }
+
+    public boolean isAdmin() {
+        return authGroup.stream().anyMatch(auth -> "ROLE_ADMIN".equals(auth.getRole()));
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
 
@@ -0,0 +1,50 @@
+package org.perscholas.mbs.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.AppointmentLifecycleEvent;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.perscholas.mbs.models.OutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Publishes every appointment lifecycle event as an AppointmentLifecycleEvent, for in-process consumers annotated with
+ * {@code @EventListener}. Enabled unless "outbox.sink.listener.enabled" is false.
+ *
+ * Listeners run synchronously on the relay thread. A listener that throws makes the relay offer the batch again, so
+ * listeners should be quick and tolerate duplicates.
+ */
+@Service
+@ConditionalOnProperty(name = "outbox.sink.listener.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class ApplicationEventOutboxSink implements OutboxSinkI {
+
+    private final ApplicationEventPublisher publisher;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public ApplicationEventOutboxSink(ApplicationEventPublisher publisher, ObjectMapper objectMapper) {
+        this.publisher = publisher;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            AppointmentSlotDTO appointment;
+            try {
+                appointment = objectMapper.readValue(event.getPayload(), AppointmentSlotDTO.class);
+            } catch (JsonProcessingException e) {
+                log.error("Skipping unreadable outbox event " + event.getId(), e);
+                continue;
+            }
+            publisher.publishEvent(new AppointmentLifecycleEvent(event.getId(), event.getType(), appointment));
+        }
+    }
+}
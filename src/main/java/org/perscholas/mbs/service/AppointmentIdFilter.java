@@ -0,0 +1,87 @@
+package org.perscholas.mbs.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.dao.ArchivedAppointmentRepoI;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.perscholas.mbs.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.stream.Stream;
+
+/**
+ * Answers "can an appointment with this id exist?" from memory, so lookups for ids that were never booked (typos,
+ * guessing, scraping) are rejected without a database round trip.
+ *
+ * Backed by a CountingBloomFilter of every appointment id, which the BookingService keeps current on each booking and
+ * cancellation. A "no" is always correct, a "yes" still has to be confirmed through the primary key. Until the first
+ * rebuild has finished every id is reported as possibly present.
+ *
+ * Archived appointments can still be looked up, so their ids are added on every rebuild as well; archiving an
+ * appointment does not remove its id.
+ */
+@Service
+@Slf4j
+public class AppointmentIdFilter implements AppointmentProjectionI {
+
+    private final AppointmentRepoI appointmentRepoI;
+    private final ArchivedAppointmentRepoI archivedAppointmentRepoI;
+    private final ShardRouter shardRouter;
+    private final int expectedInsertions;
+    private final double falsePositiveRate;
+
+    private volatile CountingBloomFilter filter;
+    private volatile boolean ready;
+
+    @Autowired
+    public AppointmentIdFilter(AppointmentRepoI appointmentRepoI, ArchivedAppointmentRepoI archivedAppointmentRepoI, ShardRouter shardRouter,
+                               @Value("${appointments.id-filter.expected-insertions:1000000}") int expectedInsertions,
+                               @Value("${appointments.id-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.appointmentRepoI = appointmentRepoI;
+        this.archivedAppointmentRepoI = archivedAppointmentRepoI;
+        this.shardRouter = shardRouter;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new CountingBloomFilter(expectedInsertions, falsePositiveRate);
+    }
+
+    public boolean mightExist(int id) {
+        return !ready || filter.mightContain(id);
+    }
+
+    @Override
+    public void rebuildStarted() {
+        ready = false;
+
+        // Leave room for the table to double before the false positive rate degrades
+        long rows = shardRouter.fanOut(() -> appointmentRepoI.count() + archivedAppointmentRepoI.count()).stream().mapToLong(Long::longValue).sum();
+        int size = (int) Math.min(Integer.MAX_VALUE, Math.max(expectedInsertions, rows * 2));
+        CountingBloomFilter rebuilt = new CountingBloomFilter(size, falsePositiveRate);
+
+        shardRouter.inEveryShard(() -> {
+            try (Stream<Integer> archivedIds = archivedAppointmentRepoI.streamAllIds()) {
+                archivedIds.forEach(rebuilt::add);
+            }
+        });
+
+        filter = rebuilt;
+    }
+
+    @Override
+    public void appointmentAdded(AppointmentSlotDTO appointment) {
+        filter.add(appointment.getId());
+    }
+
+    @Override
+    public void appointmentRemoved(AppointmentSlotDTO appointment) {
+        filter.remove(appointment.getId());
+    }
+
+    @Override
+    public void rebuildFinished() {
+        ready = true;
+        log.info("Appointment id filter ready, using " + filter.sizeInBytes() / 1024 + " KiB");
+    }
+}
@@ -0,0 +1,184 @@
+package org.perscholas.mbs.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.dao.DoctorRepoI;
+import org.perscholas.mbs.dao.OfficeRepoI;
+import org.perscholas.mbs.dao.PatientRepoI;
+import org.perscholas.mbs.dto.AppointmentListingDTO;
+import org.perscholas.mbs.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Lists the appointments of one patient, doctor or office, a page at a time.
+ *
+ * Pages are ordered by (appointmentDate, id) and use keyset pagination: instead of an offset, the caller passes the
+ * date and id of the last appointment it has seen and the next page starts right after it. Every page is therefore
+ * a short index range scan, however deep into the listing the caller is.
+ *
+ * Rows are written as JSON straight from the database cursor, so a page is never held in memory as a whole. One
+ * extra row is read to find out whether another page follows; if so, the response ends with the cursor for it.
+ *
+ * With sharding enabled an office's appointments are streamed from the office's shard. A patient or doctor has
+ * appointments on every shard, so each shard's next page is read in parallel and the pages are merged in order.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class AppointmentListingService {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    // Cursor of the first page, appointments are never dated before it
+    public static final LocalDate START_DATE = LocalDate.EPOCH;
+
+    private static final Comparator<AppointmentListingDTO> LISTING_ORDER = Comparator.comparing(AppointmentListingDTO::getAppointmentDate)
+            .thenComparingInt(AppointmentListingDTO::getId);
+
+    public enum Owner {
+        PATIENT,
+        DOCTOR,
+        OFFICE
+    }
+
+    AppointmentRepoI appointmentRepoI;
+    PatientRepoI patientRepoI;
+    DoctorRepoI doctorRepoI;
+    OfficeRepoI officeRepoI;
+    ObjectMapper objectMapper;
+    ShardRouter shardRouter;
+
+    @Autowired
+    public AppointmentListingService(AppointmentRepoI appointmentRepoI, PatientRepoI patientRepoI, DoctorRepoI doctorRepoI, OfficeRepoI officeRepoI, ObjectMapper objectMapper,
+                                     ShardRouter shardRouter) {
+        this.appointmentRepoI = appointmentRepoI;
+        this.patientRepoI = patientRepoI;
+        this.doctorRepoI = doctorRepoI;
+        this.officeRepoI = officeRepoI;
+        this.objectMapper = objectMapper;
+        this.shardRouter = shardRouter;
+    }
+
+    public boolean ownerExists(Owner owner, int ownerId) {
+        return switch (owner) {
+            case PATIENT -> patientRepoI.existsById(ownerId);
+            case DOCTOR -> doctorRepoI.existsById(ownerId);
+            case OFFICE -> officeRepoI.existsById(ownerId);
+        };
+    }
+
+    /**
+     * Writes one page of the owner's appointments to the output stream as
+     * {"appointments": [...], "next": {"afterDate": "yyyy-MM-dd", "afterId": n}}, where "next" is null on the last page.
+     *
+     * @param afterDate The date of the last appointment already seen, START_DATE for the first page.
+     * @param afterId The id of the last appointment already seen, 0 for the first page.
+     * @param limit The maximum number of appointments to write, between 1 and MAX_LIMIT.
+     */
+    public void writePage(Owner owner, int ownerId, LocalDate afterDate, int afterId, int limit, OutputStream out) throws IOException {
+
+        Date after = SlotSchedule.toDate(afterDate);
+        PageRequest page = PageRequest.of(0, limit + 1);
+
+        if (shardRouter.isSharded() && owner != Owner.OFFICE) {
+            List<List<AppointmentListingDTO>> pages = shardRouter.fanOut(() -> {
+                try (Stream<AppointmentListingDTO> rows = rows(owner, ownerId, after, afterId, page)) {
+                    return rows.toList();
+                }
+            });
+            writePage(owner, ownerId, limit, ShardRouter.mergeSorted(pages, LISTING_ORDER, limit + 1).stream(), out);
+            return;
+        }
+
+        int shard = owner == Owner.OFFICE ? shardRouter.shardOf(ownerId) : ShardRouter.HOME;
+        try {
+            shardRouter.inShard(shard, () -> {
+                try (Stream<AppointmentListingDTO> rows = rows(owner, ownerId, after, afterId, page)) {
+                    writePage(owner, ownerId, limit, rows, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Stream<AppointmentListingDTO> rows(Owner owner, int ownerId, Date after, int afterId, PageRequest page) {
+        return switch (owner) {
+            case PATIENT -> appointmentRepoI.streamPatientListing(ownerId, after, afterId, page);
+            case DOCTOR -> appointmentRepoI.streamDoctorListing(ownerId, after, afterId, page);
+            case OFFICE -> appointmentRepoI.streamOfficeListing(ownerId, after, afterId, page);
+        };
+    }
+
+    private void writePage(Owner owner, int ownerId, int limit, Stream<AppointmentListingDTO> rows, OutputStream out) throws IOException {
+
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+
+            // The servlet container owns the response stream
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            json.writeStartObject();
+            json.writeArrayFieldStart("appointments");
+
+            Iterator<AppointmentListingDTO> iterator = rows.iterator();
+            AppointmentListingDTO last = null;
+            int written = 0;
+
+            while (written < limit && iterator.hasNext()) {
+                last = iterator.next();
+                writeAppointment(json, last);
+                written++;
+            }
+
+            json.writeEndArray();
+
+            if (last != null && iterator.hasNext()) {
+                json.writeObjectFieldStart("next");
+                json.writeStringField("afterDate", SlotSchedule.toLocalDate(last.getAppointmentDate()).toString());
+                json.writeNumberField("afterId", last.getId());
+                json.writeEndObject();
+            } else {
+                json.writeNullField("next");
+            }
+
+            json.writeEndObject();
+            log.debug("Listed " + written + " appointments of " + owner + " " + ownerId);
+        }
+    }
+
+    private static void writeAppointment(JsonGenerator json, AppointmentListingDTO appointment) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", appointment.getId());
+        json.writeStringField("appointmentDate", SlotSchedule.toLocalDate(appointment.getAppointmentDate()).toString());
+        json.writeStringField("appointmentTime", appointment.getAppointmentTime());
+        json.writeStringField("appointmentSpecialty", appointment.getAppointmentSpecialty());
+        json.writeNumberField("doctorId", appointment.getDoctorId());
+        json.writeStringField("doctorName", appointment.getDoctorName());
+        json.writeNumberField("officeId", appointment.getOfficeId());
+        json.writeStringField("officeName", appointment.getOfficeName());
+        json.writeNumberField("patientId", appointment.getPatientId());
+        json.writeStringField("patientName", appointment.getPatientName());
+        json.writeEndObject();
+    }
+}
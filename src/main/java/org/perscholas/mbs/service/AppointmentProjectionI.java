@@ -0,0 +1,28 @@
+package org.perscholas.mbs.service;
+
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+
+/**
+ * An in-memory model derived from the Appointments table.
+ *
+ * Implementations are kept current by the BookingService, which reports every appointment it commits or cancels, and
+ * are filled from scratch by the ProjectionRebuilder in a single pass over the table when the application starts.
+ * Both callbacks must be idempotent, since a rebuild can overlap with bookings made while it runs.
+ */
+public interface AppointmentProjectionI {
+
+    /**
+     * Called before a rebuild, implementations should drop everything they hold.
+     */
+    void rebuildStarted();
+
+    void appointmentAdded(AppointmentSlotDTO appointment);
+
+    void appointmentRemoved(AppointmentSlotDTO appointment);
+
+    /**
+     * Called once every existing appointment has been passed to appointmentAdded.
+     */
+    default void rebuildFinished() {
+    }
+}
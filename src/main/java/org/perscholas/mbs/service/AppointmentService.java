@@ -1,17 +1,20 @@
 package org.perscholas.mbs.service;
 
-import jakarta.transaction.Transactional;
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.dao.ArchivedAppointmentRepoI;
 import org.perscholas.mbs.dao.PatientRepoI;
 import org.perscholas.mbs.models.Appointment;
+import org.perscholas.mbs.models.ArchivedAppointment;
 import org.perscholas.mbs.models.Patient;
+import org.perscholas.mbs.sharding.ShardRouter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
@@ -19,15 +22,21 @@ import java.util.List;
 public class AppointmentService {
 
     AppointmentRepoI appointmentRepoI;
+    ArchivedAppointmentRepoI archivedAppointmentRepoI;
+    AppointmentIdFilter appointmentIdFilter;
+    ShardRouter shardRouter;
 
     @Autowired
-    public AppointmentService(AppointmentRepoI appointmentRepoI) {
+    public AppointmentService(AppointmentRepoI appointmentRepoI, ArchivedAppointmentRepoI archivedAppointmentRepoI, AppointmentIdFilter appointmentIdFilter,
+                              ShardRouter shardRouter) {
         this.appointmentRepoI = appointmentRepoI;
+        this.archivedAppointmentRepoI = archivedAppointmentRepoI;
+        this.appointmentIdFilter = appointmentIdFilter;
+        this.shardRouter = shardRouter;
     }
 
-    @Transactional(rollbackOn = Exception.class)
     public List<Appointment> getAllAppointments() throws Exception {
-        List<Appointment> appointments = appointmentRepoI.findAll();
+        List<Appointment> appointments = shardRouter.fanOut(() -> appointmentRepoI.findAll()).stream().flatMap(List::stream).toList();
 
         if(appointments.isEmpty()) {
             log.debug("Empty list of Appointments!!");
@@ -36,4 +45,24 @@ public class AppointmentService {
 
         return appointments;
     }
+
+    /**
+     * Finds one appointment by id. Ids the AppointmentIdFilter has never seen are answered from memory, every other
+     * id costs a primary key lookup in the Appointments table and, for appointments the ArchiveService has moved, one
+     * more in the archive. With sharding enabled these are asked of every shard at once.
+     */
+    public Optional<Appointment> lookup(int id) {
+
+        if (!appointmentIdFilter.mightExist(id)) {
+            log.debug("Appointment id " + id + " rejected by id filter");
+            return Optional.empty();
+        }
+
+        Optional<Appointment> appointment = shardRouter.findInAnyShard(() -> appointmentRepoI.findById(id));
+        if (appointment.isPresent()) {
+            return appointment;
+        }
+
+        return shardRouter.findInAnyShard(() -> archivedAppointmentRepoI.findById(id).map(ArchivedAppointment::toAppointment));
+    }
 }
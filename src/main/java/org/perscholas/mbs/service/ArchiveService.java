@@ -0,0 +1,91 @@
+package org.perscholas.mbs.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Moves appointments older than "archive.horizon-days" from the Appointments table into Appointments_Archive, so the
+ * hot table only holds recent and upcoming appointments and its indexes stay small.
+ *
+ * The move runs on a schedule, in chunks of "archive.chunk-size" rows. Each chunk is copied with a single
+ * INSERT ... SELECT and then deleted, in its own short transaction, so row locks are only held for one chunk at a time
+ * and bookings are never blocked for long.
+ *
+ * Archiving is a storage move, not a cancellation: the appointment projections are not told, and AppointmentService
+ * still finds archived appointments by their id. With sharding enabled every shard archives its own appointments.
+ */
+@Service
+@Slf4j
+public class ArchiveService {
+
+    private final AppointmentRepoI appointmentRepoI;
+    private final EntityManager entityManager;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final int horizonDays;
+    private final int chunkSize;
+
+    @Autowired
+    public ArchiveService(AppointmentRepoI appointmentRepoI, EntityManager entityManager, ShardRouter shardRouter, PlatformTransactionManager transactionManager,
+                          @Value("${archive.horizon-days:365}") int horizonDays,
+                          @Value("${archive.chunk-size:1000}") int chunkSize) {
+        this.appointmentRepoI = appointmentRepoI;
+        this.entityManager = entityManager;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.horizonDays = horizonDays;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${archive.cron:0 0 3 * * *}")
+    public void archive() {
+
+        long start = System.currentTimeMillis();
+        LocalDate cutoff = LocalDate.now().minusDays(horizonDays);
+
+        long archived = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            archived += shardRouter.onShard(shard, () -> {
+                long onShard = 0;
+                Integer moved;
+                do {
+                    moved = transactionTemplate.execute(status -> archiveChunk(cutoff));
+                    onShard += moved == null ? 0 : moved;
+                } while (moved != null && moved == chunkSize);
+                return onShard;
+            });
+        }
+
+        log.info("Archived " + archived + " appointments dated before " + cutoff + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private int archiveChunk(LocalDate cutoff) {
+
+        List<Integer> ids = appointmentRepoI.findIdsBefore(SlotSchedule.toDate(cutoff), PageRequest.of(0, chunkSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        entityManager.createQuery("insert into ArchivedAppointment (id, appointmentDate, appointmentTime, appointmentSpecialty, doctor, office, patient, archivedAt) "
+                        + "select a.id, a.appointmentDate, a.appointmentTime, a.appointmentSpecialty, a.doctor, a.office, a.patient, current_timestamp "
+                        + "from Appointment a where a.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+
+        return entityManager.createQuery("delete from Appointment a where a.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,291 @@
+package org.perscholas.mbs.service;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable type-ahead index over short labels, such as doctor, office and specialty names.
+ *
+ * Labels are split into words, lower cased and stripped of accents. The distinct words are kept in a sorted array with
+ * the entries containing each, so every word starting with a prefix is one binary search away. A query matches an
+ * entry when each of its words is a prefix of one of the entry's words ("bil ny" finds "Dr. Bill Nye").
+ *
+ * Query words of three or more letters that are no prefix of any word are looked up again allowing typos: words
+ * sharing a trigram with the query word (anchored at the word start, since patients type words from the start) are
+ * candidates, kept if a prefix of the word is within one edit of the query word, or two edits from six letters on.
+ * Fuzzy matches rank after exact ones, then shorter labels first. Only the best few are kept while ranking, so a
+ * query costs little more than the postings it touches.
+ */
+public class AutocompleteIndex {
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_FUZZY_LENGTH = 3;
+    private static final int SHORT_WORD_LENGTH = 6;
+    private static final int[] NONE = new int[0];
+
+    private final Entry[] entries;
+    private final String[] words;  // sorted
+    private final int[][] postings;  // entries containing each word, ascending
+    private final Map<String, int[]> wordsByTrigram;
+
+    /**
+     * @param entries In the order ties are ranked, for example most relevant kind first.
+     */
+    public AutocompleteIndex(List<Entry> entries) {
+
+        this.entries = entries.toArray(new Entry[0]);
+
+        TreeMap<String, IntList> entriesByWord = new TreeMap<>();
+        for (int i = 0; i < this.entries.length; i++) {
+            for (String word : normalize(this.entries[i].getLabel())) {
+                entriesByWord.computeIfAbsent(word, key -> new IntList()).addOnce(i);
+            }
+        }
+
+        this.words = entriesByWord.keySet().toArray(new String[0]);
+        this.postings = entriesByWord.values().stream().map(IntList::toArray).toArray(int[][]::new);
+
+        Map<String, IntList> trigrams = new HashMap<>();
+        for (int w = 0; w < words.length; w++) {
+            for (String trigram : trigrams(words[w])) {
+                trigrams.computeIfAbsent(trigram, key -> new IntList()).addOnce(w);
+            }
+        }
+        Map<String, int[]> byTrigram = new HashMap<>();
+        trigrams.forEach((trigram, found) -> byTrigram.put(trigram, found.toArray()));
+        this.wordsByTrigram = Map.copyOf(byTrigram);
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * @return Up to limit entries matching every word of the query, exact matches first, then by shorter label and
+     *         entry order. Empty for a query without words.
+     */
+    public List<Entry> suggest(String query, int limit) {
+
+        List<String> queryWords = normalize(query);
+        if (queryWords.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        BitSet exact = null;
+        BitSet any = null;
+        for (String queryWord : queryWords) {
+            BitSet prefixed = withPrefix(queryWord);
+            BitSet matched = prefixed.isEmpty() ? similarTo(queryWord) : prefixed;
+
+            exact = intersect(exact, prefixed);
+            any = intersect(any, matched);
+            if (any.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        // Keeps the best limit entries in a max-heap of rank keys (fuzzy, label length, entry), without sorting them all
+        long[] best = new long[Math.min(limit, any.cardinality())];
+        int kept = 0;
+        for (int i = any.nextSetBit(0); i >= 0; i = any.nextSetBit(i + 1)) {
+            long key = (exact.get(i) ? 0L : 1L << 62) | (long) Math.min(entries[i].getLabel().length(), Short.MAX_VALUE) << 32 | i;
+            if (kept < best.length) {
+                siftUp(best, kept++, key);
+            } else if (key < best[0]) {
+                siftDown(best, kept, key);
+            }
+        }
+
+        Arrays.sort(best, 0, kept);
+        List<Entry> suggestions = new ArrayList<>(kept);
+        for (int i = 0; i < kept; i++) {
+            suggestions.add(entries[(int) best[i]]);
+        }
+        return suggestions;
+    }
+
+    private BitSet withPrefix(String prefix) {
+        BitSet found = new BitSet();
+        int from = Arrays.binarySearch(words, prefix);
+        for (int w = from < 0 ? -from - 1 : from; w < words.length && words[w].startsWith(prefix); w++) {
+            for (int entry : postings[w]) {
+                found.set(entry);
+            }
+        }
+        return found;
+    }
+
+    private BitSet similarTo(String queryWord) {
+
+        BitSet found = new BitSet();
+        if (queryWord.length() < MIN_FUZZY_LENGTH) {
+            return found;
+        }
+
+        BitSet candidates = new BitSet();
+        for (String trigram : trigrams(queryWord)) {
+            for (int w : wordsByTrigram.getOrDefault(trigram, NONE)) {
+                candidates.set(w);
+            }
+        }
+        if (queryWord.length() < SHORT_WORD_LENGTH) {
+            // Short words share few trigrams, "wset" none with "west", so also try every word with the same first letter
+            String first = queryWord.substring(0, 1);
+            int from = Arrays.binarySearch(words, first);
+            for (int w = from < 0 ? -from - 1 : from; w < words.length && words[w].startsWith(first); w++) {
+                candidates.set(w);
+            }
+        }
+
+        int maxEdits = queryWord.length() >= SHORT_WORD_LENGTH ? 2 : 1;
+        candidates.stream().filter(w -> prefixWithin(queryWord, words[w], maxEdits)).forEach(w -> {
+            for (int entry : postings[w]) {
+                found.set(entry);
+            }
+        });
+        return found;
+    }
+
+    // True if some prefix of the word is within maxEdits edits (Levenshtein, plus swapping two neighbours) of the query
+    static boolean prefixWithin(String query, String word, int maxEdits) {
+
+        int n = query.length();
+        int m = Math.min(word.length(), n + maxEdits);
+        int[] before = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = query.charAt(i - 1) == word.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && query.charAt(i - 1) == word.charAt(j - 2) && query.charAt(i - 2) == word.charAt(j - 1)) {
+                    distance = Math.min(distance, before[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > maxEdits) {
+                return false;
+            }
+            int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+        }
+
+        // The last row holds the distance of the whole query to every prefix of the word
+        for (int j = 0; j <= m; j++) {
+            if (previous[j] <= maxEdits) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static List<String> normalize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        String plain = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        List<String> words = new ArrayList<>();
+        for (String word : SEPARATORS.split(plain)) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    // Trigrams of the word with a start marker, so "^ca" only comes from words starting with "ca"
+    private static List<String> trigrams(String word) {
+        String padded = "^" + word;
+        List<String> trigrams = new ArrayList<>(padded.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    private static void siftUp(long[] heap, int at, long key) {
+        while (at > 0 && heap[(at - 1) / 2] < key) {
+            heap[at] = heap[(at - 1) / 2];
+            at = (at - 1) / 2;
+        }
+        heap[at] = key;
+    }
+
+    // Replaces the largest key of the full heap
+    private static void siftDown(long[] heap, int size, long key) {
+        int at = 0;
+        while (2 * at + 1 < size) {
+            int child = 2 * at + 1;
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= key) {
+                break;
+            }
+            heap[at] = heap[child];
+            at = child;
+        }
+        heap[at] = key;
+    }
+
+    private static BitSet intersect(BitSet sofar, BitSet next) {
+        if (sofar == null) {
+            return (BitSet) next.clone();
+        }
+        sofar.and(next);
+        return sofar;
+    }
+
+    // A growable int array for building the postings, which are filled in ascending order
+    private static final class IntList {
+
+        int[] values = new int[4];
+        int size;
+
+        void addOnce(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;  // the same word twice in one label
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    public static class Entry {
+        String type;
+        int id;
+        String label;
+    }
+}
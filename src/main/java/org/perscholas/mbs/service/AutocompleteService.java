@@ -0,0 +1,70 @@
+package org.perscholas.mbs.service;
+
+import org.perscholas.mbs.dao.DoctorRepoI;
+import org.perscholas.mbs.dao.OfficeRepoI;
+import org.perscholas.mbs.dao.SpecialtyRepoI;
+import org.perscholas.mbs.dto.AutocompleteSuggestionDTO;
+import org.perscholas.mbs.dto.DoctorDTO;
+import org.perscholas.mbs.dto.OfficeDTO;
+import org.perscholas.mbs.models.Specialty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Type-ahead suggestions over the names of specialties, offices and doctors, answered from an AutocompleteIndex in
+ * memory instead of a LIKE scan per keystroke.
+ *
+ * The index is one of the ReferenceDataSnapshots, rebuilt shortly after a doctor, office or specialty changes. Ties
+ * between equally good matches list specialties first, then offices, then doctors.
+ */
+@Service
+public class AutocompleteService {
+
+    public static final String SPECIALTY = "specialty";
+    public static final String OFFICE = "office";
+    public static final String DOCTOR = "doctor";
+
+    private final DoctorRepoI doctorRepoI;
+    private final OfficeRepoI officeRepoI;
+    private final SpecialtyRepoI specialtyRepoI;
+
+    private final ReferenceDataSnapshots.Snapshot<AutocompleteIndex> index;
+
+    @Autowired
+    public AutocompleteService(DoctorRepoI doctorRepoI, OfficeRepoI officeRepoI, SpecialtyRepoI specialtyRepoI,
+                               ReferenceDataSnapshots snapshots) {
+        this.doctorRepoI = doctorRepoI;
+        this.officeRepoI = officeRepoI;
+        this.specialtyRepoI = specialtyRepoI;
+        this.index = snapshots.register("Autocomplete index", new AutocompleteIndex(List.of()), this::build);
+    }
+
+    /**
+     * @return Up to limit doctors, offices and specialties matching the text typed so far, best first.
+     */
+    public List<AutocompleteSuggestionDTO> suggest(String query, int limit) {
+        return index.get().suggest(query, limit).stream()
+                .map(entry -> new AutocompleteSuggestionDTO(entry.getType(), entry.getId(), entry.getLabel()))
+                .toList();
+    }
+
+    private AutocompleteIndex build() {
+
+        List<AutocompleteIndex.Entry> entries = new ArrayList<>();
+        specialtyRepoI.findAll().stream()
+                .sorted(Comparator.comparingInt(Specialty::getId))
+                .forEach(specialty -> entries.add(new AutocompleteIndex.Entry(SPECIALTY, specialty.getId(), specialty.getName())));
+        for (OfficeDTO office : officeRepoI.findEssentialInfo()) {
+            entries.add(new AutocompleteIndex.Entry(OFFICE, office.getId(), office.getOfficeName()));
+        }
+        for (DoctorDTO doctor : doctorRepoI.findEssentialInfo()) {
+            entries.add(new AutocompleteIndex.Entry(DOCTOR, doctor.getId(), doctor.getDoctorName()));
+        }
+
+        return new AutocompleteIndex(entries);
+    }
+}
@@ -0,0 +1,131 @@
+package org.perscholas.mbs.service;
+
+import lombok.AccessLevel;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of which appointment slots are booked for every doctor, office and day.
+ *
+ * Each doctor/office/day is stored as a single long, where bit N is set when slot N (see SlotSchedule) is taken.
+ * Checking and reserving a slot are therefore single bit operations, and reservations use an atomic update so two
+ * requests can never both win the same slot. Days that have no bookings have no entry at all.
+ *
+ * The calendars only live in memory. As an AppointmentProjectionI they are rebuilt from the Appointments table once
+ * the application is ready, appointments in the past are skipped since they can no longer conflict with a new booking.
+ * For the same reason the days that have passed are dropped every night.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class AvailabilityService implements AppointmentProjectionI {
+
+    ConcurrentMap<CalendarKey, AtomicLong> calendars = new ConcurrentHashMap<>();
+
+    public boolean isFree(int doctorId, int officeId, LocalDate day, int slot) {
+        checkSlot(slot);
+        return (bookedMask(doctorId, officeId, day) & (1L << slot)) == 0;
+    }
+
+    /**
+     * Atomically marks a slot as booked.
+     *
+     * @return true if the slot was free and now belongs to the caller, false if it was already booked.
+     */
+    public boolean reserve(int doctorId, int officeId, LocalDate day, int slot) {
+        checkSlot(slot);
+        long bit = 1L << slot;
+        AtomicLong bits = calendars.computeIfAbsent(new CalendarKey(doctorId, officeId, day.toEpochDay()), key -> new AtomicLong());
+        long previous = bits.getAndAccumulate(bit, (current, update) -> current | update);
+        return (previous & bit) == 0;
+    }
+
+    public void release(int doctorId, int officeId, LocalDate day, int slot) {
+        checkSlot(slot);
+        AtomicLong bits = calendars.get(new CalendarKey(doctorId, officeId, day.toEpochDay()));
+        if (bits != null) {
+            bits.getAndAccumulate(~(1L << slot), (current, update) -> current & update);
+        }
+    }
+
+    /**
+     * @return A bitmap of the booked slots for the day, 0 if nothing has been booked yet.
+     */
+    public long bookedMask(int doctorId, int officeId, LocalDate day) {
+        AtomicLong bits = calendars.get(new CalendarKey(doctorId, officeId, day.toEpochDay()));
+        return bits == null ? 0L : bits.get();
+    }
+
+    /**
+     * @return The "HH:mm" start times of every free slot on the given day, in order.
+     */
+    public List<String> freeSlots(int doctorId, int officeId, LocalDate day) {
+
+        long free = ~bookedMask(doctorId, officeId, day) & SlotSchedule.FULL_DAY_MASK;
+        List<String> times = new ArrayList<>(Long.bitCount(free));
+
+        while (free != 0) {
+            int slot = Long.numberOfTrailingZeros(free);
+            times.add(SlotSchedule.timeOf(slot));
+            free &= free - 1;
+        }
+
+        return times;
+    }
+
+    @Scheduled(cron = "${availability.purge-cron:0 5 0 * * *}")
+    public void purgePastDays() {
+        long today = LocalDate.now().toEpochDay();
+        int before = calendars.size();
+        calendars.keySet().removeIf(key -> key.getEpochDay() < today);
+        log.debug("Purged " + (before - calendars.size()) + " past calendar days");
+    }
+
+    @Override
+    public void rebuildStarted() {
+        calendars.clear();
+    }
+
+    @Override
+    public void appointmentAdded(AppointmentSlotDTO appointment) {
+        int slot = SlotSchedule.slotOf(appointment.getAppointmentTime());
+        LocalDate day = SlotSchedule.toLocalDate(appointment.getAppointmentDate());
+
+        if (slot >= 0 && !day.isBefore(LocalDate.now())) {
+            reserve(appointment.getDoctorId(), appointment.getOfficeId(), day, slot);
+        }
+    }
+
+    @Override
+    public void appointmentRemoved(AppointmentSlotDTO appointment) {
+        int slot = SlotSchedule.slotOf(appointment.getAppointmentTime());
+
+        if (slot >= 0) {
+            release(appointment.getDoctorId(), appointment.getOfficeId(), SlotSchedule.toLocalDate(appointment.getAppointmentDate()), slot);
+        }
+    }
+
+    private static void checkSlot(int slot) {
+        if (!SlotSchedule.isValidSlot(slot)) {
+            throw new IllegalArgumentException("No such appointment slot: " + slot);
+        }
+    }
+
+    @Value
+    private static class CalendarKey {
+        int doctorId;
+        int officeId;
+        long epochDay;
+    }
+}
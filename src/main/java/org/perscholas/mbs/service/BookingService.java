@@ -0,0 +1,223 @@
+package org.perscholas.mbs.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.perscholas.mbs.dto.BookingResult;
+import org.perscholas.mbs.models.Appointment;
+import org.perscholas.mbs.models.OutboxEvent;
+import org.hibernate.exception.ConstraintViolationException;
+import org.perscholas.mbs.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Commits and cancels appointments without double booking a slot.
+ *
+ * Every commit for the same doctor and day runs under the same lock, picked from a fixed array of lock stripes. Bookings
+ * for other doctors (or other days) almost always land on a different stripe, so they never wait on each other and
+ * booking throughput grows with the number of doctors instead of being limited by one global lock.
+ *
+ * Inside the lock the slot is reserved in the AvailabilityService before the row is written, and released again if the
+ * write fails. The unique constraint on the Appointments table catches the remaining case of another application
+ * instance committing the same slot, which is reported the same way as a lost reservation: BookingResult.SLOT_TAKEN.
+ * Any other integrity violation is rethrown.
+ *
+ * A slot belongs to a doctor at one office, like the AvailabilityService bitmaps and the unique constraint: the same
+ * doctor and time at two offices are two slots. That cannot be checked across offices anyway once appointments are
+ * sharded by office. The lock is still per doctor rather than per doctor and office, so it also serializes the
+ * doctor's bookings at the doctor's other offices that day; they are few, and the lock is only held for one commit.
+ *
+ * Before the lock, a place in the office's hour is claimed from the CapacityService, and a booking that would exceed
+ * the office's hourly capacity is answered with BookingResult.OFFICE_FULL without any SQL.
+ *
+ * A cancellation offers the freed slot to the WaitlistService once it has committed, still holding the lock, so no
+ * booking through this instance can take the slot before the waiting patients have had it. The hand-off has its own
+ * transactions, so it cannot roll the cancellation back.
+ *
+ * Every committed booking and cancellation is reported to all AppointmentProjectionI beans, before the lock is released,
+ * and recorded in the outbox by the OutboxService within its own transaction.
+ *
+ * Appointments are written on the shard of their office (see ShardRouter). The waitlist is kept on the home shard, so
+ * with sharding enabled only slots freed at offices of the home shard are handed to waiting patients.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class BookingService {
+
+    private static final int LOCK_STRIPES = 64;  // must be a power of two
+
+    AppointmentRepoI appointmentRepoI;
+    AvailabilityService availabilityService;
+    CapacityService capacityService;
+    WaitlistService waitlistService;
+    OutboxService outboxService;
+    List<AppointmentProjectionI> projections;
+    ShardRouter shardRouter;
+    TransactionTemplate transactionTemplate;
+
+    Lock[] stripes = new Lock[LOCK_STRIPES];
+
+    @Autowired
+    public BookingService(AppointmentRepoI appointmentRepoI, AvailabilityService availabilityService, CapacityService capacityService, WaitlistService waitlistService,
+                          OutboxService outboxService, List<AppointmentProjectionI> projections, ShardRouter shardRouter,
+                          PlatformTransactionManager transactionManager) {
+        this.appointmentRepoI = appointmentRepoI;
+        this.availabilityService = availabilityService;
+        this.capacityService = capacityService;
+        this.waitlistService = waitlistService;
+        this.outboxService = outboxService;
+        this.projections = projections;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Saves the appointment if its slot is still free.
+     *
+     * @param appointment A new Appointment with its doctor, office, date and slot time set.
+     * @return BOOKED with the saved appointment, SLOT_TAKEN if another booking already holds the slot, or OFFICE_FULL if
+     *         the office has reached its hourly capacity.
+     */
+    public BookingResult book(Appointment appointment) {
+
+        int doctorId = appointment.getDoctor().getId();
+        int officeId = appointment.getOffice().getId();
+        LocalDate day = SlotSchedule.toLocalDate(appointment.getAppointmentDate());
+        int slot = SlotSchedule.slotOf(appointment.getAppointmentTime());
+
+        if (slot < 0) {
+            throw new IllegalArgumentException("Not a bookable appointment time: " + appointment.getAppointmentTime());
+        }
+
+        // Fast path, requests for a slot that is already booked never touch the lock or the database
+        if (!availabilityService.isFree(doctorId, officeId, day, slot)) {
+            log.debug("Slot " + slot + " on " + day + " already taken for doctor " + doctorId);
+            return BookingResult.slotTaken();
+        }
+
+        // Rejected in memory, before the lock or any SQL, when the office has no place left in that hour
+        int admission = capacityService.tryAdmit(officeId, day, slot);
+        if (admission == CapacityService.FULL) {
+            log.debug("Office " + officeId + " is full in the hour of slot " + slot + " on " + day);
+            return BookingResult.officeFull();
+        }
+
+        try {
+            Lock lock = stripeFor(doctorId, day);
+            lock.lock();
+            try {
+                if (!availabilityService.reserve(doctorId, officeId, day, slot)) {
+                    return BookingResult.slotTaken();
+                }
+
+                try {
+                    shardRouter.onShardOf(officeId, () -> transactionTemplate.executeWithoutResult(status -> {
+                        appointmentRepoI.saveAndFlush(appointment);
+                        outboxService.record(OutboxEvent.Type.APPOINTMENT_BOOKED, AppointmentSlotDTO.of(appointment));
+                    }));
+                } catch (DataIntegrityViolationException e) {
+                    availabilityService.release(doctorId, officeId, day, slot);
+                    if (!violatesSlotConstraint(e)) {
+                        throw e;  // a missing patient or doctor, say, is not a lost race for the slot
+                    }
+                    log.warn("Slot " + slot + " on " + day + " for doctor " + doctorId + " was committed elsewhere");
+                    return BookingResult.slotTaken();
+                } catch (RuntimeException e) {
+                    availabilityService.release(doctorId, officeId, day, slot);
+                    throw e;
+                }
+
+                // Before the projections, so the place is never held by both the token and the id
+                capacityService.admitted(officeId, day, slot, admission, appointment.getId());
+
+                AppointmentSlotDTO added = AppointmentSlotDTO.of(appointment);
+                projections.forEach(projection -> projection.appointmentAdded(added));
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            capacityService.release(officeId, day, slot, admission);  // a no-op once the appointment holds the place
+        }
+
+        return BookingResult.booked(appointment);
+    }
+
+    /**
+     * Deletes the appointment and gives its slot to the first suitable patient on the waitlist, or frees it if there
+     * is none (the AvailabilityService is one of the projections).
+     *
+     * @param appointmentId The id of the appointment to cancel.
+     * @return The cancelled appointment, or empty if no appointment exists by this id.
+     */
+    public Optional<Appointment> cancel(int appointmentId) {
+
+        Optional<Appointment> found = shardRouter.findInAnyShard(() -> appointmentRepoI.findById(appointmentId));
+        if (found.isEmpty()) {
+            return found;
+        }
+
+        Appointment appointment = found.get();
+        AppointmentSlotDTO removed = AppointmentSlotDTO.of(appointment);
+
+        Lock lock = stripeFor(removed.getDoctorId(), SlotSchedule.toLocalDate(removed.getAppointmentDate()));
+        lock.lock();
+        try {
+            shardRouter.onShardOf(removed.getOfficeId(), () -> transactionTemplate.executeWithoutResult(status -> {
+                appointmentRepoI.delete(appointment);
+                outboxService.record(OutboxEvent.Type.APPOINTMENT_CANCELLED, removed);
+            }));
+
+            boolean waitlisted = shardRouter.shardOf(removed.getOfficeId()) == ShardRouter.HOME;
+            Optional<Appointment> handedOff = waitlisted
+                    ? shardRouter.onShardOf(removed.getOfficeId(), () -> waitlistService.handOff(removed))
+                    : Optional.empty();
+
+            projections.forEach(projection -> projection.appointmentRemoved(removed));
+
+            if (handedOff.isPresent()) {
+                AppointmentSlotDTO added = AppointmentSlotDTO.of(handedOff.get());
+                projections.forEach(projection -> projection.appointmentAdded(added));
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return found;
+    }
+
+    static boolean violatesSlotConstraint(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                // Databases report the name with their own case and qualifiers, e.g. "appointments.uk_appointment_slot"
+                String name = violation.getConstraintName();
+                return name != null && name.toLowerCase(Locale.ROOT).contains(Appointment.SLOT_CONSTRAINT);
+            }
+        }
+        return false;
+    }
+
+    // Per doctor and day, so it covers the doctor's slots at every office
+    private Lock stripeFor(int doctorId, LocalDate day) {
+        int hash = doctorId * 31 + Long.hashCode(day.toEpochDay());
+        hash *= 0x9E3779B9;  // spread consecutive doctor ids and days across the stripes
+        return stripes[(hash >>> 16) & (LOCK_STRIPES - 1)];
+    }
+}
@@ -0,0 +1,54 @@
+package org.perscholas.mbs.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * The selections one user has made so far in the booking flow (specialty, clinic, doctor, registration, date & time),
+ * plus the appointment they last looked up.
+ *
+ * Only ids are kept, never entities, so a state costs a few dozen bytes no matter how large the Doctor or Office
+ * graphs are. An id of 0 (or a slot of -1) means that step has not been completed yet.
+ */
+@Getter
+@Setter
+@ToString
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BookingState {
+
+    String specialty;   // canonical (interned) instance, shared between all sessions
+    int officeId;
+    int doctorId;
+    int patientId;
+    int epochDay;
+    int slot = -1;
+    int lookupId;       // appointment found on the lookup page, the one a cancellation applies to
+
+    public void setSpecialty(String specialty) {
+        this.specialty = specialty == null ? null : specialty.intern();
+    }
+
+    public boolean hasSpecialty() {
+        return specialty != null && !specialty.isEmpty();
+    }
+
+    public boolean hasDoctor() {
+        return doctorId != 0 && officeId != 0;
+    }
+
+    public boolean hasPatient() {
+        return patientId != 0;
+    }
+
+    public boolean hasDateAndTime() {
+        return slot >= 0;
+    }
+
+    public void clearDateAndTime() {
+        epochDay = 0;
+        slot = -1;
+    }
+}
@@ -0,0 +1,103 @@
+package org.perscholas.mbs.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpSession;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Holds the BookingState of every user currently going through the booking flow, keyed by a random id kept in their
+ * HTTP session. Not by the session id itself: Spring Security changes that on login to prevent session fixation, and
+ * the user would lose their selections halfway through booking. Session attributes move along with the session.
+ *
+ * Controllers are singletons, so per-user selections must not live in their fields. This store is a bounded Caffeine
+ * cache: states that have not been touched for the configured TTL expire, and when the store is full the cache's size
+ * policy evicts a state that has not been used recently, both in constant time. The number of states and an estimate
+ * of the heap they occupy are published as the "booking.state.sessions" and "booking.state.heap" metrics.
+ */
+@Service
+@Slf4j
+public class BookingStateStore {
+
+    /*
+     * Estimated heap cost of one entry with compressed oops: the BookingState itself (12 byte header, specialty
+     * reference and six ints = 40 bytes), the cache's node with its access time and access order links (48 bytes),
+     * and the ConcurrentHashMap node (32 bytes) and table slot (8 bytes) behind it. The key is shared with the session
+     * attribute and the specialty string with every other state, so neither is counted.
+     */
+    static final long ENTRY_BYTES = 128;
+
+    static final String KEY_ATTRIBUTE = BookingStateStore.class.getName() + ".KEY";
+
+    private final Cache<String, BookingState> states;
+
+    @Autowired
+    public BookingStateStore(@Value("${booking.state.max-sessions:10000}") int maxSessions,
+                             @Value("${booking.state.ttl-minutes:30}") long ttlMinutes,
+                             MeterRegistry meterRegistry) {
+        this.states = Caffeine.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfterAccess(Duration.ofMinutes(ttlMinutes))
+                .removalListener((String key, BookingState state, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE) {
+                        log.warn("Booking state store full, evicted a least recently used state");
+                    }
+                })
+                .build();
+
+        Gauge.builder("booking.state.sessions", this, BookingStateStore::size)
+                .description("Booking flows currently held in memory")
+                .register(meterRegistry);
+        Gauge.builder("booking.state.heap", this, BookingStateStore::estimatedHeapBytes)
+                .description("Estimated heap used by in-memory booking flows")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the booking state of the session's user, starting a new one if needed.
+     */
+    public BookingState get(HttpSession session) {
+        return states.get(keyOf(session), key -> new BookingState());
+    }
+
+    public void remove(HttpSession session) {
+        String key = (String) session.getAttribute(KEY_ATTRIBUTE);
+        if (key != null) {
+            states.invalidate(key);
+        }
+    }
+
+    public int size() {
+        return (int) states.estimatedSize();
+    }
+
+    public long estimatedHeapBytes() {
+        return states.estimatedSize() * ENTRY_BYTES;
+    }
+
+    private static String keyOf(HttpSession session) {
+        String key = (String) session.getAttribute(KEY_ATTRIBUTE);
+        if (key == null) {
+            key = UUID.randomUUID().toString();
+            session.setAttribute(KEY_ATTRIBUTE, key);
+        }
+        return key;
+    }
+
+    // Expired states are otherwise only dropped as a side effect of later reads and writes
+    @Scheduled(fixedDelayString = "${booking.state.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        states.cleanUp();
+    }
+}
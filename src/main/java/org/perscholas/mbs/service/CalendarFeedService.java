@@ -0,0 +1,188 @@
+package org.perscholas.mbs.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.dto.AppointmentListingDTO;
+import org.perscholas.mbs.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.stream.Stream;
+
+/**
+ * Writes the iCalendar (RFC 5545) feed of a doctor or an office, one VEVENT per appointment.
+ *
+ * Appointments are read through the keyset listing queries of AppointmentRepoI and written as they arrive, so a feed
+ * is never built in memory. Feeds cover "calendar.past-days" back and every upcoming appointment.
+ *
+ * Calendar clients subscribe without logging in, so the feeds are public. An event names the specialty, the doctor and
+ * the appointment id but never the patient; staff look the patient up by the id.
+ *
+ * With sharding enabled an office feed is read from the office's shard, and a doctor feed from one shard after the
+ * other; calendar clients do not expect the events in any order.
+ */
+@Service
+@Slf4j
+public class CalendarFeedService {
+
+    private static final DateTimeFormatter UTC_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final int MAX_LINE_OCTETS = 75;
+
+    private final AppointmentRepoI appointmentRepoI;
+    private final ShardRouter shardRouter;
+    private final int pastDays;
+
+    @Autowired
+    public CalendarFeedService(AppointmentRepoI appointmentRepoI, ShardRouter shardRouter, @Value("${calendar.past-days:30}") int pastDays) {
+        this.appointmentRepoI = appointmentRepoI;
+        this.shardRouter = shardRouter;
+        this.pastDays = pastDays;
+    }
+
+    public void writeDoctorFeed(int doctorId, OutputStream out) throws IOException {
+
+        Writer writer = begin(out, "Doctor " + doctorId);
+        try {
+            shardRouter.inEveryShard(() -> {
+                try (Stream<AppointmentListingDTO> appointments = appointmentRepoI.streamDoctorListing(doctorId, windowStart(), 0, Pageable.unpaged())) {
+                    events(writer, appointments, false);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        end(writer);
+    }
+
+    public void writeOfficeFeed(int officeId, OutputStream out) throws IOException {
+
+        Writer writer = begin(out, "Office " + officeId);
+        try {
+            shardRouter.inShardOf(officeId, () -> {
+                try (Stream<AppointmentListingDTO> appointments = appointmentRepoI.streamOfficeListing(officeId, windowStart(), 0, Pageable.unpaged())) {
+                    events(writer, appointments, true);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        end(writer);
+    }
+
+    /**
+     * The earliest day a feed written now covers; it moves forward every midnight.
+     */
+    public LocalDate firstDay() {
+        return LocalDate.now().minusDays(pastDays);
+    }
+
+    private Date windowStart() {
+        // The listing queries start strictly after this date
+        return SlotSchedule.toDate(firstDay().minusDays(1));
+    }
+
+    private static Writer begin(OutputStream out, String calendarName) throws IOException {
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+        line(writer, "BEGIN:VCALENDAR");
+        line(writer, "VERSION:2.0");
+        line(writer, "PRODID:-//Medcare Booking System//Appointments//EN");
+        line(writer, "CALSCALE:GREGORIAN");
+        line(writer, "X-WR-CALNAME:" + escape(calendarName));
+        return writer;
+    }
+
+    private static void end(Writer writer) throws IOException {
+        line(writer, "END:VCALENDAR");
+        writer.flush();
+    }
+
+    // Runs inside a shard's transaction, hence unchecked
+    private static void events(Writer writer, Stream<AppointmentListingDTO> appointments, boolean withDoctor) {
+        try {
+            writeEvents(writer, appointments, withDoctor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeEvents(Writer writer, Stream<AppointmentListingDTO> appointments, boolean withDoctor) throws IOException {
+
+        String stamp = UTC_STAMP.format(LocalDateTime.now(ZoneOffset.UTC));
+
+        for (AppointmentListingDTO appointment : (Iterable<AppointmentListingDTO>) appointments::iterator) {
+
+            int slot = SlotSchedule.slotOf(appointment.getAppointmentTime());
+            if (slot < 0) {
+                continue;
+            }
+
+            LocalDateTime start = SlotSchedule.toLocalDate(appointment.getAppointmentDate()).atTime(SlotSchedule.DAY_START)
+                    .plusMinutes((long) slot * SlotSchedule.SLOT_MINUTES);
+
+            String summary = (appointment.getAppointmentSpecialty() == null ? "Appointment" : appointment.getAppointmentSpecialty())
+                    + (withDoctor ? " - " + appointment.getDoctorName() : "")
+                    + " - #" + appointment.getId();
+
+            line(writer, "BEGIN:VEVENT");
+            line(writer, "UID:appointment-" + appointment.getId() + "@mbs");
+            line(writer, "DTSTAMP:" + stamp);
+            line(writer, "DTSTART:" + utc(start));
+            line(writer, "DTEND:" + utc(start.plusMinutes(SlotSchedule.SLOT_MINUTES)));
+            line(writer, "SUMMARY:" + escape(summary));
+            line(writer, "LOCATION:" + escape(appointment.getOfficeName()));
+            line(writer, "END:VEVENT");
+        }
+    }
+
+    private static String utc(LocalDateTime local) {
+        return UTC_STAMP.format(local.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC));
+    }
+
+    private static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.replace("\\", "\\\\").replace(";", "\\;").replace(",", "\\,").replace("\n", "\\n");
+    }
+
+    // Content lines end with CRLF and are folded after 75 octets, continuation lines start with a space
+    private static void line(Writer writer, String content) throws IOException {
+
+        int octets = 0;
+        int i = 0;
+        while (i < content.length()) {
+            char c = content.charAt(i);
+            int chars = Character.isHighSurrogate(c) && i + 1 < content.length() ? 2 : 1;  // never split a surrogate pair
+            int size = chars == 2 ? 4 : c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+
+            if (octets + size > MAX_LINE_OCTETS) {
+                writer.write("\r\n ");
+                octets = 1;
+            }
+
+            writer.write(content, i, chars);
+            octets += size;
+            i += chars;
+        }
+
+        writer.write("\r\n");
+    }
+}
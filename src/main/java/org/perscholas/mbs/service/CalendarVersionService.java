@@ -0,0 +1,123 @@
+package org.perscholas.mbs.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tracks a change version and last modification time for the calendar of every doctor and every office, so calendar
+ * feeds can answer conditional GETs (ETag / Last-Modified) from memory.
+ *
+ * As an AppointmentProjectionI it sees every booking and cancellation; each bumps the version of the appointment's
+ * doctor and office. A rebuild starts a new generation, which is part of every ETag, so clients never match a version
+ * from before a restart.
+ *
+ * A feed also changes when its window moves past a day, so the ETag carries the first day of the window and the
+ * Last-Modified time is never before the midnight the window last moved.
+ */
+@Service
+@Slf4j
+public class CalendarVersionService implements AppointmentProjectionI {
+
+    private final ConcurrentMap<Integer, CalendarVersion> doctors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, CalendarVersion> offices = new ConcurrentHashMap<>();
+    private final CalendarFeedService calendarFeedService;
+
+    private volatile long generation = System.currentTimeMillis();
+    private volatile CalendarVersion unchanged = new CalendarVersion(generation);  // Shared by calendars without changes
+
+    @Autowired
+    public CalendarVersionService(CalendarFeedService calendarFeedService) {
+        this.calendarFeedService = calendarFeedService;
+    }
+
+    // Reads never add entries, so polling unknown ids cannot grow the maps
+    public CalendarVersion doctorVersion(int doctorId) {
+        return doctors.getOrDefault(doctorId, unchanged);
+    }
+
+    public CalendarVersion officeVersion(int officeId) {
+        return offices.getOrDefault(officeId, unchanged);
+    }
+
+    public String doctorETag(int doctorId) {
+        return "\"d" + doctorId + "-" + generation + "-" + doctorVersion(doctorId).getVersion() + "-" + firstDay() + "\"";
+    }
+
+    public String officeETag(int officeId) {
+        return "\"o" + officeId + "-" + generation + "-" + officeVersion(officeId).getVersion() + "-" + firstDay() + "\"";
+    }
+
+    public long doctorLastModified(int doctorId) {
+        return Math.max(doctorVersion(doctorId).getLastModified(), windowMoved());
+    }
+
+    public long officeLastModified(int officeId) {
+        return Math.max(officeVersion(officeId).getLastModified(), windowMoved());
+    }
+
+    private long firstDay() {
+        return calendarFeedService.firstDay().toEpochDay();
+    }
+
+    private static long windowMoved() {
+        return LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @Override
+    public void rebuildStarted() {
+        generation = System.currentTimeMillis();
+        unchanged = new CalendarVersion(generation);
+        doctors.clear();
+        offices.clear();
+    }
+
+    @Override
+    public void appointmentAdded(AppointmentSlotDTO appointment) {
+        changed(appointment);
+    }
+
+    @Override
+    public void appointmentRemoved(AppointmentSlotDTO appointment) {
+        changed(appointment);
+    }
+
+    private void changed(AppointmentSlotDTO appointment) {
+        long now = System.currentTimeMillis();
+        doctors.computeIfAbsent(appointment.getDoctorId(), id -> new CalendarVersion(generation)).bump(now);
+        offices.computeIfAbsent(appointment.getOfficeId(), id -> new CalendarVersion(generation)).bump(now);
+    }
+
+    /**
+     * The change counter of one calendar. Readers may see the version and time of two different changes, which at
+     * worst makes a client download an unchanged feed once more.
+     */
+    public static final class CalendarVersion {
+
+        private volatile long version;
+        private volatile long lastModified;
+
+        CalendarVersion(long lastModified) {
+            this.lastModified = lastModified;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        synchronized void bump(long now) {
+            version++;
+            lastModified = Math.max(lastModified, now);
+        }
+    }
+}
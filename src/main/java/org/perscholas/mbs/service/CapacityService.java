@@ -0,0 +1,284 @@
+package org.perscholas.mbs.service;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.dao.OfficeRepoI;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.perscholas.mbs.models.Office;
+import org.perscholas.mbs.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Enforces the hourly capacity of offices ("hourlyCapacity" on Office, 0 for no limit) in memory, so a booking for a
+ * full hour is turned away without a lock or a database round trip.
+ *
+ * Every hour of a limited office holds the ids of its appointments in a small int array behind an AtomicReference,
+ * updated with compare-and-set only. An admission claims a place with a negative token, which the BookingService
+ * swaps for the booked appointment id in a single compare-and-set once the booking is committed, or releases if it
+ * failed, so a place is never counted free while a booking for it is in flight, nor twice once it has been booked.
+ * Holding ids instead of a bare count keeps updates idempotent, as AppointmentProjectionI requires.
+ *
+ * As a projection the hours follow every booking and cancellation of this instance. A scheduled reconciliation re-reads
+ * the capacities and the upcoming appointments from the database, adding bookings made elsewhere (imports, other
+ * instances) and dropping appointments that were cancelled elsewhere.
+ */
+@Service
+@Slf4j
+public class CapacityService implements AppointmentProjectionI {
+
+    public static final int FULL = 0;
+
+    private static final int[] NONE = new int[0];
+
+    private final AppointmentRepoI appointmentRepoI;
+    private final OfficeRepoI officeRepoI;
+    private final ShardRouter shardRouter;
+
+    private final ConcurrentMap<HourKey, AtomicReference<int[]>> hours = new ConcurrentHashMap<>();
+    private final AtomicInteger tokens = new AtomicInteger();
+
+    // Office id -> places per hour, only for offices with a limit, replaced as a whole on reconciliation
+    private volatile Map<Integer, Integer> capacities = Map.of();
+
+    @Autowired
+    public CapacityService(AppointmentRepoI appointmentRepoI, OfficeRepoI officeRepoI, ShardRouter shardRouter) {
+        this.appointmentRepoI = appointmentRepoI;
+        this.officeRepoI = officeRepoI;
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Claims a place in the hour of the slot.
+     *
+     * @return A token to hand back to release once the booking has been committed or has failed, or FULL if the office
+     *         has no place left in that hour.
+     */
+    public int tryAdmit(int officeId, LocalDate day, int slot) {
+
+        int token = tokens.decrementAndGet() | Integer.MIN_VALUE;  // always negative, so never an appointment id
+        Integer capacity = capacities.get(officeId);
+        if (capacity == null) {
+            return token;
+        }
+
+        AtomicReference<int[]> hour = hours.computeIfAbsent(new HourKey(officeId, day.toEpochDay(), hourOf(slot)), key -> new AtomicReference<>(NONE));
+        while (true) {
+            int[] held = hour.get();
+            if (held.length >= capacity) {
+                return FULL;
+            }
+            if (hour.compareAndSet(held, with(held, token))) {
+                return token;
+            }
+        }
+    }
+
+    /**
+     * Hands the place claimed by the token to the committed appointment, in one step.
+     */
+    public void admitted(int officeId, LocalDate day, int slot, int token, int appointmentId) {
+
+        AtomicReference<int[]> hour = hours.get(new HourKey(officeId, day.toEpochDay(), hourOf(slot)));
+        if (hour == null) {
+            return;  // no limit, or the hours were rebuilt since; appointmentAdded adds the id
+        }
+
+        while (true) {
+            int[] held = hour.get();
+            int at = indexOf(held, token);
+            if (at < 0) {
+                return;
+            }
+
+            int[] swapped;
+            if (indexOf(held, appointmentId) >= 0) {
+                swapped = without(held, at);
+            } else {
+                swapped = held.clone();
+                swapped[at] = appointmentId;
+            }
+            if (hour.compareAndSet(held, swapped)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gives the place claimed by the token back; does nothing once it has been handed to an appointment.
+     */
+    public void release(int officeId, LocalDate day, int slot, int token) {
+        remove(new HourKey(officeId, day.toEpochDay(), hourOf(slot)), token);
+    }
+
+    /**
+     * @return The number of places taken in the hour of the slot, including bookings in flight.
+     */
+    public int taken(int officeId, LocalDate day, int slot) {
+        AtomicReference<int[]> hour = hours.get(new HourKey(officeId, day.toEpochDay(), hourOf(slot)));
+        return hour == null ? 0 : hour.get().length;
+    }
+
+    @Override
+    public void rebuildStarted() {
+        hours.clear();
+    }
+
+    @Override
+    public void appointmentAdded(AppointmentSlotDTO appointment) {
+        HourKey key = keyOf(appointment);
+        if (key != null && capacities.containsKey(key.getOfficeId()) && key.getEpochDay() >= LocalDate.now().toEpochDay()) {
+            add(key, appointment.getId());
+        }
+    }
+
+    @Override
+    public void appointmentRemoved(AppointmentSlotDTO appointment) {
+        HourKey key = keyOf(appointment);
+        if (key != null) {
+            remove(key, appointment.getId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${capacity.reconcile-ms:300000}", initialDelayString = "${capacity.reconcile-ms:300000}")
+    public void reconcile() {
+
+        long start = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+
+        // Taken before the first read, so an id missing from the result has been cancelled since
+        Map<HourKey, int[]> before = new HashMap<>();
+        hours.forEach((key, hour) -> before.put(key, hour.get()));
+
+        Map<Integer, Integer> limited = new HashMap<>();
+        for (Office office : officeRepoI.findAll()) {
+            if (office.getHourlyCapacity() > 0) {
+                limited.put(office.getId(), office.getHourlyCapacity());
+            }
+        }
+        capacities = Map.copyOf(limited);
+
+        hours.keySet().removeIf(key -> key.getEpochDay() < today.toEpochDay() || !limited.containsKey(key.getOfficeId()));
+
+        Map<HourKey, Set<Integer>> found = new HashMap<>();
+        shardRouter.inEveryShard(() -> {
+            try (Stream<AppointmentSlotDTO> slots = appointmentRepoI.streamSlotsFrom(SlotSchedule.toDate(today))) {
+                slots.forEach(appointment -> {
+                    HourKey key = keyOf(appointment);
+                    if (key != null && limited.containsKey(key.getOfficeId())) {
+                        found.computeIfAbsent(key, k -> new HashSet<>()).add(appointment.getId());
+                        add(key, appointment.getId());
+                    }
+                });
+            }
+        });
+
+        int dropped = 0;
+        for (Map.Entry<HourKey, int[]> entry : before.entrySet()) {
+            Set<Integer> ids = found.getOrDefault(entry.getKey(), Set.of());
+            for (int id : entry.getValue()) {
+                if (id > 0 && !ids.contains(id)) {
+                    remove(entry.getKey(), id);
+                    dropped++;
+                }
+            }
+        }
+
+        log.debug("Reconciled the capacity of " + limited.size() + " offices, dropped " + dropped + " cancelled appointments in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void add(HourKey key, int id) {
+        AtomicReference<int[]> hour = hours.computeIfAbsent(key, k -> new AtomicReference<>(NONE));
+        int[] held;
+        do {
+            held = hour.get();
+        } while (indexOf(held, id) < 0 && !hour.compareAndSet(held, with(held, id)));
+    }
+
+    private void remove(HourKey key, int id) {
+
+        AtomicReference<int[]> hour = hours.get(key);
+        if (hour == null) {
+            return;
+        }
+
+        while (true) {
+            int[] held = hour.get();
+            int at = indexOf(held, id);
+            if (at < 0) {
+                return;
+            }
+
+            if (hour.compareAndSet(held, without(held, at))) {
+                return;
+            }
+        }
+    }
+
+    private static HourKey keyOf(AppointmentSlotDTO appointment) {
+        int slot = SlotSchedule.slotOf(appointment.getAppointmentTime());
+        if (slot < 0) {
+            return null;
+        }
+        return new HourKey(appointment.getOfficeId(), SlotSchedule.toLocalDate(appointment.getAppointmentDate()).toEpochDay(), hourOf(slot));
+    }
+
+    // Hours are counted from SlotSchedule.DAY_START
+    private static int hourOf(int slot) {
+        return slot * SlotSchedule.SLOT_MINUTES / 60;
+    }
+
+    private static int[] with(int[] held, int id) {
+        int[] grown = Arrays.copyOf(held, held.length + 1);
+        grown[held.length] = id;
+        return grown;
+    }
+
+    private static int[] without(int[] held, int at) {
+        int[] shrunk = new int[held.length - 1];
+        System.arraycopy(held, 0, shrunk, 0, at);
+        System.arraycopy(held, at + 1, shrunk, at, held.length - at - 1);
+        return shrunk;
+    }
+
+    private static int indexOf(int[] held, int id) {
+        for (int i = 0; i < held.length; i++) {
+            if (held[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private static class HourKey {
+        int officeId;
+        long epochDay;
+        int hour;
+    }
+}
@@ -0,0 +1,99 @@
+package org.perscholas.mbs.service;
+
+import org.perscholas.mbs.dao.OfficeRepoI;
+import org.perscholas.mbs.dto.NearbyClinicDTO;
+import org.perscholas.mbs.dto.OfficeLocationDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the offices nearest to a location, optionally only those where a doctor practices a given specialty.
+ *
+ * The located offices are held in an OfficeKdTree, along with the union of their doctors' specialty masks, so a search
+ * walks O(log n + k) nodes in memory and never touches the database. The tree and the office names form an immutable
+ * snapshot behind a volatile field, swapped in as a whole on every rebuild.
+ *
+ * The snapshot is one of the ReferenceDataSnapshots, rebuilt shortly after a doctor or office changes. Changes JPA
+ * does not report, such as doctors moving between offices, show up after at most "clinic-locator.max-age-ms".
+ */
+@Service
+public class ClinicLocator {
+
+    private final OfficeRepoI officeRepoI;
+    private final SpecialtyRegistry specialtyRegistry;
+    private final ReferenceDataSnapshots.Snapshot<Locations> snapshot;
+
+    @Autowired
+    public ClinicLocator(OfficeRepoI officeRepoI, SpecialtyRegistry specialtyRegistry, ReferenceDataSnapshots snapshots,
+                         @Value("${clinic-locator.max-age-ms:300000}") long maxAgeMillis) {
+        this.officeRepoI = officeRepoI;
+        this.specialtyRegistry = specialtyRegistry;
+        this.snapshot = snapshots.register("Clinic locator",
+                new Locations(new OfficeKdTree(new int[0], new double[0], new double[0], new long[0]), Map.of()), this::build, maxAgeMillis);
+    }
+
+    /**
+     * @param specialty Only offices where a doctor practices it are returned, null for any office.
+     * @return Up to limit offices, nearest first. Empty for an unknown specialty.
+     */
+    public List<NearbyClinicDTO> nearest(double latitude, double longitude, String specialty, int limit) {
+
+        long specialtyBit = specialty == null ? -1L : specialtyRegistry.bitOf(specialty);
+        if (specialtyBit == 0) {
+            return List.of();
+        }
+
+        Locations current = snapshot.get();
+        List<NearbyClinicDTO> clinics = new ArrayList<>(limit);
+        for (OfficeKdTree.Nearest nearest : current.tree.nearest(latitude, longitude, specialtyBit, limit)) {
+            OfficeLocationDTO office = current.offices.get(nearest.getOfficeId());
+            clinics.add(new NearbyClinicDTO(office.getOfficeId(), office.getOfficeName(), office.getLatitude(), office.getLongitude(),
+                    nearest.getDistanceKm()));
+        }
+        return clinics;
+    }
+
+    private Locations build() {
+
+        // One row per doctor, merged into one entry per office
+        Map<Integer, OfficeLocationDTO> offices = new HashMap<>();
+        Map<Integer, Long> masks = new HashMap<>();
+        for (OfficeLocationDTO row : officeRepoI.findLocations()) {
+            offices.putIfAbsent(row.getOfficeId(), row);
+            masks.merge(row.getOfficeId(), row.getSpecialtyMask(), (a, b) -> a | b);
+        }
+
+        int size = offices.size();
+        int[] ids = new int[size];
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        long[] specialtyMasks = new long[size];
+        int i = 0;
+        for (OfficeLocationDTO office : offices.values()) {
+            ids[i] = office.getOfficeId();
+            latitudes[i] = office.getLatitude();
+            longitudes[i] = office.getLongitude();
+            specialtyMasks[i] = masks.get(office.getOfficeId());
+            i++;
+        }
+
+        return new Locations(new OfficeKdTree(ids, latitudes, longitudes, specialtyMasks), Map.copyOf(offices));
+    }
+
+    private static final class Locations {
+
+        final OfficeKdTree tree;
+        final Map<Integer, OfficeLocationDTO> offices;
+
+        Locations(OfficeKdTree tree, Map<Integer, OfficeLocationDTO> offices) {
+            this.tree = tree;
+            this.offices = offices;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.perscholas.mbs.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe counting Bloom filter over int values.
+ *
+ * Each position holds a 4 bit counter instead of a single bit, so values can be removed again. Sixteen counters are
+ * packed into every long and updated with compare-and-set, so adds, removes and lookups never block. A counter that
+ * reaches 15 is saturated and never decremented again, which can only cause extra false positives, never a false
+ * negative.
+ */
+public class CountingBloomFilter {
+
+    private static final int COUNTERS_PER_WORD = 16;
+    private static final long COUNTER_MASK = 0xFL;
+
+    private final AtomicLongArray words;
+    private final int counters;
+    private final int hashes;
+
+    /**
+     * @param expectedInsertions The number of values the filter is sized for.
+     * @param falsePositiveRate The wanted probability of mightContain returning true for an absent value, at the expected size.
+     */
+    public CountingBloomFilter(int expectedInsertions, double falsePositiveRate) {
+
+        int n = Math.max(expectedInsertions, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        m = Math.min(Math.max(m, COUNTERS_PER_WORD), Integer.MAX_VALUE - COUNTERS_PER_WORD);
+
+        this.words = new AtomicLongArray((int) ((m + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD));
+        this.counters = words.length() * COUNTERS_PER_WORD;
+        this.hashes = Math.max(1, (int) Math.round((double) counters / n * Math.log(2)));
+    }
+
+    public void add(int value) {
+        long hash = mix(value);
+        for (int i = 0; i < hashes; i++) {
+            increment(index(hash, i));
+        }
+    }
+
+    public void remove(int value) {
+        long hash = mix(value);
+        for (int i = 0; i < hashes; i++) {
+            decrement(index(hash, i));
+        }
+    }
+
+    /**
+     * @return false if the value was definitely never added (or has been removed), true if it probably was.
+     */
+    public boolean mightContain(int value) {
+        long hash = mix(value);
+        for (int i = 0; i < hashes; i++) {
+            int index = index(hash, i);
+            if (counter(words.get(index / COUNTERS_PER_WORD), index) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long sizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    private void increment(int index) {
+        int word = index / COUNTERS_PER_WORD;
+        long current;
+        do {
+            current = words.get(word);
+            if (counter(current, index) == COUNTER_MASK) {
+                return;
+            }
+        } while (!words.compareAndSet(word, current, current + (1L << shift(index))));
+    }
+
+    private void decrement(int index) {
+        int word = index / COUNTERS_PER_WORD;
+        long current;
+        do {
+            current = words.get(word);
+            long count = counter(current, index);
+            if (count == 0 || count == COUNTER_MASK) {
+                return;
+            }
+        } while (!words.compareAndSet(word, current, current - (1L << shift(index))));
+    }
+
+    private static long counter(long word, int index) {
+        return (word >>> shift(index)) & COUNTER_MASK;
+    }
+
+    private static int shift(int index) {
+        return (index % COUNTERS_PER_WORD) * 4;
+    }
+
+    // Double hashing, the i-th position is h1 + i * h2 taken from the two halves of one 64 bit hash
+    private int index(long hash, int i) {
+        int combined = (int) hash + i * (int) (hash >>> 32);
+        return (combined & Integer.MAX_VALUE) % counters;
+    }
+
+    // SplitMix64 finalizer, spreads sequential ids over all 64 bits
+    private static long mix(int value) {
+        long z = value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,26 @@
+package org.perscholas.mbs.service;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads of the application's own executors: daemon threads, so a pool that is not shut down never keeps
+ * the JVM alive, named after the pool and numbered, so they can be told apart in thread dumps.
+ */
+public final class DaemonThreads {
+
+    private DaemonThreads() {
+    }
+
+    /**
+     * @param name The name of the pool, its threads are called name-1, name-2 and so on.
+     */
+    public static ThreadFactory named(String name) {
+        AtomicInteger threads = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package org.perscholas.mbs.service;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Serves the schedule of an office for one day from memory, for the front desk calendar.
+ *
+ * One OfficeDayView is kept per office and day. As an AppointmentProjectionI it is filled by the ProjectionRebuilder at
+ * startup and then updated with every booking and cancellation, one appointment at a time, so a day is never
+ * recomputed and fetching it is a single map lookup. Days more than "day-view.past-days" in the past are dropped.
+ */
+@Service
+@Slf4j
+public class DayViewService implements AppointmentProjectionI {
+
+    private final ConcurrentMap<ViewKey, OfficeDayView> views = new ConcurrentHashMap<>();
+    private final int pastDays;
+
+    @Autowired
+    public DayViewService(@Value("${day-view.past-days:30}") int pastDays) {
+        this.pastDays = pastDays;
+    }
+
+    /**
+     * @return The office's appointments on the day, empty if it has none.
+     */
+    public OfficeDayView dayView(int officeId, LocalDate day) {
+        return views.getOrDefault(new ViewKey(officeId, day.toEpochDay()), OfficeDayView.EMPTY);
+    }
+
+    @Override
+    public void rebuildStarted() {
+        views.clear();
+    }
+
+    @Override
+    public void appointmentAdded(AppointmentSlotDTO appointment) {
+
+        int slot = SlotSchedule.slotOf(appointment.getAppointmentTime());
+        long day = SlotSchedule.toLocalDate(appointment.getAppointmentDate()).toEpochDay();
+
+        if (slot < 0 || day < firstKeptDay()) {
+            return;
+        }
+
+        views.compute(new ViewKey(appointment.getOfficeId(), day), (key, view) ->
+                (view == null ? OfficeDayView.EMPTY : view).with(appointment.getId(), slot, appointment.getDoctorId(),
+                        appointment.getPatientId(), appointment.getAppointmentSpecialty()));
+    }
+
+    @Override
+    public void appointmentRemoved(AppointmentSlotDTO appointment) {
+
+        long day = SlotSchedule.toLocalDate(appointment.getAppointmentDate()).toEpochDay();
+
+        views.computeIfPresent(new ViewKey(appointment.getOfficeId(), day), (key, view) -> {
+            OfficeDayView updated = view.without(appointment.getId());
+            return updated.size() == 0 ? null : updated;
+        });
+    }
+
+    @Scheduled(cron = "${day-view.evict-cron:0 0 1 * * *}")
+    public void evictPastDays() {
+        long firstKept = firstKeptDay();
+        views.keySet().removeIf(key -> key.getEpochDay() < firstKept);
+    }
+
+    private long firstKeptDay() {
+        return LocalDate.now().minusDays(pastDays).toEpochDay();
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private static class ViewKey {
+        int officeId;
+        long epochDay;
+    }
+}
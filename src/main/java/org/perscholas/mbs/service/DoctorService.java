@@ -9,15 +9,12 @@ import org.perscholas.mbs.dao.PatientRepoI;
 import org.perscholas.mbs.dto.DoctorDTO;
 import org.perscholas.mbs.dto.OfficeDTO;
 import org.perscholas.mbs.models.Doctor;
-import org.perscholas.mbs.models.Office;
 import org.perscholas.mbs.models.Patient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
@@ -25,10 +22,14 @@ import java.util.stream.Collectors;
 public class DoctorService {
 
     DoctorRepoI doctorRepoI;
+    SpecialtyIndex specialtyIndex;
+    SpecialtyRegistry specialtyRegistry;
 
     @Autowired
-    public DoctorService(DoctorRepoI doctorRepoI) {
+    public DoctorService(DoctorRepoI doctorRepoI, SpecialtyIndex specialtyIndex, SpecialtyRegistry specialtyRegistry) {
         this.doctorRepoI = doctorRepoI;
+        this.specialtyIndex = specialtyIndex;
+        this.specialtyRegistry = specialtyRegistry;
     }
 
     @Transactional(rollbackOn = Exception.class)
@@ -43,41 +44,29 @@ public class DoctorService {
         return doctors;
     }
 
-    public List<Doctor> specialtyDoctorsInOffice(Office office, String selectedSpecialty) {
-
-        List<Doctor> specialtyDoctorsInOffice = new ArrayList<>();
-        Set<Doctor> doctorsInOfficeSet = office.getDoctors();
-
-        for (Doctor doctor : doctorsInOfficeSet) {
-            if(doctor.getSpecialties().contains(selectedSpecialty)) {
-                System.out.println("Doctor: " + doctor + " contains: " + selectedSpecialty);
-                specialtyDoctorsInOffice.add(doctor);
-            }
-        }
-
-        return specialtyDoctorsInOffice;
+    /**
+     * @return Every office offering the specialty, with its doctors practicing it, looked up in the SpecialtyIndex.
+     *         Cached per specialty for the select clinic page's hit and miss statistics.
+     */
+    @Cacheable(cacheNames = SpecialtyIndex.CACHE, key = "#specialty")
+    public List<SpecialtyIndex.Clinic> clinicsWithSpecialty(String specialty) {
+        return specialtyIndex.clinics(specialty);
     }
 
-    public List<Doctor> filterDoctorsWithSpecialty(List<Doctor> allDoctors, String selectedSpecialty){
-
-        List<Doctor> specialtyDoctors = new ArrayList<>();
-
-        for(int i = 0; i < allDoctors.toArray().length; i++) {
-
-            if ( allDoctors.get(i).getSpecialties().contains(selectedSpecialty) ) {
-
-                specialtyDoctors.add(allDoctors.get(i));
-
-            }
-        }
-
-        return specialtyDoctors;
+    /**
+     * @return The doctors practicing the specialty, filtered in the database through the Doctor_Specialties join table.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public List<Doctor> doctorsWithSpecialty(String specialty) {
+        return specialtyRegistry.find(specialty)
+                .map(found -> doctorRepoI.findBySpecialtyId(found.getId()))
+                .orElse(List.of());
     }
 
+    /**
+     * @return The id and name of every doctor, read as DoctorDTO rows in a single query.
+     */
     public List<DoctorDTO> getDoctorEssentialInfo() {
-
-        return doctorRepoI.findAll().stream().map((oneDoctor) -> {
-            return new DoctorDTO(oneDoctor.getId(), oneDoctor.getName());
-        }).collect(Collectors.toList());
+        return doctorRepoI.findEssentialInfo();
     }
 }
@@ -0,0 +1,75 @@
+package org.perscholas.mbs.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.models.OutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Appends every appointment lifecycle event to a local NDJSON file, one event per line. Enabled by setting
+ * "outbox.sink.file.path".
+ *
+ * The file is synced to disk before the batch is reported as delivered, so an event marked as published is never lost
+ * by a crash. Events may appear twice after a crash; the "id" field tells duplicates apart.
+ */
+@Service
+@ConditionalOnProperty(name = "outbox.sink.file.path")
+@Slf4j
+public class FileOutboxSink implements OutboxSinkI {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public FileOutboxSink(@Value("${outbox.sink.file.path}") String path, ObjectMapper objectMapper) {
+        this.path = Path.of(path);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+
+            try (FileOutputStream file = new FileOutputStream(path.toFile(), true)) {
+                BufferedOutputStream out = new BufferedOutputStream(file);
+
+                for (OutboxEvent event : events) {
+                    try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+                        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                        json.writeStartObject();
+                        json.writeNumberField("id", event.getId());
+                        json.writeStringField("type", event.getType().name());
+                        json.writeNumberField("appointmentId", event.getAppointmentId());
+                        json.writeNumberField("createdAt", event.getCreatedAt().getTime());
+                        json.writeFieldName("appointment");
+                        json.writeRawValue(event.getPayload());
+                        json.writeEndObject();
+                    }
+                    out.write('\n');
+                }
+
+                out.flush();
+                file.getFD().sync();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append outbox events to " + path, e);
+        }
+    }
+}
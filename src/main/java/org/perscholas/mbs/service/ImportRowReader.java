@@ -0,0 +1,158 @@
+package org.perscholas.mbs.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads an import file one row at a time, so files of any size can be imported with constant memory.
+ *
+ * CSV files start with a header line naming the columns, values may be quoted with double quotes ("" inside quotes
+ * is a literal quote) but cannot span lines. NDJSON files hold one JSON object per line. Either way a row is returned
+ * as a map from column name to text value; blank lines are skipped.
+ */
+public class ImportRowReader implements Closeable {
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final ObjectMapper objectMapper;
+
+    private List<String> header;
+    private int lineNumber;
+
+    public ImportRowReader(InputStream in, Format format, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return The next row, or null at the end of the file.
+     * @throws IllegalArgumentException If the line cannot be parsed; the reader can still continue with the next line.
+     */
+    public Map<String, String> next() throws IOException {
+
+        String line = nextLine();
+        if (line == null) {
+            return null;
+        }
+
+        if (format == Format.NDJSON) {
+            return parseJson(line);
+        }
+
+        if (header == null) {
+            header = splitCsv(line);
+            line = nextLine();
+            if (line == null) {
+                return null;
+            }
+        }
+
+        List<String> values = splitCsv(line);
+        if (values.size() != header.size()) {
+            throw new IllegalArgumentException("Expected " + header.size() + " columns but found " + values.size());
+        }
+
+        Map<String, String> row = new HashMap<>(header.size() * 2);
+        for (int i = 0; i < values.size(); i++) {
+            row.put(header.get(i), values.get(i));
+        }
+        return row;
+    }
+
+    /**
+     * @return The line number of the row last returned by next(), starting at 1.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String nextLine() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+        } while (line != null && line.isBlank());
+        return line;
+    }
+
+    private Map<String, String> parseJson(String line) {
+
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+
+        Map<String, String> row = new HashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            row.put(field.getKey(), field.getValue().isNull() ? null : field.getValue().asText());
+        }
+        return row;
+    }
+
+    private static List<String> splitCsv(String line) {
+
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted value");
+        }
+
+        values.add(value.toString().trim());
+        return values;
+    }
+}
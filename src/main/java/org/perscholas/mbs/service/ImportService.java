@@ -0,0 +1,411 @@
+package org.perscholas.mbs.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.DoctorRepoI;
+import org.perscholas.mbs.dao.OfficeRepoI;
+import org.perscholas.mbs.dao.PatientRepoI;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.perscholas.mbs.dto.ImportReport;
+import org.perscholas.mbs.models.Appointment;
+import org.perscholas.mbs.models.Doctor;
+import org.perscholas.mbs.models.Office;
+import org.perscholas.mbs.models.OutboxEvent;
+import org.perscholas.mbs.models.Patient;
+import org.perscholas.mbs.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Imports patients and appointments in bulk, for migrating the existing schedule of a clinic we onboard.
+ *
+ * The file is read row by row with an ImportRowReader. Each row is turned into an entity and checked against the
+ * entity's bean validation annotations, rows that fail are rejected with their line number and the import goes on.
+ * Valid rows are written in batches of "import.batch-size", each batch in its own transaction that is flushed and
+ * cleared afterwards, so memory stays flat. Patient and Appointment ids come from pooled sequences, which lets
+ * Hibernate send the inserts of a batch as JDBC batches (hibernate.jdbc.batch_size).
+ *
+ * If a batch fails in the database (for example an appointment slot that is already taken), it is rolled back and
+ * retried one row at a time so only the offending rows are rejected.
+ *
+ * Appointment rows reference existing doctors, offices and patients by id; the references of a whole batch are
+ * checked with one query per table. Imported appointments are recorded in the outbox in the transaction of their batch,
+ * and reported to every AppointmentProjectionI once it has committed. With sharding enabled the appointments of a batch
+ * are written shard by shard, each part in the transaction of its office's shard.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class ImportService {
+
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+
+    EntityManager entityManager;
+    TransactionTemplate transactionTemplate;
+    Validator validator;
+    PasswordEncoder passwordEncoder;
+    ObjectMapper objectMapper;
+    DoctorRepoI doctorRepoI;
+    OfficeRepoI officeRepoI;
+    PatientRepoI patientRepoI;
+    OutboxService outboxService;
+    List<AppointmentProjectionI> projections;
+    ShardRouter shardRouter;
+    int batchSize;
+
+    @Autowired
+    public ImportService(EntityManager entityManager, PlatformTransactionManager transactionManager, Validator validator,
+                         PasswordEncoder passwordEncoder, ObjectMapper objectMapper, DoctorRepoI doctorRepoI,
+                         OfficeRepoI officeRepoI, PatientRepoI patientRepoI, OutboxService outboxService, List<AppointmentProjectionI> projections,
+                         ShardRouter shardRouter, @Value("${import.batch-size:1000}") int batchSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.passwordEncoder = passwordEncoder;
+        this.objectMapper = objectMapper;
+        this.doctorRepoI = doctorRepoI;
+        this.officeRepoI = officeRepoI;
+        this.patientRepoI = patientRepoI;
+        this.outboxService = outboxService;
+        this.projections = projections;
+        this.shardRouter = shardRouter;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Columns: fullName, dob (yyyy-MM-dd), gender, email, phoneNumber, ssn, password.
+     *
+     * Passwords that already are BCrypt hashes are kept as they are. Plain text passwords are hashed, which is by far
+     * the most expensive part of a patient import, so exports should carry hashes wherever possible.
+     */
+    public ImportReport importPatients(InputStream in, ImportRowReader.Format format) throws IOException {
+        return run(in, format, new PatientImporter());
+    }
+
+    /**
+     * Columns: appointmentDate (yyyy-MM-dd), appointmentTime (HH:mm, on the SlotSchedule grid), appointmentSpecialty,
+     * doctorId, officeId, patientId.
+     */
+    public ImportReport importAppointments(InputStream in, ImportRowReader.Format format) throws IOException {
+        return run(in, format, new AppointmentImporter());
+    }
+
+    private <T> ImportReport run(InputStream in, ImportRowReader.Format format, Importer<T> importer) throws IOException {
+
+        long start = System.nanoTime();
+        Progress progress = new Progress();
+        List<PendingRow<T>> batch = new ArrayList<>(batchSize);
+
+        try (ImportRowReader reader = new ImportRowReader(in, format, objectMapper)) {
+            while (true) {
+                Map<String, String> row;
+                try {
+                    row = reader.next();
+                } catch (IllegalArgumentException e) {
+                    progress.rowsRead++;
+                    progress.reject(reader.getLineNumber(), e.getMessage());
+                    continue;
+                }
+
+                if (row == null) {
+                    break;
+                }
+
+                progress.rowsRead++;
+                T entity = toValidEntity(importer, row, reader.getLineNumber(), progress);
+                if (entity != null) {
+                    batch.add(new PendingRow<>(reader.getLineNumber(), entity));
+                }
+
+                if (batch.size() == batchSize) {
+                    write(importer, batch, progress);
+                    batch.clear();
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            write(importer, batch, progress);
+        }
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        long rowsPerSecond = progress.rowsRead * 1000 / elapsedMillis;
+        log.info("Imported " + progress.imported + " of " + progress.rowsRead + " rows (" + progress.rejected
+                + " rejected) in " + elapsedMillis + " ms, " + rowsPerSecond + " rows/s");
+
+        return new ImportReport(progress.rowsRead, progress.imported, progress.rejected, elapsedMillis, rowsPerSecond, progress.rejections);
+    }
+
+    private <T> T toValidEntity(Importer<T> importer, Map<String, String> row, int line, Progress progress) {
+
+        T entity;
+        try {
+            entity = importer.toEntity(row);
+        } catch (RuntimeException e) {  // Missing or unparsable values, including Lombok's @NonNull checks
+            progress.reject(line, e.getMessage());
+            return null;
+        }
+
+        Set<ConstraintViolation<T>> violations = validator.validate(entity);
+        if (!violations.isEmpty()) {
+            progress.reject(line, violations.iterator().next().getMessage());
+            return null;
+        }
+
+        return entity;
+    }
+
+    private <T> void write(Importer<T> importer, List<PendingRow<T>> batch, Progress progress) {
+
+        List<PendingRow<T>> valid = importer.checkReferences(batch, progress);
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, List<PendingRow<T>>> byShard = new TreeMap<>();
+        for (PendingRow<T> pending : valid) {
+            byShard.computeIfAbsent(importer.shardOf(pending.entity), shard -> new ArrayList<>()).add(pending);
+        }
+        byShard.forEach((shard, rows) -> shardRouter.onShard(shard, () -> writeOnShard(importer, rows, progress)));
+    }
+
+    private <T> void writeOnShard(Importer<T> importer, List<PendingRow<T>> valid, Progress progress) {
+
+        try {
+            persist(importer, valid);
+            progress.imported += valid.size();
+            valid.forEach(pending -> importer.committed(pending.entity));
+            return;
+        } catch (DataAccessException | PersistenceException e) {
+            log.warn("Import batch failed, retrying row by row: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        }
+
+        for (PendingRow<T> pending : valid) {
+            importer.resetId(pending.entity);
+            try {
+                persist(importer, List.of(pending));
+                progress.imported++;
+                importer.committed(pending.entity);
+            } catch (DataAccessException | PersistenceException e) {
+                progress.reject(pending.line, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            }
+        }
+    }
+
+    private <T> void persist(Importer<T> importer, List<PendingRow<T>> rows) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (PendingRow<T> pending : rows) {
+                    importer.attach(pending.entity);
+                    entityManager.persist(pending.entity);
+                    importer.persisted(pending.entity);
+                }
+                entityManager.flush();
+            });
+        } finally {
+            entityManager.clear();
+        }
+    }
+
+    private static String required(Map<String, String> row, String column) {
+        String value = row.get(column);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing " + column);
+        }
+        return value.trim();
+    }
+
+    private interface Importer<T> {
+
+        T toEntity(Map<String, String> row);
+
+        // Rejects the rows that reference rows which do not exist, returning the rest
+        default List<PendingRow<T>> checkReferences(List<PendingRow<T>> batch, Progress progress) {
+            return batch;
+        }
+
+        // The shard the entity is written to, see ShardRouter
+        default int shardOf(T entity) {
+            return ShardRouter.HOME;
+        }
+
+        // Called inside the transaction, right before the entity is persisted
+        default void attach(T entity) {
+        }
+
+        // Called inside the transaction, right after the entity is persisted and has its id
+        default void persisted(T entity) {
+        }
+
+        // Called before a row of a failed batch is persisted again, since it was given an id the first time
+        void resetId(T entity);
+
+        default void committed(T entity) {
+        }
+    }
+
+    private class PatientImporter implements Importer<Patient> {
+
+        @Override
+        public Patient toEntity(Map<String, String> row) {
+
+            String password = row.get("password");
+            if (password != null && !password.isBlank() && !BCRYPT_HASH.matcher(password).matches()) {
+                password = passwordEncoder.encode(password);
+            }
+
+            Patient patient = new Patient(required(row, "fullName"), required(row, "email"), password);
+            patient.setDob(SlotSchedule.toDate(LocalDate.parse(required(row, "dob"))));
+            patient.setGender(required(row, "gender"));
+            patient.setPhoneNumber(required(row, "phoneNumber"));
+            patient.setSsn(Integer.parseInt(required(row, "ssn")));
+            return patient;
+        }
+
+        @Override
+        public void resetId(Patient patient) {
+            patient.setId(0);
+        }
+    }
+
+    private class AppointmentImporter implements Importer<Appointment> {
+
+        @Override
+        public Appointment toEntity(Map<String, String> row) {
+
+            String time = required(row, "appointmentTime");
+            if (SlotSchedule.slotOf(time) < 0) {
+                throw new IllegalArgumentException("Not an appointment time: " + time);
+            }
+
+            Appointment appointment = new Appointment();
+            appointment.setAppointmentDate(SlotSchedule.toDate(LocalDate.parse(required(row, "appointmentDate"))));
+            appointment.setAppointmentTime(time);
+            appointment.setAppointmentSpecialty(row.get("appointmentSpecialty"));
+
+            // Placeholders carrying only the id, their existence is checked for the whole batch at once
+            Doctor doctor = new Doctor();
+            doctor.setId(Integer.parseInt(required(row, "doctorId")));
+            Office office = new Office();
+            office.setId(Integer.parseInt(required(row, "officeId")));
+            Patient patient = new Patient();
+            patient.setId(Integer.parseInt(required(row, "patientId")));
+
+            appointment.setDoctor(doctor);
+            appointment.setOffice(office);
+            appointment.setPatient(patient);
+            return appointment;
+        }
+
+        @Override
+        public int shardOf(Appointment appointment) {
+            return shardRouter.shardOf(appointment.getOffice().getId());
+        }
+
+        @Override
+        public void attach(Appointment appointment) {
+            // Swaps the placeholders for references of the current persistence context, without loading the rows
+            appointment.setDoctor(entityManager.getReference(Doctor.class, appointment.getDoctor().getId()));
+            appointment.setOffice(entityManager.getReference(Office.class, appointment.getOffice().getId()));
+            appointment.setPatient(entityManager.getReference(Patient.class, appointment.getPatient().getId()));
+        }
+
+        @Override
+        public List<PendingRow<Appointment>> checkReferences(List<PendingRow<Appointment>> batch, Progress progress) {
+
+            Set<Integer> doctorIds = new HashSet<>();
+            Set<Integer> officeIds = new HashSet<>();
+            Set<Integer> patientIds = new HashSet<>();
+
+            for (PendingRow<Appointment> pending : batch) {
+                doctorIds.add(pending.entity.getDoctor().getId());
+                officeIds.add(pending.entity.getOffice().getId());
+                patientIds.add(pending.entity.getPatient().getId());
+            }
+
+            Set<Integer> doctors = doctorRepoI.findExistingIds(doctorIds);
+            Set<Integer> offices = officeRepoI.findExistingIds(officeIds);
+            Set<Integer> patients = patientRepoI.findExistingIds(patientIds);
+
+            List<PendingRow<Appointment>> valid = new ArrayList<>(batch.size());
+            for (PendingRow<Appointment> pending : batch) {
+                Appointment appointment = pending.entity;
+
+                if (!doctors.contains(appointment.getDoctor().getId())) {
+                    progress.reject(pending.line, "No such doctor: " + appointment.getDoctor().getId());
+                } else if (!offices.contains(appointment.getOffice().getId())) {
+                    progress.reject(pending.line, "No such office: " + appointment.getOffice().getId());
+                } else if (!patients.contains(appointment.getPatient().getId())) {
+                    progress.reject(pending.line, "No such patient: " + appointment.getPatient().getId());
+                } else {
+                    valid.add(pending);
+                }
+            }
+            return valid;
+        }
+
+        @Override
+        public void persisted(Appointment appointment) {
+            outboxService.record(OutboxEvent.Type.APPOINTMENT_BOOKED, AppointmentSlotDTO.of(appointment));
+        }
+
+        @Override
+        public void resetId(Appointment appointment) {
+            appointment.setId(0);
+        }
+
+        @Override
+        public void committed(Appointment appointment) {
+            AppointmentSlotDTO added = AppointmentSlotDTO.of(appointment);
+            projections.forEach(projection -> projection.appointmentAdded(added));
+        }
+    }
+
+    private static class PendingRow<T> {
+        final int line;
+        final T entity;
+
+        PendingRow(int line, T entity) {
+            this.line = line;
+            this.entity = entity;
+        }
+    }
+
+    private static class Progress {
+        long rowsRead;
+        long imported;
+        long rejected;
+        List<String> rejections = new ArrayList<>();
+
+        void reject(int line, String reason) {
+            rejected++;
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add("Line " + line + ": " + reason);
+            }
+        }
+    }
+}
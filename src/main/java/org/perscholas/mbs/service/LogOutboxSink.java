@@ -0,0 +1,24 @@
+package org.perscholas.mbs.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.models.OutboxEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Writes every appointment lifecycle event to the application log. Enabled unless "outbox.sink.log.enabled" is false.
+ */
+@Service
+@ConditionalOnProperty(name = "outbox.sink.log.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class LogOutboxSink implements OutboxSinkI {
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            log.info("Outbox event " + event.getId() + ": " + event.getType() + " " + event.getPayload());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.perscholas.mbs.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.ReminderDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Writes every appointment reminder to the application log. Enabled unless "reminders.notifier.log.enabled" is false.
+ */
+@Service
+@ConditionalOnProperty(name = "reminders.notifier.log.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class LogReminderNotifier implements ReminderNotifierI {
+
+    @Override
+    public void send(List<ReminderDTO> reminders) {
+        for (ReminderDTO reminder : reminders) {
+            log.info("Reminder for appointment " + reminder.getAppointmentId() + ": " + reminder.getPatientName() + " <"
+                    + reminder.getPatientEmail() + "> sees " + reminder.getDoctorName() + " at " + reminder.getOfficeName()
+                    + " on " + SlotSchedule.toLocalDate(reminder.getAppointmentDate()) + " " + reminder.getAppointmentTime());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.perscholas.mbs.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.ReminderDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Stands in for an SMTP server during development: every reminder is written as a ready to send e-mail message
+ * (an .eml file) into the pickup directory "reminders.notifier.mail-drop.path", where a mail client or a local relay can
+ * pick it up.
+ *
+ * Each message is written to a temporary file and then moved into place, so a reader never sees half a message. Files
+ * are named after the appointment, so a reminder sent twice replaces its earlier copy.
+ */
+@Service
+@ConditionalOnProperty(name = "reminders.notifier.mail-drop.path")
+@Slf4j
+public class MailDropReminderNotifier implements ReminderNotifierI {
+
+    private final Path directory;
+    private final String from;
+
+    @Autowired
+    public MailDropReminderNotifier(@Value("${reminders.notifier.mail-drop.path}") String directory,
+                                    @Value("${reminders.notifier.mail-drop.from:no-reply@medcare.local}") String from) {
+        this.directory = Path.of(directory);
+        this.from = from;
+    }
+
+    @Override
+    public void send(List<ReminderDTO> reminders) {
+
+        try {
+            Files.createDirectories(directory);
+
+            for (ReminderDTO reminder : reminders) {
+                Path message = directory.resolve("reminder-" + reminder.getAppointmentId() + ".eml");
+                Path temporary = Files.createTempFile(directory, "reminder-", ".tmp");
+                Files.writeString(temporary, message(reminder), StandardCharsets.UTF_8);
+                Files.move(temporary, message, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write reminders to " + directory, e);
+        }
+
+        log.debug("Dropped " + reminders.size() + " reminder messages into " + directory);
+    }
+
+    private String message(ReminderDTO reminder) {
+
+        String day = SlotSchedule.toLocalDate(reminder.getAppointmentDate()).toString();
+        String specialty = reminder.getAppointmentSpecialty() == null ? "appointment" : reminder.getAppointmentSpecialty() + " appointment";
+
+        return "From: " + from + "\r\n"
+                + "To: " + header(reminder.getPatientEmail()) + "\r\n"
+                + "Subject: Reminder: your appointment on " + day + " at " + reminder.getAppointmentTime() + "\r\n"
+                + "Date: " + DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now()) + "\r\n"
+                + "Message-ID: <reminder-" + reminder.getAppointmentId() + "@medcare.local>\r\n"
+                + "MIME-Version: 1.0\r\n"
+                + "Content-Type: text/plain; charset=UTF-8\r\n"
+                + "Content-Transfer-Encoding: 8bit\r\n"
+                + "\r\n"
+                + "Dear " + header(reminder.getPatientName()) + ",\r\n"
+                + "\r\n"
+                + "This is a reminder of your " + specialty + " with " + reminder.getDoctorName() + " at "
+                + reminder.getOfficeName() + " on " + day + " at " + reminder.getAppointmentTime() + ".\r\n"
+                + "\r\n"
+                + "If you cannot make it, please cancel your appointment so the slot can be given to another patient.\r\n";
+    }
+
+    // Patient data must not be able to add header lines
+    private static String header(String value) {
+        return value == null ? "" : value.replaceAll("[\\r\\n]+", " ");
+    }
+}
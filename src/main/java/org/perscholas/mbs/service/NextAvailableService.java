@@ -0,0 +1,143 @@
+package org.perscholas.mbs.service;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.AvailableSlotDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Finds the earliest free slots for a specialty across every doctor and office that offer it.
+ *
+ * Each doctor/office pair gets a FreeSlotCursor, which walks that pair's free slots in time order straight from the
+ * AvailabilityService bitmaps and only looks at the next day once the current one is used up. The cursors are merged
+ * with a priority queue keyed on their current slot (a k-way merge), so finding the first N slots costs
+ * O((k + N) log k) for k doctor/office pairs, no matter how far the horizon reaches. Nothing is read from the database.
+ *
+ * The doctor/office pairs offering the specialty come from the SpecialtyIndex. The search starts tomorrow, the earliest
+ * bookable date, and looks "availability.search.horizon-days" ahead.
+ */
+@Service
+@Slf4j
+public class NextAvailableService {
+
+    private static final Comparator<FreeSlotCursor> EARLIEST_FIRST = Comparator.comparingLong(FreeSlotCursor::position)
+            .thenComparingInt(cursor -> cursor.clinic.getDoctorId())
+            .thenComparingInt(cursor -> cursor.clinic.getOfficeId());
+
+    private final SpecialtyIndex specialtyIndex;
+    private final AvailabilityService availabilityService;
+    private final int horizonDays;
+
+    @Autowired
+    public NextAvailableService(SpecialtyIndex specialtyIndex, AvailabilityService availabilityService,
+                                @Value("${availability.search.horizon-days:90}") int horizonDays) {
+        this.specialtyIndex = specialtyIndex;
+        this.availabilityService = availabilityService;
+        this.horizonDays = horizonDays;
+    }
+
+    /**
+     * @return Up to limit free slots for the specialty, earliest first. Slots at the same time are ordered by doctor
+     *         and office id.
+     */
+    public List<AvailableSlotDTO> nextAvailable(String specialty, int limit) {
+
+        List<Clinic> clinics = new ArrayList<>();
+        for (SpecialtyIndex.Clinic office : specialtyIndex.clinics(specialty)) {
+            for (SpecialtyIndex.ClinicDoctor doctor : office.getDoctors()) {
+                clinics.add(new Clinic(doctor.getId(), doctor.getName(), office.getOfficeId(), office.getOfficeName()));
+            }
+        }
+
+        LocalDate first = LocalDate.now().plusDays(1);
+        long lastDay = first.plusDays(horizonDays - 1).toEpochDay();
+
+        PriorityQueue<FreeSlotCursor> queue = new PriorityQueue<>(Math.max(1, clinics.size()), EARLIEST_FIRST);
+        for (Clinic clinic : clinics) {
+            FreeSlotCursor cursor = new FreeSlotCursor(clinic, first.toEpochDay() - 1, lastDay);
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+
+        List<AvailableSlotDTO> slots = new ArrayList<>(limit);
+        while (slots.size() < limit && !queue.isEmpty()) {
+            FreeSlotCursor earliest = queue.poll();
+            slots.add(earliest.toSlot());
+
+            if (earliest.advance()) {
+                queue.add(earliest);
+            }
+        }
+
+        return slots;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private static class Clinic {
+        int doctorId;
+        String doctorName;
+        int officeId;
+        String officeName;
+    }
+
+    /**
+     * Lazily walks the free slots of one doctor/office pair in time order.
+     */
+    private class FreeSlotCursor {
+
+        final Clinic clinic;
+        final long lastDay;
+
+        long day;
+        long freeMask;  // Free slots of the current day not returned yet
+        int slot = -1;
+
+        FreeSlotCursor(Clinic clinic, long dayBeforeFirst, long lastDay) {
+            this.clinic = clinic;
+            this.lastDay = lastDay;
+            this.day = dayBeforeFirst;
+        }
+
+        /**
+         * Moves to the next free slot.
+         *
+         * @return false once the horizon has been passed.
+         */
+        boolean advance() {
+            while (freeMask == 0) {
+                if (++day > lastDay) {
+                    return false;
+                }
+                freeMask = ~availabilityService.bookedMask(clinic.getDoctorId(), clinic.getOfficeId(), LocalDate.ofEpochDay(day))
+                        & SlotSchedule.FULL_DAY_MASK;
+            }
+
+            slot = Long.numberOfTrailingZeros(freeMask);
+            freeMask &= freeMask - 1;
+            return true;
+        }
+
+        long position() {
+            return day * SlotSchedule.SLOTS_PER_DAY + slot;
+        }
+
+        AvailableSlotDTO toSlot() {
+            return new AvailableSlotDTO(clinic.getDoctorId(), clinic.getDoctorName(), clinic.getOfficeId(), clinic.getOfficeName(),
+                    LocalDate.ofEpochDay(day), SlotSchedule.timeOf(slot));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.perscholas.mbs.service;
+
+import java.util.Arrays;
+
+/**
+ * The appointments of one office on one day, ordered by slot and then doctor.
+ *
+ * Stored column-wise in parallel primitive arrays, a few dozen bytes per appointment. Instances are immutable: a
+ * booking or cancellation produces a new view with one entry added or removed, so readers never need a lock and
+ * never see a half updated day.
+ */
+public final class OfficeDayView {
+
+    static final OfficeDayView EMPTY = new OfficeDayView(new int[0], new byte[0], new int[0], new int[0], new String[0]);
+
+    private final int[] appointmentIds;
+    private final byte[] slots;
+    private final int[] doctorIds;
+    private final int[] patientIds;
+    private final String[] specialties;
+
+    private OfficeDayView(int[] appointmentIds, byte[] slots, int[] doctorIds, int[] patientIds, String[] specialties) {
+        this.appointmentIds = appointmentIds;
+        this.slots = slots;
+        this.doctorIds = doctorIds;
+        this.patientIds = patientIds;
+        this.specialties = specialties;
+    }
+
+    public int size() {
+        return appointmentIds.length;
+    }
+
+    public int appointmentId(int i) {
+        return appointmentIds[i];
+    }
+
+    public int slot(int i) {
+        return slots[i];
+    }
+
+    public int doctorId(int i) {
+        return doctorIds[i];
+    }
+
+    public int patientId(int i) {
+        return patientIds[i];
+    }
+
+    public String specialty(int i) {
+        return specialties[i];
+    }
+
+    /**
+     * @return A view that also holds the appointment, or this view if it already does.
+     */
+    OfficeDayView with(int appointmentId, int slot, int doctorId, int patientId, String specialty) {
+
+        if (indexOf(appointmentId) >= 0) {
+            return this;
+        }
+
+        int at = 0;
+        while (at < slots.length && (slots[at] < slot || (slots[at] == slot && doctorIds[at] <= doctorId))) {
+            at++;
+        }
+
+        return new OfficeDayView(insert(appointmentIds, at, appointmentId), insert(slots, at, (byte) slot),
+                insert(doctorIds, at, doctorId), insert(patientIds, at, patientId),
+                insert(specialties, at, specialty == null ? null : specialty.intern()));
+    }
+
+    /**
+     * @return A view without the appointment, or this view if it does not hold it.
+     */
+    OfficeDayView without(int appointmentId) {
+
+        int at = indexOf(appointmentId);
+        if (at < 0) {
+            return this;
+        }
+
+        return new OfficeDayView(remove(appointmentIds, at), remove(slots, at), remove(doctorIds, at),
+                remove(patientIds, at), remove(specialties, at));
+    }
+
+    private int indexOf(int appointmentId) {
+        for (int i = 0; i < appointmentIds.length; i++) {
+            if (appointmentIds[i] == appointmentId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] insert(int[] values, int at, int value) {
+        int[] copy = new int[values.length + 1];
+        System.arraycopy(values, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(values, at, copy, at + 1, values.length - at);
+        return copy;
+    }
+
+    private static byte[] insert(byte[] values, int at, byte value) {
+        byte[] copy = new byte[values.length + 1];
+        System.arraycopy(values, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(values, at, copy, at + 1, values.length - at);
+        return copy;
+    }
+
+    private static String[] insert(String[] values, int at, String value) {
+        String[] copy = new String[values.length + 1];
+        System.arraycopy(values, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(values, at, copy, at + 1, values.length - at);
+        return copy;
+    }
+
+    private static int[] remove(int[] values, int at) {
+        int[] copy = Arrays.copyOf(values, values.length - 1);
+        System.arraycopy(values, at + 1, copy, at, values.length - at - 1);
+        return copy;
+    }
+
+    private static byte[] remove(byte[] values, int at) {
+        byte[] copy = Arrays.copyOf(values, values.length - 1);
+        System.arraycopy(values, at + 1, copy, at, values.length - at - 1);
+        return copy;
+    }
+
+    private static String[] remove(String[] values, int at) {
+        String[] copy = Arrays.copyOf(values, values.length - 1);
+        System.arraycopy(values, at + 1, copy, at, values.length - at - 1);
+        return copy;
+    }
+}
@@ -0,0 +1,252 @@
+package org.perscholas.mbs.service;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable k-d tree of office locations, answering "the k nearest offices offering a specialty".
+ *
+ * Locations are stored as points on the unit sphere (x, y, z) rather than latitude and longitude, so distances are
+ * plain Euclidean chords with no special cases at the poles or the date line, and ordering by chord is ordering by
+ * great-circle distance. The tree is balanced and laid out implicitly in arrays: the node of a range [lo, hi) is at its
+ * middle, splitting on x, y and z in turn.
+ *
+ * Every node also holds the union of the specialty masks (see Doctor.specialtyMask) of its subtree, so a search skips
+ * whole subtrees where nobody practices the specialty. A search visits O(log n + k) nodes for evenly spread offices.
+ */
+public class OfficeKdTree {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final int AXES = 3;
+
+    private final int[] officeIds;
+    private final double[][] points;  // [axis][node]
+    private final long[] masks;
+    private final long[] subtreeMasks;
+
+    /**
+     * @param masks The union of the specialty masks of each office's doctors.
+     */
+    public OfficeKdTree(int[] officeIds, double[] latitudes, double[] longitudes, long[] masks) {
+
+        int size = officeIds.length;
+        double[][] unit = new double[AXES][size];
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            double lat = Math.toRadians(latitudes[i]);
+            double lon = Math.toRadians(longitudes[i]);
+            unit[0][i] = Math.cos(lat) * Math.cos(lon);
+            unit[1][i] = Math.cos(lat) * Math.sin(lon);
+            unit[2][i] = Math.sin(lat);
+            order[i] = i;
+        }
+
+        arrange(order, unit, 0, size, 0);
+
+        this.officeIds = new int[size];
+        this.points = new double[AXES][size];
+        this.masks = new long[size];
+        for (int node = 0; node < size; node++) {
+            int office = order[node];
+            this.officeIds[node] = officeIds[office];
+            this.masks[node] = masks[office];
+            for (int axis = 0; axis < AXES; axis++) {
+                this.points[axis][node] = unit[axis][office];
+            }
+        }
+
+        this.subtreeMasks = new long[size];
+        unionMasks(0, size);
+    }
+
+    public int size() {
+        return officeIds.length;
+    }
+
+    /**
+     * @param specialtyBit Only offices whose mask has one of these bits set are returned, -1 for any office, even one
+     *                     with an empty mask.
+     * @return Up to k offices, nearest first.
+     */
+    public List<Nearest> nearest(double latitude, double longitude, long specialtyBit, int k) {
+
+        if (k <= 0 || size() == 0) {
+            return List.of();
+        }
+
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        double[] query = {Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat)};
+
+        Candidates candidates = new Candidates(Math.min(k, size()));
+        search(0, size(), 0, query, specialtyBit, candidates);
+
+        List<Nearest> nearest = new ArrayList<>(candidates.size);
+        for (int i : candidates.sorted()) {
+            double chord = Math.sqrt(candidates.distances[i]);
+            nearest.add(new Nearest(officeIds[candidates.nodes[i]], 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, chord / 2))));
+        }
+        return nearest;
+    }
+
+    private void search(int lo, int hi, int depth, double[] query, long specialtyBit, Candidates candidates) {
+
+        if (lo >= hi) {
+            return;
+        }
+        int node = (lo + hi) >>> 1;
+        boolean anyOffice = specialtyBit == -1L;
+        if (!anyOffice && (subtreeMasks[node] & specialtyBit) == 0) {
+            return;  // nobody in this subtree practices the specialty
+        }
+
+        if (anyOffice || (masks[node] & specialtyBit) != 0) {
+            double distance = 0;
+            for (int axis = 0; axis < AXES; axis++) {
+                double d = query[axis] - points[axis][node];
+                distance += d * d;
+            }
+            candidates.offer(node, distance);
+        }
+
+        int axis = depth % AXES;
+        double split = query[axis] - points[axis][node];
+        if (split < 0) {
+            search(lo, node, depth + 1, query, specialtyBit, candidates);
+            if (!candidates.full() || split * split < candidates.worst()) {
+                search(node + 1, hi, depth + 1, query, specialtyBit, candidates);
+            }
+        } else {
+            search(node + 1, hi, depth + 1, query, specialtyBit, candidates);
+            if (!candidates.full() || split * split < candidates.worst()) {
+                search(lo, node, depth + 1, query, specialtyBit, candidates);
+            }
+        }
+    }
+
+    // Puts the median of every range at its middle, smaller coordinates of the range's axis before it
+    private static void arrange(int[] order, double[][] unit, int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(order, unit[depth % AXES], lo, hi - 1, mid);
+        arrange(order, unit, lo, mid, depth + 1);
+        arrange(order, unit, mid + 1, hi, depth + 1);
+    }
+
+    // Quickselect of order[lo..hi] by coordinate, so order[nth] ends up where it would be if sorted
+    private static void select(int[] order, double[] coordinate, int lo, int hi, int nth) {
+        while (lo < hi) {
+            double pivot = coordinate[order[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coordinate[order[i]] < pivot) {
+                    i++;
+                }
+                while (coordinate[order[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            if (nth <= j) {
+                hi = j;
+            } else if (nth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private long unionMasks(int lo, int hi) {
+        if (lo >= hi) {
+            return 0;
+        }
+        int node = (lo + hi) >>> 1;
+        subtreeMasks[node] = masks[node] | unionMasks(lo, node) | unionMasks(node + 1, hi);
+        return subtreeMasks[node];
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    public static class Nearest {
+        int officeId;
+        double distanceKm;
+    }
+
+    // The k best nodes so far, as a max-heap on distance so the worst one is replaced first
+    private static final class Candidates {
+
+        final int[] nodes;
+        final double[] distances;
+        int size;
+
+        Candidates(int k) {
+            nodes = new int[k];
+            distances = new double[k];
+        }
+
+        boolean full() {
+            return size == nodes.length;
+        }
+
+        double worst() {
+            return distances[0];
+        }
+
+        void offer(int node, double distance) {
+            if (!full()) {
+                int i = size++;
+                while (i > 0 && distances[(i - 1) / 2] < distance) {
+                    nodes[i] = nodes[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                nodes[i] = node;
+                distances[i] = distance;
+            } else if (distance < distances[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && distances[child + 1] > distances[child]) {
+                        child++;
+                    }
+                    if (distances[child] <= distance) {
+                        break;
+                    }
+                    nodes[i] = nodes[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+                nodes[i] = node;
+                distances[i] = distance;
+            }
+        }
+
+        // Heap positions ordered by distance, nearest first
+        List<Integer> sorted() {
+            List<Integer> positions = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                positions.add(i);
+            }
+            positions.sort((a, b) -> Double.compare(distances[a], distances[b]));
+            return positions;
+        }
+    }
+}
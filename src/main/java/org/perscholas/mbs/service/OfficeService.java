@@ -8,15 +8,11 @@ import org.perscholas.mbs.dao.DoctorRepoI;
 import org.perscholas.mbs.dao.OfficeRepoI;
 import org.perscholas.mbs.dto.OfficeDTO;
 import org.perscholas.mbs.dto.PatientDTO;
-import org.perscholas.mbs.models.Doctor;
 import org.perscholas.mbs.models.Office;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
@@ -42,53 +38,11 @@ public class OfficeService {
         return offices;
     }
 
-
-    public List<Office> filterOfficesWithSpecialty(List<Office> allOffices, List<Doctor> specialtyDoctors, String selectedSpecialty){
-
-        List<Office> specialtyOffices = new ArrayList<>();
-
-        for(int i = 0; i < allOffices.toArray().length; i++) {
-            System.out.println("Office: " + allOffices.get(i).getId());
-            System.out.println("Doctors in this office: " + allOffices.get(i).getDoctors());
-            System.out.println("User Selected Specialty: " + selectedSpecialty);
-            System.out.println("specialtyDoctors: " + specialtyDoctors);
-            System.out.println("Similar: " + allOffices.get(i).getDoctors().stream().filter(specialtyDoctors::contains).collect(Collectors.toList()));
-
-            if (allOffices.get(i).getDoctors().stream().filter(specialtyDoctors::contains).collect(Collectors.toList()).isEmpty()) {
-                System.out.println("false, lists are not similar");
-            }
-            else {
-                System.out.println("true, lists are similar");
-                specialtyOffices.add(allOffices.get(i));
-            }
-            System.out.println();
-        }
-
-        /*
-        for(int i = 0; i < allOffices.toArray().length; i++) {
-
-            System.out.println(allOffices.get(i).getDoctors());
-            Set<Doctor> officeDoctors = allOffices.get(i).getDoctors();
-
-            for(int j = 0; j < specialtyDoctors.toArray().length; j++) {
-                if (officeDoctors.contains(specialtyDoctors.get(j))) {
-
-                    specialtyOffices.add(allOffices.get(i));
-                    break;
-
-                }
-            }
-        }*/
-
-        return specialtyOffices;
-    }
-
+    /**
+     * @return The id and name of every office, read as OfficeDTO rows in a single query.
+     */
     public List<OfficeDTO> getOfficeEssentialInfo() {
-
-        return officeRepoI.findAll().stream().map((oneOffice) -> {
-            return new OfficeDTO(oneOffice.getId(), oneOffice.getName());
-        }).collect(Collectors.toList());
-
+        return officeRepoI.findEssentialInfo();
     }
 
 
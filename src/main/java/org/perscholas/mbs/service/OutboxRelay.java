@@ -0,0 +1,92 @@
+package org.perscholas.mbs.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.OutboxRepoI;
+import org.perscholas.mbs.models.OutboxEvent;
+import org.perscholas.mbs.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Delivers the events of the Outbox table to every OutboxSinkI, in the order they were recorded.
+ *
+ * Runs on the scheduler thread, so the requests that record events never wait for a sink. Each batch is locked, handed
+ * to the sinks and marked as published in one transaction; if a sink throws, the transaction rolls back and the same
+ * batch is tried again on the next run, which gives at-least-once delivery. Published events are kept for
+ * "outbox.retention-days" and then purged.
+ *
+ * With sharding enabled the events are recorded on the shard of the appointment's office. Each shard is relayed in
+ * turn, so the order holds per shard, and a failing shard does not hold back the others.
+ */
+@Service
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxRepoI outboxRepoI;
+    private final List<OutboxSinkI> sinks;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration retention;
+
+    @Autowired
+    public OutboxRelay(OutboxRepoI outboxRepoI, List<OutboxSinkI> sinks, ShardRouter shardRouter, PlatformTransactionManager transactionManager,
+                       @Value("${outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${outbox.retention-days:7}") int retentionDays) {
+        this.outboxRepoI = outboxRepoI;
+        this.sinks = sinks;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.retention = Duration.ofDays(retentionDays);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:1000}")
+    public void relay() {
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            try {
+                shardRouter.onShard(shard, () -> {
+                    Integer delivered;
+                    do {
+                        delivered = transactionTemplate.execute(status -> deliverBatch());
+                    } while (delivered != null && delivered == batchSize);
+                });
+            } catch (RuntimeException e) {
+                log.error("Outbox relay of shard " + shard + " failed, retrying on the next run", e);
+            }
+        }
+    }
+
+    @Scheduled(cron = "${outbox.purge-cron:0 30 0 * * *}")
+    public void purgePublished() {
+        shardRouter.inEveryShard(() -> {
+            int purged = outboxRepoI.deletePublishedBefore(new Date(System.currentTimeMillis() - retention.toMillis()));
+            log.debug("Purged " + purged + " published outbox events");
+        });
+    }
+
+    private int deliverBatch() {
+
+        List<OutboxEvent> batch = outboxRepoI.findUnpublished(PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        for (OutboxSinkI sink : sinks) {
+            sink.publish(batch);
+        }
+
+        outboxRepoI.markPublished(batch.stream().map(OutboxEvent::getId).toList(), new Date());
+        log.debug("Relayed " + batch.size() + " outbox events to " + sinks.size() + " sinks");
+        return batch.size();
+    }
+}
@@ -0,0 +1,48 @@
+package org.perscholas.mbs.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.transaction.Transactional;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.OutboxRepoI;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.perscholas.mbs.models.OutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Writes appointment lifecycle events to the Outbox table.
+ *
+ * Events must be recorded inside the transaction that changes the appointment, so an event exists if and only if the
+ * change was committed. Nothing is sent from here; the OutboxRelay delivers the events afterwards, off the request path.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class OutboxService {
+
+    OutboxRepoI outboxRepoI;
+    ObjectMapper objectMapper;
+
+    @Autowired
+    public OutboxService(OutboxRepoI outboxRepoI, ObjectMapper objectMapper) {
+        this.outboxRepoI = outboxRepoI;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(value = Transactional.TxType.MANDATORY, rollbackOn = Exception.class)
+    public void record(OutboxEvent.Type type, AppointmentSlotDTO appointment) {
+
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(appointment);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize appointment " + appointment.getId(), e);
+        }
+
+        outboxRepoI.save(new OutboxEvent(type, appointment.getId(), payload));
+        log.debug("Recorded " + type + " for appointment " + appointment.getId());
+    }
+}
@@ -0,0 +1,20 @@
+package org.perscholas.mbs.service;
+
+import org.perscholas.mbs.models.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * A destination for appointment lifecycle events, fed by the OutboxRelay.
+ *
+ * Delivery is at least once: a batch is marked as published only after every sink has returned, so an exception (or a
+ * crash) makes the relay offer the same events again later. Sinks should therefore tolerate duplicates, using the
+ * event id to recognize them.
+ */
+public interface OutboxSinkI {
+
+    /**
+     * @param events A batch of events in the order they were recorded.
+     */
+    void publish(List<OutboxEvent> events);
+}
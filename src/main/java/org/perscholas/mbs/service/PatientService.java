@@ -4,13 +4,16 @@ import jakarta.transaction.Transactional;
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
 import org.perscholas.mbs.dao.PatientRepoI;
 import org.perscholas.mbs.dto.PatientDTO;
 import org.perscholas.mbs.models.Patient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 @Service
@@ -44,4 +47,18 @@ public class PatientService {
         }).collect(Collectors.toList());
 
     }
+
+    /**
+     * @return Whether the exception is a violation of the unique email key, rather than of any other constraint.
+     */
+    public static boolean violatesEmailKeyConstraint(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                // Databases report the name with their own case and qualifiers, e.g. "patients.uk_patient_email_key"
+                String name = violation.getConstraintName();
+                return name != null && name.toLowerCase(Locale.ROOT).contains(Patient.EMAIL_KEY_CONSTRAINT);
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,64 @@
+package org.perscholas.mbs.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.perscholas.mbs.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Fills every AppointmentProjectionI from the Appointments table once the application is ready.
+ *
+ * The table is read exactly once, as a stream of AppointmentSlotDTO rows, and each row is handed to all projections,
+ * so adding another in-memory model does not add another scan at startup. With sharding enabled the shards are read
+ * one after the other, each in its own transaction, on the same thread.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class ProjectionRebuilder {
+
+    AppointmentRepoI appointmentRepoI;
+    List<AppointmentProjectionI> projections;
+    ShardRouter shardRouter;
+
+    @Autowired
+    public ProjectionRebuilder(AppointmentRepoI appointmentRepoI, List<AppointmentProjectionI> projections, ShardRouter shardRouter) {
+        this.appointmentRepoI = appointmentRepoI;
+        this.projections = projections;
+        this.shardRouter = shardRouter;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+
+        long start = System.currentTimeMillis();
+        projections.forEach(AppointmentProjectionI::rebuildStarted);
+
+        AtomicInteger rows = new AtomicInteger();
+        shardRouter.inEveryShard(() -> {
+            try (Stream<AppointmentSlotDTO> slots = appointmentRepoI.streamAllSlots()) {
+                for (AppointmentSlotDTO appointment : (Iterable<AppointmentSlotDTO>) slots::iterator) {
+                    for (AppointmentProjectionI projection : projections) {
+                        projection.appointmentAdded(appointment);
+                    }
+                    rows.incrementAndGet();
+                }
+            }
+        });
+
+        projections.forEach(AppointmentProjectionI::rebuildFinished);
+
+        log.info("Rebuilt " + projections.size() + " appointment projections from " + rows + " appointments in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -0,0 +1,103 @@
+package org.perscholas.mbs.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.ReferenceDataChangedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the in-memory snapshots built from doctors, offices and specialties up to date, such as the autocomplete index
+ * and the nearest clinic search.
+ *
+ * Each snapshot is immutable and swapped in as a whole, so a reader sees either the old or the new one, never a mix.
+ * All snapshots are built once the application is ready. A committed ReferenceDataChangedEvent (see
+ * ReferenceDataListener) marks them stale, and they are rebuilt within "reference-data.check-ms". A snapshot given a
+ * maximum age is also rebuilt once it is that old, for changes JPA does not report.
+ */
+@Component
+@Slf4j
+public class ReferenceDataSnapshots {
+
+    private final List<Snapshot<?>> snapshots = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param name    Names the snapshot in the log.
+     * @param empty   Served until the first build.
+     * @param builder Reads the reference data and returns a new snapshot.
+     */
+    public <T> Snapshot<T> register(String name, T empty, Supplier<T> builder) {
+        return register(name, empty, builder, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxAgeMillis The snapshot is rebuilt at least this often.
+     */
+    public <T> Snapshot<T> register(String name, T empty, Supplier<T> builder, long maxAgeMillis) {
+        Snapshot<T> snapshot = new Snapshot<>(name, empty, builder, maxAgeMillis);
+        snapshots.add(snapshot);
+        return snapshot;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAll() {
+        snapshots.forEach(Snapshot::rebuild);
+    }
+
+    @Scheduled(fixedDelayString = "${reference-data.check-ms:1000}", initialDelayString = "${reference-data.check-ms:1000}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        for (Snapshot<?> snapshot : snapshots) {
+            if (snapshot.stale || now - snapshot.builtAt >= snapshot.maxAgeMillis) {
+                snapshot.rebuild();
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void referenceDataChanged(ReferenceDataChangedEvent event) {
+        snapshots.forEach(snapshot -> snapshot.stale = true);
+    }
+
+    public static final class Snapshot<T> {
+
+        private final String name;
+        private final Supplier<T> builder;
+        private final long maxAgeMillis;
+
+        private volatile T value;
+        private volatile boolean stale;
+        private volatile long builtAt;
+
+        private Snapshot(String name, T empty, Supplier<T> builder, long maxAgeMillis) {
+            this.name = name;
+            this.value = empty;
+            this.builder = builder;
+            this.maxAgeMillis = maxAgeMillis;
+        }
+
+        /**
+         * @return The latest snapshot built.
+         */
+        public T get() {
+            return value;
+        }
+
+        public synchronized void rebuild() {
+
+            long start = System.currentTimeMillis();
+            stale = false;  // changes from now on need another rebuild
+
+            value = builder.get();
+            builtAt = System.currentTimeMillis();
+
+            log.debug(name + " rebuilt in " + (builtAt - start) + " ms");
+        }
+    }
+}
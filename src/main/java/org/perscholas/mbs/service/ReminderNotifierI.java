@@ -0,0 +1,19 @@
+package org.perscholas.mbs.service;
+
+import org.perscholas.mbs.dto.ReminderDTO;
+
+import java.util.List;
+
+/**
+ * A channel that reminds patients of their upcoming appointments, fed in batches by the ReminderScheduler.
+ *
+ * Delivery is at most once: a batch is not offered again if a notifier throws, and reminders that fall due while the
+ * application is down are not sent after the restart.
+ */
+public interface ReminderNotifierI {
+
+    /**
+     * @param reminders The appointments falling due together, none of them cancelled at the time of the call.
+     */
+    void send(List<ReminderDTO> reminders);
+}
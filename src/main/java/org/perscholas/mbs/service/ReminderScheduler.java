@@ -0,0 +1,197 @@
+package org.perscholas.mbs.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.perscholas.mbs.dto.ReminderDTO;
+import org.perscholas.mbs.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a reminder "reminders.lead-hours" before every upcoming appointment, through every ReminderNotifierI.
+ *
+ * Pending reminders are kept in a TimingWheel keyed by appointment id, which holds millions of them in a few arrays.
+ * The wheel belongs to a single ticker thread. As an AppointmentProjectionI this service only puts a command on a
+ * lock-free queue for each booking and cancellation, so the booking request never waits for the ticker, and the
+ * ticker applies the commands before every tick. The wheel is filled by the ProjectionRebuilder's single pass over the
+ * Appointments table at startup.
+ *
+ * Reminders falling due in the same tick are looked up in one query (one per shard) and handed to the notifiers in
+ * batches of "reminders.batch-size", on a separate thread so a slow notifier cannot hold back the clock. An appointment
+ * booked inside the lead time is reminded right away. After a restart, reminders that were already due are not sent
+ * again.
+ */
+@Service
+@Slf4j
+public class ReminderScheduler implements AppointmentProjectionI {
+
+    private static final long CANCEL = -1;
+    private static final long CLEAR = -2;
+
+    private final AppointmentRepoI appointmentRepoI;
+    private final List<ReminderNotifierI> notifiers;
+    private final ShardRouter shardRouter;
+    private final long leadMillis;
+    private final long tickMillis;
+    private final int batchSize;
+
+    private final long origin = System.currentTimeMillis();  // Ticks are counted from here, so they fit the wheel
+    private final TimingWheel wheel = new TimingWheel(0);
+    private final Queue<Command> commands = new ConcurrentLinkedQueue<>();
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(DaemonThreads.named("reminder-ticker"));
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(DaemonThreads.named("reminder-dispatch"));
+
+    private volatile Thread rebuildThread;
+    private volatile int pending;
+
+    @Autowired
+    public ReminderScheduler(AppointmentRepoI appointmentRepoI, List<ReminderNotifierI> notifiers, ShardRouter shardRouter,
+                             @Value("${reminders.lead-hours:24}") long leadHours,
+                             @Value("${reminders.tick-ms:1000}") long tickMillis,
+                             @Value("${reminders.batch-size:200}") int batchSize,
+                             MeterRegistry meterRegistry) {
+        this.appointmentRepoI = appointmentRepoI;
+        this.notifiers = notifiers;
+        this.shardRouter = shardRouter;
+        this.leadMillis = TimeUnit.HOURS.toMillis(leadHours);
+        this.tickMillis = tickMillis;
+        this.batchSize = batchSize;
+
+        Gauge.builder("reminders.pending", this, ReminderScheduler::pending)
+                .description("Appointment reminders waiting to be sent")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+        dispatcher.shutdown();
+    }
+
+    public int pending() {
+        return pending;
+    }
+
+    @Override
+    public void rebuildStarted() {
+        rebuildThread = Thread.currentThread();
+        commands.offer(new Command(0, CLEAR));
+    }
+
+    @Override
+    public void rebuildFinished() {
+        rebuildThread = null;
+    }
+
+    @Override
+    public void appointmentAdded(AppointmentSlotDTO appointment) {
+
+        int slot = SlotSchedule.slotOf(appointment.getAppointmentTime());
+        if (slot < 0) {
+            return;
+        }
+
+        long startsAt = SlotSchedule.toLocalDate(appointment.getAppointmentDate()).atTime(SlotSchedule.DAY_START)
+                .plusMinutes((long) slot * SlotSchedule.SLOT_MINUTES)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long now = System.currentTimeMillis();
+        long due = startsAt - leadMillis;
+
+        if (startsAt <= now || (due <= now && Thread.currentThread() == rebuildThread)) {
+            return;  // over, or reminded before the restart
+        }
+
+        commands.offer(new Command(appointment.getId(), tickOf(due)));
+    }
+
+    @Override
+    public void appointmentRemoved(AppointmentSlotDTO appointment) {
+        commands.offer(new Command(appointment.getId(), CANCEL));
+    }
+
+    private void tick() {
+
+        // An exception would stop the ticker for good
+        try {
+            Command command;
+            while ((command = commands.poll()) != null) {
+                if (command.getDue() == CLEAR) {
+                    wheel.clear();
+                } else if (command.getDue() == CANCEL) {
+                    wheel.cancel(command.getAppointmentId());
+                } else {
+                    wheel.schedule(command.getAppointmentId(), command.getDue());
+                }
+            }
+
+            List<Integer> due = new ArrayList<>();
+            wheel.advanceTo(tickOf(System.currentTimeMillis()), due::add);
+            pending = wheel.pending();
+
+            for (int from = 0; from < due.size(); from += batchSize) {
+                List<Integer> batch = new ArrayList<>(due.subList(from, Math.min(from + batchSize, due.size())));
+                dispatcher.execute(() -> deliver(batch));
+            }
+        } catch (RuntimeException e) {
+            log.error("Reminder tick failed", e);
+        }
+    }
+
+    private void deliver(List<Integer> appointmentIds) {
+
+        List<ReminderDTO> reminders;
+        try {
+            reminders = shardRouter.fanOut(() -> appointmentRepoI.findReminders(appointmentIds)).stream().flatMap(List::stream).toList();
+        } catch (RuntimeException e) {
+            log.error("Cannot load " + appointmentIds.size() + " appointment reminders", e);
+            return;
+        }
+
+        for (ReminderNotifierI notifier : notifiers) {
+            try {
+                notifier.send(reminders);
+            } catch (RuntimeException e) {
+                log.error(notifier.getClass().getSimpleName() + " failed to send " + reminders.size() + " reminders", e);
+            }
+        }
+    }
+
+    // Rounds up, so a reminder is never sent early
+    private long tickOf(long millis) {
+        return Math.max(0, (millis - origin + tickMillis - 1) / tickMillis);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private static class Command {
+        int appointmentId;
+        long due;  // A tick, CANCEL or CLEAR
+    }
+}
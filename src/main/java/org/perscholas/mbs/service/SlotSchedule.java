@@ -0,0 +1,74 @@
+package org.perscholas.mbs.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+/**
+ * Describes the bookable day shared by every doctor and office.
+ *
+ * A day is split into fixed length slots starting at DAY_START. Slots are addressed by their index so that a whole
+ * day fits into the bits of a single long, which is what the AvailabilityService stores per doctor, office and day.
+ * Appointment times are still stored as "HH:mm" strings on the Appointment entity, this class converts between the two.
+ */
+public final class SlotSchedule {
+
+    public static final LocalTime DAY_START = LocalTime.of(8, 0);
+    public static final int SLOT_MINUTES = 30;
+    public static final int SLOTS_PER_DAY = 20;  // 08:00 - 18:00, must stay <= 64 to fit in a long bitmap
+    public static final long FULL_DAY_MASK = (1L << SLOTS_PER_DAY) - 1;
+
+    private SlotSchedule() {
+    }
+
+    /**
+     * Converts an "HH:mm" appointment time into its slot index.
+     *
+     * @param time The appointment time, as submitted by the booking form or stored on an Appointment.
+     * @return The slot index, or -1 if the time is blank, malformed or does not start a slot.
+     */
+    public static int slotOf(String time) {
+
+        if (time == null || time.isBlank()) {
+            return -1;
+        }
+
+        LocalTime parsed;
+        try {
+            parsed = LocalTime.parse(time.trim());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+
+        int minutes = (parsed.toSecondOfDay() - DAY_START.toSecondOfDay()) / 60;
+        if (minutes < 0 || minutes % SLOT_MINUTES != 0 || parsed.getSecond() != 0) {
+            return -1;
+        }
+
+        int slot = minutes / SLOT_MINUTES;
+        return slot < SLOTS_PER_DAY ? slot : -1;
+    }
+
+    /**
+     * Converts a slot index back into the "HH:mm" string stored on Appointment.
+     */
+    public static String timeOf(int slot) {
+        return DAY_START.plusMinutes((long) slot * SLOT_MINUTES).toString();
+    }
+
+    public static boolean isValidSlot(int slot) {
+        return slot >= 0 && slot < SLOTS_PER_DAY;
+    }
+
+    // java.sql.Date does not support toInstant(), so go through the epoch millis instead.
+    public static LocalDate toLocalDate(Date date) {
+        return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    public static Date toDate(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,171 @@
+package org.perscholas.mbs.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.DoctorRepoI;
+import org.perscholas.mbs.dto.ClinicRowDTO;
+import org.perscholas.mbs.dto.ReferenceDataChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An in-memory index from specialty to the offices offering it, and in each office to the doctors practicing it.
+ *
+ * The whole index is an immutable snapshot behind a volatile field. Looking up a specialty is a single map lookup, and
+ * a rebuild reads one row per doctor/office pair (with the doctor's specialties as a bitmask, decoded by the
+ * SpecialtyRegistry) and then swaps in the new snapshot, so readers see either the old or the new index,
+ * never a mix. Rebuilds follow every committed ReferenceDataChangedEvent (see ReferenceDataListener); bursts of changes
+ * are coalesced into one rebuild on a background thread. JPA does not report changes that only touch the
+ * Doctor_Offices join table, so the index is also rebuilt every "specialty-index.refresh-ms".
+ *
+ * The select clinic page reads the index through the "selectClinic" cache (see DoctorService.clinicsWithSpecialty),
+ * which only adds hit and miss statistics. It is cleared whenever a new snapshot is swapped in; a lookup racing the
+ * swap can put back a result of the old snapshot, which lasts until the next rebuild at the latest.
+ */
+@Service
+@Slf4j
+public class SpecialtyIndex {
+
+    public static final String CACHE = "selectClinic";
+
+    private final DoctorRepoI doctorRepoI;
+    private final SpecialtyRegistry specialtyRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(DaemonThreads.named("specialty-index"));
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    private volatile Map<String, List<Clinic>> clinicsBySpecialty = Map.of();
+
+    @Autowired
+    public SpecialtyIndex(DoctorRepoI doctorRepoI, SpecialtyRegistry specialtyRegistry, PlatformTransactionManager transactionManager,
+                          CacheManager cacheManager) {
+        this.doctorRepoI = doctorRepoI;
+        this.specialtyRegistry = specialtyRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * @return The offices offering the specialty with their doctors practicing it, both ordered by id. Empty for an
+     *         unknown specialty.
+     */
+    public List<Clinic> clinics(String specialty) {
+        return clinicsBySpecialty.getOrDefault(specialty, List.of());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${specialty-index.refresh-ms:60000}", initialDelayString = "${specialty-index.refresh-ms:60000}")
+    public synchronized void rebuild() {
+
+        long start = System.currentTimeMillis();
+        Map<String, List<Clinic>> index = transactionTemplate.execute(status -> build());
+        clinicsBySpecialty = index == null ? Map.of() : index;
+
+        Cache cache = cacheManager.getCache(CACHE);
+        if (cache != null) {
+            cache.clear();
+        }
+
+        log.debug("Specialty index rebuilt with " + clinicsBySpecialty.size() + " specialties in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void referenceDataChanged(ReferenceDataChangedEvent event) {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildPending.set(false);  // changes from now on need another rebuild
+                rebuild();
+            });
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        rebuilder.shutdownNow();
+    }
+
+    private Map<String, List<Clinic>> build() {
+
+        // Specialty -> office id -> clinic under construction, sorted so the snapshot lists offices by id
+        Map<String, Map<Integer, ClinicBuilder>> building = new HashMap<>();
+
+        for (ClinicRowDTO row : doctorRepoI.findAllClinicRows()) {
+            List<String> specialties = specialtyRegistry.namesOf(row.getSpecialtyMask());
+            ClinicDoctor doctor = new ClinicDoctor(row.getDoctorId(), row.getDoctorName(), specialties);
+
+            for (String specialty : specialties) {
+                building.computeIfAbsent(specialty, key -> new TreeMap<>())
+                        .computeIfAbsent(row.getOfficeId(), id -> new ClinicBuilder(row.getOfficeId(), row.getOfficeName()))
+                        .doctors.add(doctor);
+            }
+        }
+
+        Map<String, List<Clinic>> index = new HashMap<>();
+        building.forEach((specialty, offices) ->
+                index.put(specialty, offices.values().stream().map(ClinicBuilder::build).toList()));
+        return Map.copyOf(index);
+    }
+
+    /**
+     * One office offering a specialty, with the doctors practicing it there.
+     */
+    @Getter
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    public static class Clinic {
+        int officeId;
+        String officeName;
+        List<ClinicDoctor> doctors;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    public static class ClinicDoctor {
+        int id;
+        String name;
+        List<String> specialties;
+    }
+
+    private static class ClinicBuilder {
+
+        final int officeId;
+        final String officeName;
+        final List<ClinicDoctor> doctors = new ArrayList<>();
+
+        ClinicBuilder(int officeId, String officeName) {
+            this.officeId = officeId;
+            this.officeName = officeName;
+        }
+
+        Clinic build() {
+            doctors.sort(Comparator.comparingInt(ClinicDoctor::getId));
+            return new Clinic(officeId, officeName, List.copyOf(doctors));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.perscholas.mbs.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.SpecialtyRepoI;
+import org.perscholas.mbs.dto.ReferenceDataChangedEvent;
+import org.perscholas.mbs.models.Specialty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Names every specialty with a small id, which is its bit in Doctor.specialtyMask.
+ *
+ * The specialties are few and rarely change, so all of them are held in memory as an immutable snapshot, indexed by
+ * name and by id. Turning a name into a mask bit, or a mask back into names, never touches the database. The snapshot
+ * is loaded on first use and reloaded whenever a Specialty is saved.
+ *
+ * A snapshot that was being loaded while a change committed is not kept, since it may predate the change: every change
+ * bumps a version, and a load only stays published if the version did not move while it ran.
+ */
+@Service
+@Slf4j
+public class SpecialtyRegistry {
+
+    private final SpecialtyRepoI specialtyRepoI;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong version = new AtomicLong();
+
+    @Autowired
+    public SpecialtyRegistry(SpecialtyRepoI specialtyRepoI, PlatformTransactionManager transactionManager) {
+        this.specialtyRepoI = specialtyRepoI;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Committed before the lock is released, or two callers could both take the same free id
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public Optional<Specialty> find(String name) {
+        return Optional.ofNullable(name == null ? null : snapshot().byName.get(name));
+    }
+
+    /**
+     * @return The mask bit of the specialty, 0 if there is no specialty by this name, which matches no doctor.
+     */
+    public long bitOf(String name) {
+        return find(name).map(Specialty::bit).orElse(0L);
+    }
+
+    /**
+     * @return The names of all registered specialties, in alphabetical order.
+     */
+    public List<String> names() {
+        return snapshot().sortedNames;
+    }
+
+    /**
+     * @return The names of the specialties set in the mask, ordered by id.
+     */
+    public List<String> namesOf(long mask) {
+        Specialty[] byId = snapshot().byId;
+        List<String> names = new ArrayList<>(Long.bitCount(mask));
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            Specialty specialty = byId[Long.numberOfTrailingZeros(bits)];
+            if (specialty != null) {
+                names.add(specialty.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Looks up the specialties by name, registering any that do not exist yet under the lowest free id.
+     *
+     * New specialties are committed in a transaction of their own, even when the caller has one.
+     *
+     * @throws IllegalStateException If all Specialty.MAX_SPECIALTIES ids are taken.
+     */
+    public synchronized Set<Specialty> resolve(Collection<String> names) {
+        return transactionTemplate.execute(status -> {
+            Set<Specialty> specialties = new LinkedHashSet<>();
+            for (String name : names) {
+                Specialty specialty = specialtyRepoI.findByName(name).orElse(null);
+                if (specialty == null) {
+                    specialty = specialtyRepoI.saveAndFlush(new Specialty(freeId(), name));
+                    log.info("Registered specialty " + specialty);
+                }
+                specialties.add(specialty);
+            }
+            return specialties;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void referenceDataChanged(ReferenceDataChangedEvent event) {
+        if ("Specialty".equals(event.getEntity())) {
+            version.incrementAndGet();
+            snapshot.set(null);
+        }
+    }
+
+    private int freeId() {
+        boolean[] taken = new boolean[Specialty.MAX_SPECIALTIES];
+        specialtyRepoI.findAll().forEach(specialty -> taken[specialty.getId()] = true);
+        for (int id = 0; id < taken.length; id++) {
+            if (!taken[id]) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("No more than " + Specialty.MAX_SPECIALTIES + " specialties can be registered");
+    }
+
+    private Snapshot snapshot() {
+
+        Snapshot current = snapshot.get();
+        if (current != null) {
+            return current;
+        }
+
+        long loadedAt = version.get();
+        Snapshot loaded = new Snapshot(specialtyRepoI.findAll());
+        if (snapshot.compareAndSet(null, loaded) && version.get() != loadedAt) {
+            snapshot.compareAndSet(loaded, null);  // a change committed during the load, the next call loads again
+        }
+        return loaded;
+    }
+
+    private static final class Snapshot {
+
+        final Map<String, Specialty> byName;
+        final Specialty[] byId = new Specialty[Specialty.MAX_SPECIALTIES];
+        final List<String> sortedNames;
+
+        Snapshot(List<Specialty> specialties) {
+            Map<String, Specialty> names = new HashMap<>();
+            for (Specialty specialty : specialties) {
+                names.put(specialty.getName(), specialty);
+                byId[specialty.getId()] = specialty;
+            }
+            byName = Map.copyOf(names);
+            sortedNames = names.keySet().stream().sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.perscholas.mbs.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dto.SpecialtyRecommendationDTO;
+import org.perscholas.mbs.dto.SymptomCatalogDTO;
+import org.perscholas.mbs.dto.SymptomDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Recommends specialties for the symptoms a patient ticks on the home page.
+ *
+ * The weights come from the "symptoms.matrix" file (see symptoms.csv) and are held as one dense symptom by specialty
+ * float matrix, row by row. Scoring adds up the rows of the ticked symptoms into a caller's array and allocates
+ * nothing, so it can run on every home page view. The file is read once at startup; its checksum is the version that
+ * tags every response, so browsers can keep the catalog and recommendations until the weights change.
+ *
+ * The specialties to choose from are those of the SpecialtyRegistry, not of the file, so the home page only offers
+ * specialties that can be booked. Every specialty the file recommends must be registered, which is checked once the
+ * application is ready.
+ */
+@Service
+@Slf4j
+public class SymptomRecommender {
+
+    private final String[] codes;
+    private final String[] labels;
+    private final String[] specialties;
+    private final float[] weights;  // [symptom * specialties.length + specialty]
+    private final Map<String, Integer> symptomIndexes;
+    private final String version;
+    private final List<SymptomDTO> symptomList;
+    private final SpecialtyRegistry specialtyRegistry;
+
+    private final ThreadLocal<float[]> scores;
+
+    @Autowired
+    public SymptomRecommender(@Value("${symptoms.matrix:classpath:symptoms.csv}") Resource matrix, SpecialtyRegistry specialtyRegistry) {
+
+        byte[] content;
+        try {
+            content = matrix.getInputStream().readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the symptom matrix " + matrix, e);
+        }
+
+        Map<String, String> labelsByCode = new LinkedHashMap<>();
+        TreeSet<String> specialtyNames = new TreeSet<>();
+        List<String[]> rows = new ArrayList<>();
+        String[] lines = new String(content, StandardCharsets.UTF_8).split("\r?\n");
+        for (int line = 0; line < lines.length; line++) {
+            String text = lines[line].trim();
+            if (text.isEmpty() || text.startsWith("#")) {
+                continue;
+            }
+            String[] row = text.split("\\s*,\\s*");
+            if (row.length != 4) {
+                throw new IllegalStateException(matrix + " line " + (line + 1) + ": expected code,label,specialty,weight");
+            }
+            labelsByCode.putIfAbsent(row[0], row[1]);
+            specialtyNames.add(row[2]);
+            rows.add(row);
+        }
+
+        this.codes = labelsByCode.keySet().toArray(new String[0]);
+        this.labels = labelsByCode.values().toArray(new String[0]);
+        this.specialties = specialtyNames.toArray(new String[0]);
+
+        Map<String, Integer> symptoms = new HashMap<>();
+        for (int i = 0; i < codes.length; i++) {
+            symptoms.put(codes[i], i);
+        }
+        this.symptomIndexes = Map.copyOf(symptoms);
+
+        this.weights = new float[codes.length * specialties.length];
+        for (String[] row : rows) {
+            int specialty = Arrays.binarySearch(specialties, row[2]);
+            weights[symptomIndexes.get(row[0]) * specialties.length + specialty] += Float.parseFloat(row[3]);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        this.version = Long.toHexString(crc.getValue());
+
+        List<SymptomDTO> symptomList = new ArrayList<>(codes.length);
+        for (int i = 0; i < codes.length; i++) {
+            symptomList.add(new SymptomDTO(codes[i], labels[i]));
+        }
+        this.symptomList = List.copyOf(symptomList);
+        this.specialtyRegistry = specialtyRegistry;
+
+        int width = specialties.length;
+        this.scores = ThreadLocal.withInitial(() -> new float[width]);
+
+        log.info("Loaded " + codes.length + " symptoms for " + specialties.length + " specialties, version " + version);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkSpecialties() {
+        List<String> unknown = Arrays.stream(specialties).filter(specialty -> specialtyRegistry.find(specialty).isEmpty()).toList();
+        if (!unknown.isEmpty()) {
+            throw new IllegalStateException("The symptom matrix recommends specialties that are not registered: " + unknown);
+        }
+    }
+
+    public SymptomCatalogDTO catalog() {
+        return new SymptomCatalogDTO(version, symptomList, specialtyRegistry.names());
+    }
+
+    // Changes with the weights and with the registered specialties
+    public String catalogETag() {
+        return "\"symptoms-" + version + "-" + Integer.toHexString(specialtyRegistry.names().hashCode()) + "\"";
+    }
+
+    /**
+     * @return The indexes of the known symptoms among the codes, ascending and without duplicates.
+     */
+    public int[] resolve(Collection<String> symptomCodes) {
+        return symptomCodes.stream().map(symptomIndexes::get).filter(index -> index != null)
+                .mapToInt(Integer::intValue).sorted().distinct().toArray();
+    }
+
+    /**
+     * @param symptoms As returned by resolve.
+     */
+    public String recommendationETag(int[] symptoms, int limit) {
+        StringBuilder etag = new StringBuilder("\"symptoms-").append(version).append('-').append(limit);
+        for (int symptom : symptoms) {
+            etag.append('-').append(symptom);
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * Adds up the weights of the symptoms for every specialty, without allocating.
+     *
+     * @param scores Receives one score per specialty, in the alphabetical order of the matrix's specialties.
+     * @return The specialty with the highest score, or -1 if none of the symptoms points to any.
+     */
+    public int score(int[] symptoms, float[] scores) {
+
+        int width = specialties.length;
+        Arrays.fill(scores, 0, width, 0f);
+        for (int symptom : symptoms) {
+            int row = symptom * width;
+            for (int specialty = 0; specialty < width; specialty++) {
+                scores[specialty] += weights[row + specialty];
+            }
+        }
+
+        int best = -1;
+        for (int specialty = 0; specialty < width; specialty++) {
+            if (scores[specialty] > 0 && (best < 0 || scores[specialty] > scores[best])) {
+                best = specialty;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param symptoms As returned by resolve.
+     * @return Up to limit specialties, highest score first, each with the labels of the symptoms pointing to it.
+     */
+    public List<SpecialtyRecommendationDTO> recommend(int[] symptoms, int limit) {
+
+        float[] scored = scores.get();
+        if (score(symptoms, scored) < 0) {
+            return List.of();
+        }
+
+        List<SpecialtyRecommendationDTO> recommendations = new ArrayList<>(limit);
+        while (recommendations.size() < limit) {
+            int best = -1;
+            for (int specialty = 0; specialty < specialties.length; specialty++) {
+                if (scored[specialty] > 0 && (best < 0 || scored[specialty] > scored[best])) {
+                    best = specialty;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+
+            List<String> because = new ArrayList<>();
+            for (int symptom : symptoms) {
+                if (weights[symptom * specialties.length + best] > 0) {
+                    because.add(labels[symptom]);
+                }
+            }
+            recommendations.add(new SpecialtyRecommendationDTO(specialties[best], scored[best], because));
+            scored[best] = 0;  // taken
+        }
+        return recommendations;
+    }
+}
@@ -0,0 +1,233 @@
+package org.perscholas.mbs.service;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A hierarchical timing wheel of int keys (appointment ids), each due at some tick.
+ *
+ * Five wheels of 64 slots cover 64, 64^2, ... 64^5 ticks ahead. A key goes into the coarsest wheel its delay needs, and
+ * is moved down a wheel whenever the clock reaches its slot, until it expires in the finest wheel. Scheduling is O(1),
+ * and so is each of the at most five moves of a key.
+ *
+ * Slots hold each entry as a single long (due tick and key), and the due tick of every live key is kept in an open
+ * addressing int to long table, so a pending key costs about 24 bytes and no objects. Cancelling only removes the key
+ * from the table; its slot entry is dropped when the clock reaches it, because it no longer matches the table.
+ *
+ * Not thread safe, the ReminderScheduler only touches it from its ticker thread.
+ */
+public class TimingWheel {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int SLOTS = 1 << WHEEL_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int WHEELS = 5;
+    private static final long MAX_TICK = 1L << 32;
+
+    private static final long[] EMPTY = new long[0];
+
+    private final long[][] entries = new long[WHEELS * SLOTS][];
+    private final int[] sizes = new int[WHEELS * SLOTS];
+
+    private long now;
+
+    // Open addressing table of live keys and their due ticks, key 0 marks a free position
+    private int[] keys = new int[1024];
+    private long[] dues = new long[1024];
+    private int pending;
+
+    /**
+     * @param now The current tick, keys due at or before it expire with the next advance.
+     */
+    public TimingWheel(long now) {
+        this.now = now;
+        Arrays.fill(entries, EMPTY);
+    }
+
+    public long now() {
+        return now;
+    }
+
+    public int pending() {
+        return pending;
+    }
+
+    /**
+     * Schedules the key, replacing any earlier schedule of it.
+     *
+     * @param key A positive int.
+     * @param due A tick below 2^32.
+     */
+    public void schedule(int key, long due) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("Keys must be positive: " + key);
+        }
+        if (due >= MAX_TICK) {
+            throw new IllegalArgumentException("Tick out of range: " + due);
+        }
+        due = Math.max(due, now + 1);
+        put(key, due);
+        place(key, due);
+    }
+
+    public void cancel(int key) {
+        if (key > 0) {
+            remove(key);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(entries, EMPTY);
+        Arrays.fill(sizes, 0);
+        keys = new int[1024];
+        dues = new long[1024];
+        pending = 0;
+    }
+
+    /**
+     * Moves the clock forward, one tick at a time.
+     *
+     * @param expired Receives every key that falls due, at most once per schedule.
+     */
+    public void advanceTo(long tick, IntConsumer expired) {
+
+        while (now < tick) {
+            now++;
+
+            // Coarser wheels first, so their keys can still land in the finer slots turned over at this tick
+            int wheel = 0;
+            while (wheel + 1 < WHEELS && (now & ((1L << (WHEEL_BITS * (wheel + 1))) - 1)) == 0) {
+                wheel++;
+            }
+            for (; wheel > 0; wheel--) {
+                drain(wheel, expired);
+            }
+            drain(0, expired);
+        }
+    }
+
+    private void drain(int wheel, IntConsumer expired) {
+
+        int bucket = wheel * SLOTS + (int) ((now >>> (WHEEL_BITS * wheel)) & SLOT_MASK);
+        long[] drained = entries[bucket];
+        int size = sizes[bucket];
+        if (size == 0) {
+            return;
+        }
+        entries[bucket] = EMPTY;
+        sizes[bucket] = 0;
+
+        for (int i = 0; i < size; i++) {
+            int key = (int) drained[i];
+            long due = drained[i] >>> 32;
+
+            if (due != get(key)) {
+                continue;  // cancelled or rescheduled since
+            }
+
+            if (due <= now) {
+                remove(key);
+                expired.accept(key);
+            } else {
+                place(key, due);
+            }
+        }
+    }
+
+    private void place(int key, long due) {
+
+        long delay = due - now;
+        int wheel = 0;
+        while (wheel + 1 < WHEELS && delay >= 1L << (WHEEL_BITS * (wheel + 1))) {
+            wheel++;
+        }
+
+        int bucket = wheel * SLOTS + (int) ((due >>> (WHEEL_BITS * wheel)) & SLOT_MASK);
+        long[] slot = entries[bucket];
+        int size = sizes[bucket];
+        if (size == slot.length) {
+            slot = Arrays.copyOf(slot, Math.max(8, size * 2));
+            entries[bucket] = slot;
+        }
+        slot[size] = due << 32 | (key & 0xFFFFFFFFL);
+        sizes[bucket] = size + 1;
+    }
+
+    private long get(int key) {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return dues[i];
+            }
+        }
+        return -1;
+    }
+
+    private void put(int key, long due) {
+
+        if ((pending + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == 0) {
+            keys[i] = key;
+            pending++;
+        }
+        dues[i] = due;
+    }
+
+    private void remove(int key) {
+
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == 0) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+
+        // Backward shift deletion, so lookups never need tombstones
+        int free = i;
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - free) & mask)) {
+                keys[free] = keys[j];
+                dues[free] = dues[j];
+                free = j;
+            }
+        }
+        keys[free] = 0;
+        pending--;
+    }
+
+    private void resize(int capacity) {
+
+        int[] oldKeys = keys;
+        long[] oldDues = dues;
+        keys = new int[capacity];
+        dues = new long[capacity];
+
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != 0) {
+                int i = hash(oldKeys[j]) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                dues[i] = oldDues[j];
+            }
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,205 @@
+package org.perscholas.mbs.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.dao.ArchivedAppointmentRepoI;
+import org.perscholas.mbs.dao.DoctorRepoI;
+import org.perscholas.mbs.dao.OfficeRepoI;
+import org.perscholas.mbs.dao.SpecialtyRepoI;
+import org.perscholas.mbs.dto.ClinicRowDTO;
+import org.perscholas.mbs.dto.DoctorDTO;
+import org.perscholas.mbs.dto.OfficeDTO;
+import org.perscholas.mbs.dto.UtilizationCountDTO;
+import org.perscholas.mbs.dto.UtilizationDTO;
+import org.perscholas.mbs.dto.UtilizationReportDTO;
+import org.perscholas.mbs.models.Specialty;
+import org.perscholas.mbs.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports booked versus available appointment slots per doctor, office and specialty over a range of days.
+ *
+ * Every doctor/office pair offers SlotSchedule.SLOTS_PER_DAY slots on every day of the range, which is what the
+ * AvailabilityService lets patients book. A specialty is available wherever one of its doctors works; appointments
+ * whose specialty is no longer registered still count for their doctor and office.
+ *
+ * The appointments are never loaded: the range is cut into partitions of "analytics.partition-days", the database
+ * groups each partition (see AppointmentRepoI.countBooked, and the archive for older days), and the partial counts are
+ * added into one map of doctor, office and specialty. Up to "analytics.parallelism" partitions are counted at a time,
+ * by workers taking the next partition until none is left, so memory only depends on the number of groups and never
+ * on the length of the range. An appointment archived while the report runs may be counted twice or not at all. With
+ * sharding enabled a worker counts its partition on every shard in turn.
+ */
+@Service
+@Slf4j
+public class UtilizationService {
+
+    private final AppointmentRepoI appointmentRepoI;
+    private final ArchivedAppointmentRepoI archivedAppointmentRepoI;
+    private final DoctorRepoI doctorRepoI;
+    private final OfficeRepoI officeRepoI;
+    private final SpecialtyRepoI specialtyRepoI;
+    private final ShardRouter shardRouter;
+    private final int partitionDays;
+    private final int parallelism;
+
+    private final ExecutorService workers;
+
+    @Autowired
+    public UtilizationService(AppointmentRepoI appointmentRepoI, ArchivedAppointmentRepoI archivedAppointmentRepoI, DoctorRepoI doctorRepoI,
+                              OfficeRepoI officeRepoI, SpecialtyRepoI specialtyRepoI, ShardRouter shardRouter,
+                              @Value("${analytics.partition-days:31}") int partitionDays,
+                              @Value("${analytics.parallelism:4}") int parallelism) {
+        this.appointmentRepoI = appointmentRepoI;
+        this.archivedAppointmentRepoI = archivedAppointmentRepoI;
+        this.doctorRepoI = doctorRepoI;
+        this.officeRepoI = officeRepoI;
+        this.specialtyRepoI = specialtyRepoI;
+        this.shardRouter = shardRouter;
+        this.partitionDays = Math.max(1, partitionDays);
+        this.parallelism = Math.max(1, parallelism);
+        this.workers = Executors.newFixedThreadPool(this.parallelism, DaemonThreads.named("utilization"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * @param from The first day, included.
+     * @param to The last day, included.
+     */
+    public UtilizationReportDTO utilization(LocalDate from, LocalDate to) {
+
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("The range ends on " + to + " before it starts on " + from);
+        }
+
+        long start = System.currentTimeMillis();
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        long partitions = (days + partitionDays - 1) / partitionDays;
+
+        ConcurrentMap<BookedKey, LongAdder> booked = new ConcurrentHashMap<>();
+        AtomicLong next = new AtomicLong();
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, partitions); i++) {
+            running.add(CompletableFuture.runAsync(() -> {
+                for (long partition = next.getAndIncrement(); partition < partitions; partition = next.getAndIncrement()) {
+                    LocalDate partitionFrom = from.plusDays(partition * partitionDays);
+                    LocalDate partitionTo = partitionFrom.plusDays(Math.min(partitionDays, days - partition * partitionDays));
+                    shardRouter.inEveryShard(() -> {
+                        add(booked, appointmentRepoI.countBooked(SlotSchedule.toDate(partitionFrom), SlotSchedule.toDate(partitionTo)));
+                        add(booked, archivedAppointmentRepoI.countBooked(SlotSchedule.toDate(partitionFrom), SlotSchedule.toDate(partitionTo)));
+                    });
+                }
+            }, workers));
+        }
+
+        try {
+            CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        UtilizationReportDTO report = report(from, to, days * SlotSchedule.SLOTS_PER_DAY, booked);
+
+        log.debug("Utilization from " + from + " to " + to + " counted " + booked.size() + " groups in " + partitions + " partitions in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return report;
+    }
+
+    private UtilizationReportDTO report(LocalDate from, LocalDate to, long slotsPerPair, Map<BookedKey, LongAdder> booked) {
+
+        Map<Integer, Long> bookedByDoctor = new HashMap<>();
+        Map<Integer, Long> bookedByOffice = new HashMap<>();
+        Map<String, Long> bookedBySpecialty = new HashMap<>();
+        booked.forEach((key, count) -> {
+            long sum = count.sum();
+            bookedByDoctor.merge(key.getDoctorId(), sum, Long::sum);
+            bookedByOffice.merge(key.getOfficeId(), sum, Long::sum);
+            if (key.getSpecialty() != null) {
+                bookedBySpecialty.merge(key.getSpecialty(), sum, Long::sum);
+            }
+        });
+
+        List<ClinicRowDTO> pairs = doctorRepoI.findAllClinicRows();
+        Map<Integer, Long> pairsByDoctor = new HashMap<>();
+        Map<Integer, Long> pairsByOffice = new HashMap<>();
+        for (ClinicRowDTO pair : pairs) {
+            pairsByDoctor.merge(pair.getDoctorId(), 1L, Long::sum);
+            pairsByOffice.merge(pair.getOfficeId(), 1L, Long::sum);
+        }
+
+        List<UtilizationDTO> doctors = new ArrayList<>();
+        for (DoctorDTO doctor : doctorRepoI.findEssentialInfo()) {
+            doctors.add(utilization(doctor.getId(), doctor.getDoctorName(), bookedByDoctor.getOrDefault(doctor.getId(), 0L),
+                    pairsByDoctor.getOrDefault(doctor.getId(), 0L) * slotsPerPair));
+        }
+
+        List<UtilizationDTO> offices = new ArrayList<>();
+        for (OfficeDTO office : officeRepoI.findEssentialInfo()) {
+            offices.add(utilization(office.getId(), office.getOfficeName(), bookedByOffice.getOrDefault(office.getId(), 0L),
+                    pairsByOffice.getOrDefault(office.getId(), 0L) * slotsPerPair));
+        }
+
+        List<Specialty> registered = new ArrayList<>(specialtyRepoI.findAll());
+        registered.sort(Comparator.comparingInt(Specialty::getId));
+        List<UtilizationDTO> specialties = new ArrayList<>();
+        for (Specialty specialty : registered) {
+            long offering = pairs.stream().filter(pair -> (pair.getSpecialtyMask() & specialty.bit()) != 0).count();
+            specialties.add(utilization(specialty.getId(), specialty.getName(), bookedBySpecialty.getOrDefault(specialty.getName(), 0L),
+                    offering * slotsPerPair));
+        }
+
+        return new UtilizationReportDTO(from, to, doctors, offices, specialties);
+    }
+
+    private static UtilizationDTO utilization(int id, String name, long booked, long available) {
+        return new UtilizationDTO(id, name, booked, available, available == 0 ? 0 : (double) booked / available);
+    }
+
+    private static void add(ConcurrentMap<BookedKey, LongAdder> booked, List<UtilizationCountDTO> counts) {
+        for (UtilizationCountDTO count : counts) {
+            booked.computeIfAbsent(new BookedKey(count.getDoctorId(), count.getOfficeId(), count.getSpecialty()), key -> new LongAdder())
+                    .add(count.getBooked());
+        }
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private static class BookedKey {
+        int doctorId;
+        int officeId;
+        String specialty;
+    }
+}
@@ -0,0 +1,331 @@
+package org.perscholas.mbs.service;
+
+import jakarta.transaction.Transactional;
+import lombok.AccessLevel;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.dao.DoctorRepoI;
+import org.perscholas.mbs.dao.OfficeRepoI;
+import org.perscholas.mbs.dao.PatientRepoI;
+import org.perscholas.mbs.dao.WaitlistRepoI;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.perscholas.mbs.models.Appointment;
+import org.perscholas.mbs.models.Doctor;
+import org.perscholas.mbs.models.Office;
+import org.perscholas.mbs.models.OutboxEvent;
+import org.perscholas.mbs.models.Patient;
+import org.perscholas.mbs.models.WaitlistEntry;
+import org.perscholas.mbs.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Keeps patients waiting for a doctor and specialty, and gives each cancelled slot to the first of them it suits.
+ *
+ * Every doctor/specialty pair has its own queue, a ConcurrentSkipListSet ordered by priority (highest first), then by
+ * the time the patient joined. The queues live in memory and are rebuilt from the Waitlist table at startup, so a
+ * cancellation only walks the queue of the cancelled appointment's doctor and specialty and never scans a table.
+ *
+ * A waiting patient is claimed twice: in memory by removing them from their queue, which only one caller can do, and
+ * in the database by deleting their Waitlist row, which only one transaction can do. The hand-off runs once the
+ * cancellation has committed, still under its lock (see BookingService.cancel), and serves every patient in a
+ * transaction of its own. A patient whose booking fails is put back in their queue and the slot is offered to the
+ * next one, so neither a broken waitlist entry nor the hand-off can undo the cancellation.
+ *
+ * The queues only change once the database has: joining and leaving update them after the commit.
+ *
+ * With sharding enabled the waitlist is kept on the home shard and only slots of offices on that shard are handed off
+ * (see ShardRouter), so patients can only wait for those offices.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class WaitlistService {
+
+    private static final Comparator<Waiter> QUEUE_ORDER = Comparator.comparingInt(Waiter::getPriority).reversed()
+            .thenComparingLong(Waiter::getCreatedAt)
+            .thenComparingInt(Waiter::getEntryId);
+
+    WaitlistRepoI waitlistRepoI;
+    AppointmentRepoI appointmentRepoI;
+    PatientRepoI patientRepoI;
+    DoctorRepoI doctorRepoI;
+    OfficeRepoI officeRepoI;
+    SpecialtyRegistry specialtyRegistry;
+    OutboxService outboxService;
+    ShardRouter shardRouter;
+    TransactionTemplate transactionTemplate;
+
+    ConcurrentMap<QueueKey, NavigableSet<Waiter>> queues = new ConcurrentHashMap<>();
+    ConcurrentMap<Integer, Waiter> waiters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public WaitlistService(WaitlistRepoI waitlistRepoI, AppointmentRepoI appointmentRepoI, PatientRepoI patientRepoI, DoctorRepoI doctorRepoI, OfficeRepoI officeRepoI,
+                           SpecialtyRegistry specialtyRegistry, OutboxService outboxService, ShardRouter shardRouter, PlatformTransactionManager transactionManager) {
+        this.waitlistRepoI = waitlistRepoI;
+        this.appointmentRepoI = appointmentRepoI;
+        this.patientRepoI = patientRepoI;
+        this.doctorRepoI = doctorRepoI;
+        this.officeRepoI = officeRepoI;
+        this.specialtyRegistry = specialtyRegistry;
+        this.outboxService = outboxService;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(rollbackOn = Exception.class)
+    public void rebuild() {
+        queues.clear();
+        waiters.clear();
+        waitlistRepoI.findAll().forEach(entry -> index(Waiter.of(entry)));
+        log.info("Waitlist rebuilt with " + waiters.size() + " waiting patients");
+    }
+
+    /**
+     * Puts a patient on the waitlist of a doctor.
+     *
+     * @param officeId The office the patient wants to be seen at, or null for any of the doctor's offices.
+     * @param priority Higher priorities are served first.
+     * @throws IllegalArgumentException If the patient, doctor or office does not exist, the doctor does not practice
+     *                                  the specialty, the office, or every office of the doctor, is on another shard
+     *                                  than the waitlist, or the dates do not form a window that is still open.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public WaitlistEntry join(int patientId, int doctorId, Integer officeId, String specialty, LocalDate earliest, LocalDate latest, int priority) {
+
+        Patient patient = patientRepoI.findById(patientId).orElseThrow(() -> new IllegalArgumentException("No such patient: " + patientId));
+        Doctor doctor = doctorRepoI.findById(doctorId).orElseThrow(() -> new IllegalArgumentException("No such doctor: " + doctorId));
+
+        if ((doctor.getSpecialtyMask() & specialtyRegistry.bitOf(specialty)) == 0) {
+            throw new IllegalArgumentException(doctor.getName() + " does not practice " + specialty);
+        }
+
+        Office office = null;
+        if (officeId != null) {
+            office = officeRepoI.findById(officeId).orElseThrow(() -> new IllegalArgumentException("No such office: " + officeId));
+            if (shardRouter.shardOf(officeId) != ShardRouter.HOME) {
+                throw new IllegalArgumentException(office.getName() + " does not keep a waitlist");
+            }
+        } else if (doctor.getOffices().stream().noneMatch(candidate -> shardRouter.shardOf(candidate.getId()) == ShardRouter.HOME)) {
+            throw new IllegalArgumentException("None of the offices of " + doctor.getName() + " keeps a waitlist");
+        }
+
+        if (earliest.isAfter(latest) || latest.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("No dates left between " + earliest + " and " + latest);
+        }
+
+        WaitlistEntry entry = new WaitlistEntry(patient, doctor, office, specialty, SlotSchedule.toDate(earliest), SlotSchedule.toDate(latest), priority);
+        waitlistRepoI.saveAndFlush(entry);
+
+        Waiter waiter = Waiter.of(entry);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                index(waiter);
+            }
+        });
+
+        return entry;
+    }
+
+    /**
+     * Takes a patient off the waitlist.
+     *
+     * @return false if there is no such entry, for example because the patient has already been given a slot.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public boolean leave(int entryId) {
+        return unindexOnCommit(entryId, waitlistRepoI.deleteEntry(entryId));
+    }
+
+    /**
+     * Takes a patient off the waitlist, if the entry is theirs.
+     *
+     * @return false if there is no such entry of this patient.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public boolean leave(int entryId, int patientId) {
+        return unindexOnCommit(entryId, waitlistRepoI.deleteEntryOf(entryId, patientId));
+    }
+
+    /**
+     * Books the freed slot for the first waiting patient it suits, if any. Must be called on the shard of the slot's
+     * office once the transaction that freed the slot has committed, while the caller still holds the slot's lock.
+     *
+     * @return The new appointment, or empty if nobody on the waitlist can take the slot.
+     */
+    public Optional<Appointment> handOff(AppointmentSlotDTO freed) {
+
+        LocalDate day = SlotSchedule.toLocalDate(freed.getAppointmentDate());
+        if (freed.getAppointmentSpecialty() == null || SlotSchedule.slotOf(freed.getAppointmentTime()) < 0 || day.isBefore(LocalDate.now())) {
+            return Optional.empty();
+        }
+
+        NavigableSet<Waiter> queue = queues.get(new QueueKey(freed.getDoctorId(), freed.getAppointmentSpecialty()));
+        if (queue == null) {
+            return Optional.empty();
+        }
+
+        long today = LocalDate.now().toEpochDay();
+
+        // Weakly consistent iteration, in queue order
+        for (Waiter waiter : queue) {
+
+            if (waiter.getLatestDay() < today) {
+                drop(queue, waiter);  // can never be served any more, the row goes with the nightly purge
+                continue;
+            }
+
+            if (!waiter.accepts(freed.getOfficeId(), day.toEpochDay()) || !queue.remove(waiter)) {
+                continue;
+            }
+            waiters.remove(waiter.getEntryId());
+
+            Appointment appointment;
+            try {
+                appointment = transactionTemplate.execute(status -> serve(waiter, freed));
+            } catch (DataIntegrityViolationException e) {
+                index(waiter);  // rolled back, so the entry is still there
+                if (BookingService.violatesSlotConstraint(e)) {
+                    log.info("Slot " + freed.getAppointmentTime() + " on " + day + " with doctor " + freed.getDoctorId() + " was booked elsewhere first");
+                    return Optional.empty();
+                }
+                log.error("Could not give a slot to waitlist entry " + waiter.getEntryId(), e);
+                continue;
+            } catch (RuntimeException e) {
+                index(waiter);
+                log.error("Could not give a slot to waitlist entry " + waiter.getEntryId(), e);
+                continue;
+            }
+
+            if (appointment == null) {
+                continue;  // left the waitlist, or was served by another application instance
+            }
+
+            log.info("Slot " + freed.getAppointmentTime() + " on " + day + " with doctor " + freed.getDoctorId()
+                    + " given to waiting patient " + waiter.getPatientId());
+            return Optional.of(appointment);
+        }
+
+        return Optional.empty();
+    }
+
+    @Scheduled(cron = "${waitlist.purge-cron:0 15 0 * * *}")
+    @Transactional(rollbackOn = Exception.class)
+    public void purgeExpired() {
+
+        long today = LocalDate.now().toEpochDay();
+        waiters.values().removeIf(waiter -> {
+            if (waiter.getLatestDay() >= today) {
+                return false;
+            }
+            NavigableSet<Waiter> queue = queues.get(waiter.getQueueKey());
+            if (queue != null) {
+                queue.remove(waiter);
+            }
+            return true;
+        });
+
+        int purged = waitlistRepoI.deleteExpired(SlotSchedule.toDate(LocalDate.now()));
+        log.debug("Purged " + purged + " expired waitlist entries");
+    }
+
+    public int size() {
+        return waiters.size();
+    }
+
+    private void index(Waiter waiter) {
+        waiters.put(waiter.getEntryId(), waiter);
+        queues.computeIfAbsent(waiter.getQueueKey(), key -> new ConcurrentSkipListSet<>(QUEUE_ORDER)).add(waiter);
+    }
+
+    private void drop(NavigableSet<Waiter> queue, Waiter waiter) {
+        if (queue.remove(waiter)) {
+            waiters.remove(waiter.getEntryId());
+        }
+    }
+
+    // Returns null if the entry is already gone
+    private Appointment serve(Waiter waiter, AppointmentSlotDTO freed) {
+
+        if (waitlistRepoI.deleteEntry(waiter.getEntryId()) == 0) {
+            return null;
+        }
+
+        Appointment appointment = new Appointment(freed.getAppointmentDate(), freed.getAppointmentTime(), freed.getAppointmentSpecialty(),
+                doctorRepoI.getReferenceById(freed.getDoctorId()), officeRepoI.getReferenceById(freed.getOfficeId()),
+                patientRepoI.getReferenceById(waiter.getPatientId()));
+        appointmentRepoI.saveAndFlush(appointment);
+        outboxService.record(OutboxEvent.Type.APPOINTMENT_BOOKED, AppointmentSlotDTO.of(appointment));
+        return appointment;
+    }
+
+    private boolean unindexOnCommit(int entryId, int deleted) {
+
+        if (deleted == 0) {
+            return false;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                Waiter waiter = waiters.remove(entryId);
+                if (waiter != null) {
+                    NavigableSet<Waiter> queue = queues.get(waiter.getQueueKey());
+                    if (queue != null) {
+                        queue.remove(waiter);
+                    }
+                }
+            }
+        });
+        return true;
+    }
+
+    @Value
+    private static class QueueKey {
+        int doctorId;
+        String specialty;
+    }
+
+    @Value
+    private static class Waiter {
+        int entryId;
+        int patientId;
+        int officeId;  // 0 for any office
+        long earliestDay;
+        long latestDay;
+        int priority;
+        long createdAt;
+        QueueKey queueKey;
+
+        static Waiter of(WaitlistEntry entry) {
+            return new Waiter(entry.getId(), entry.getPatient().getId(), entry.getOffice() == null ? 0 : entry.getOffice().getId(),
+                    SlotSchedule.toLocalDate(entry.getEarliestDate()).toEpochDay(), SlotSchedule.toLocalDate(entry.getLatestDate()).toEpochDay(),
+                    entry.getPriority(), entry.getCreatedAt().getTime(),
+                    new QueueKey(entry.getDoctor().getId(), entry.getAppointmentSpecialty()));
+        }
+
+        boolean accepts(int officeId, long epochDay) {
+            return (this.officeId == 0 || this.officeId == officeId) && epochDay >= earliestDay && epochDay <= latestDay;
+        }
+    }
+}
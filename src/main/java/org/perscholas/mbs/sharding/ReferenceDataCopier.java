@@ -0,0 +1,86 @@
+package org.perscholas.mbs.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Copies the reference tables from the home shard into every other shard that has none of their rows yet, so the
+ * appointments stored there can reference the doctors, offices and patients they belong to.
+ *
+ * This is a stand-in for replicating the home database to the shards (for example with MySQL replication), for
+ * development and tests on embedded databases; it only runs with "sharding.copy-reference-data". Rows written on the
+ * home shard later are copied as they commit, by the ReferenceDataReplicator.
+ */
+@Component
+@Slf4j
+public class ReferenceDataCopier {
+
+    // In foreign key order
+    static final List<String> REFERENCE_TABLES = List.of("specialties", "doctors", "offices", "doctor_specialties", "doctor_offices",
+            "patients", "auth_group");
+
+    private final ShardRoutingDataSource dataSource;
+    private final boolean enabled;
+
+    @Autowired
+    public ReferenceDataCopier(ObjectProvider<ShardRoutingDataSource> dataSource,
+                               @Value("${sharding.copy-reference-data:false}") boolean enabled) {
+        this.dataSource = dataSource.getIfAvailable();
+        this.enabled = enabled;
+    }
+
+    public void copyIntoEmptyShards() {
+
+        if (dataSource == null || !enabled) {
+            return;
+        }
+
+        JdbcTemplate home = new JdbcTemplate(dataSource.shard(ShardRouter.HOME));
+        for (int shard = 1; shard < dataSource.size(); shard++) {
+            JdbcTemplate target = new JdbcTemplate(dataSource.shard(shard));
+            for (String table : REFERENCE_TABLES) {
+                Integer rows = target.queryForObject("select count(*) from " + table, Integer.class);
+                if (rows != null && rows == 0) {
+                    int copied = copy(home, target, table);
+                    log.debug("Copied " + copied + " rows of " + table + " into shard " + shard);
+                }
+            }
+        }
+    }
+
+    private static int copy(JdbcTemplate from, JdbcTemplate to, String table) {
+
+        List<String> columns = new ArrayList<>();
+        List<Object[]> rows = from.query("select * from " + table, (rs, rowNum) -> {
+            ResultSetMetaData metaData = rs.getMetaData();
+            if (columns.isEmpty()) {
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    columns.add(metaData.getColumnName(i));
+                }
+            }
+            Object[] row = new Object[metaData.getColumnCount()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            return row;
+        });
+
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        String sql = "insert into " + table + " (" + String.join(", ", columns) + ") values ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        to.batchUpdate(sql, rows);
+        return rows.size();
+    }
+}
@@ -0,0 +1,183 @@
+package org.perscholas.mbs.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.CollectionEntry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Replays every committed write to a reference table (see ReferenceDataCopier) on the home shard into the other
+ * shards, so doctors, offices and patients added after startup can be booked and listed on every shard.
+ *
+ * Hibernate reports the rows of an entity and of the join tables it owns; once the transaction has committed, the rows
+ * with that key are read back from the home shard and written to each other shard in the order Hibernate flushed them,
+ * which keeps the foreign keys satisfied. Entity rows are updated in place, as appointments on the shard may reference
+ * them, and join table rows are replaced. A shard that cannot take a change is logged and left behind.
+ */
+@Slf4j
+class ReferenceDataReplicator implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+    private final ShardRoutingDataSource dataSource;
+
+    ReferenceDataReplicator(ShardRoutingDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        entityChanged(event.getSession(), event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        entityChanged(event.getSession(), event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        entityChanged(event.getSession(), event.getPersister(), event.getId());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;  // the replay is registered with the transaction by the listener itself
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        collectionChanged(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        collectionChanged(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        collectionChanged(event);
+    }
+
+    private void entityChanged(EventSource session, EntityPersister persister, Object id) {
+
+        if (!(persister instanceof AbstractEntityPersister entity) || !isReferenceTable(entity.getRootTableName())) {
+            return;
+        }
+
+        String table = entity.getRootTableName();
+        String idColumn = entity.getIdentifierColumnNames()[0];
+        afterCommit(session, () -> {
+            List<Map<String, Object>> rows = home().queryForList("select * from " + table + " where " + idColumn + " = ?", id);
+            forEachShard(table, target -> {
+                if (rows.isEmpty()) {
+                    target.update("delete from " + table + " where " + idColumn + " = ?", id);
+                } else if (update(target, table, idColumn, id, rows.get(0)) == 0) {
+                    insert(target, table, rows);
+                }
+            });
+        });
+    }
+
+    private void collectionChanged(AbstractCollectionEvent event) {
+
+        // A removed collection only has the persister it was loaded with
+        CollectionEntry entry = event.getSession().getPersistenceContextInternal().getCollectionEntry(event.getCollection());
+        CollectionPersister persister = entry.getCurrentPersister() != null ? entry.getCurrentPersister() : entry.getLoadedPersister();
+        if (!(persister instanceof AbstractCollectionPersister collection) || collection.isInverse() || !isReferenceTable(collection.getTableName())) {
+            return;
+        }
+
+        String table = collection.getTableName();
+        String keyColumn = collection.getKeyColumnNames()[0];
+        Object ownerId = event.getAffectedOwnerIdOrNull();
+        afterCommit(event.getSession(), () -> {
+            List<Map<String, Object>> rows = home().queryForList("select * from " + table + " where " + keyColumn + " = ?", ownerId);
+            forEachShard(table, target -> {
+                target.update("delete from " + table + " where " + keyColumn + " = ?", ownerId);
+                insert(target, table, rows);
+            });
+        });
+    }
+
+    // Writes on other shards are appointment data, not reference data
+    private void afterCommit(EventSource session, Runnable replay) {
+        Integer shard = ShardContext.current();
+        if (shard == null || shard == ShardRouter.HOME) {
+            session.getActionQueue().registerProcess((success, completed) -> {
+                if (success) {
+                    replay.run();
+                }
+            });
+        }
+    }
+
+    private void forEachShard(String table, Consumer<JdbcTemplate> write) {
+        for (int shard = 1; shard < dataSource.size(); shard++) {
+            try {
+                write.accept(new JdbcTemplate(dataSource.shard(shard)));
+            } catch (DataAccessException e) {
+                log.error("Could not replicate a change of " + table + " to shard " + shard, e);
+            }
+        }
+    }
+
+    private JdbcTemplate home() {
+        return new JdbcTemplate(dataSource.shard(ShardRouter.HOME));
+    }
+
+    private static boolean isReferenceTable(String table) {
+        return ReferenceDataCopier.REFERENCE_TABLES.stream().anyMatch(table::equalsIgnoreCase);
+    }
+
+    private static int update(JdbcTemplate target, String table, String idColumn, Object id, Map<String, Object> row) {
+
+        List<String> assignments = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        row.forEach((column, value) -> {
+            if (!column.equalsIgnoreCase(idColumn)) {
+                assignments.add(column + " = ?");
+                values.add(value);
+            }
+        });
+        values.add(id);
+
+        return target.update("update " + table + " set " + String.join(", ", assignments) + " where " + idColumn + " = ?", values.toArray());
+    }
+
+    private static void insert(JdbcTemplate target, String table, List<Map<String, Object>> rows) {
+
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        String sql = "insert into " + table + " (" + String.join(", ", columns) + ") values ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        target.batchUpdate(sql, rows.stream().map(row -> row.values().toArray()).toList());
+    }
+}
@@ -0,0 +1,46 @@
+package org.perscholas.mbs.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the shard the current thread works on, which the ShardRoutingDataSource reads whenever a connection is opened.
+ *
+ * Connections are bound to a transaction when it begins, so the shard has to be set before that; ShardRouter takes
+ * care of it. Threads without a shard use the home shard.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * @return The shard of the current thread, or null for the home shard.
+     */
+    public static Integer current() {
+        return SHARD.get();
+    }
+
+    public static <T> T callOn(int shard, Supplier<T> work) {
+
+        Integer previous = SHARD.get();
+        SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                SHARD.remove();
+            } else {
+                SHARD.set(previous);
+            }
+        }
+    }
+
+    public static void runOn(int shard, Runnable work) {
+        callOn(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
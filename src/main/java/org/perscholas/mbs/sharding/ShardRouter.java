@@ -0,0 +1,208 @@
+package org.perscholas.mbs.sharding;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.perscholas.mbs.service.DaemonThreads;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard holds the appointment data of an office, and runs work on one shard, on every shard, or on all
+ * of them in parallel.
+ *
+ * Offices are spread over the shards by id (office id modulo the number of shards). Appointments and the outbox
+ * events recorded with them live on the shard of their office; every other table is reference data that lives on the
+ * home shard (0) and is expected to be replicated to the others. Without "sharding.enabled" there is one shard, the
+ * only DataSource, and every method simply runs the work on the calling thread.
+ *
+ * A transaction is bound to the connection it started on, so work can only move to another shard outside of a
+ * transaction, or within one on that same shard; anything else is an IllegalStateException rather than a silent read
+ * of the wrong database. Reads across offices are fanned out on "sharding.fan-out-threads" threads, one transaction
+ * per shard, and merged by the caller.
+ */
+@Component
+@Slf4j
+public class ShardRouter {
+
+    public static final int HOME = 0;
+
+    private final int shards;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService fanOutPool;
+
+    @Autowired
+    public ShardRouter(ObjectProvider<ShardRoutingDataSource> routingDataSource, PlatformTransactionManager transactionManager,
+                       @Value("${sharding.fan-out-threads:8}") int fanOutThreads) {
+
+        ShardRoutingDataSource routing = routingDataSource.getIfAvailable();
+        this.shards = routing == null ? 1 : routing.size();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fanOutPool = shards == 1 ? null : Executors.newFixedThreadPool(Math.max(1, fanOutThreads), DaemonThreads.named("shard-fan-out"));
+
+        if (shards > 1) {
+            log.info("Appointment data is partitioned by office over " + shards + " shards");
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (fanOutPool != null) {
+            fanOutPool.shutdownNow();
+        }
+    }
+
+    public boolean isSharded() {
+        return shards > 1;
+    }
+
+    public int shardCount() {
+        return shards;
+    }
+
+    public int shardOf(int officeId) {
+        return Math.floorMod(officeId, shards);
+    }
+
+    /**
+     * Runs the work with the given shard bound to the thread, without a transaction of its own: everything the work
+     * opens, including its transactions, goes to that shard.
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+
+        if (shards == 1) {
+            return work.get();
+        }
+
+        checkCanSwitchTo(shard);
+        return ShardContext.callOn(shard, work);
+    }
+
+    public void onShard(int shard, Runnable work) {
+        onShard(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public <T> T onShardOf(int officeId, Supplier<T> work) {
+        return onShard(shardOf(officeId), work);
+    }
+
+    public void onShardOf(int officeId, Runnable work) {
+        onShard(shardOf(officeId), work);
+    }
+
+    /**
+     * Runs the work in a transaction on the given shard, joining the caller's transaction if it already is on it.
+     */
+    public <T> T inShard(int shard, Supplier<T> work) {
+        return onShard(shard, () -> transactionTemplate.execute(status -> work.get()));
+    }
+
+    public <T> T inShardOf(int officeId, Supplier<T> work) {
+        return inShard(shardOf(officeId), work);
+    }
+
+    /**
+     * Runs the work in one transaction per shard, one shard after the other on the calling thread.
+     */
+    public void inEveryShard(Runnable work) {
+        for (int shard = 0; shard < shards; shard++) {
+            inShard(shard, () -> {
+                work.run();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Runs the work on every shard in parallel, each in its own transaction, and waits for all of them.
+     *
+     * With a single shard the work runs on the calling thread, in the caller's transaction if there is one.
+     *
+     * @return The results in shard order.
+     */
+    public <T> List<T> fanOut(Supplier<T> work) {
+
+        if (shards == 1) {
+            return List.of(inShard(HOME, work));
+        }
+
+        List<CompletableFuture<T>> running = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            int target = shard;
+            running.add(CompletableFuture.supplyAsync(() -> inShard(target, work), fanOutPool));
+        }
+
+        try {
+            CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        return running.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Looks a row up on every shard, for ids that do not tell which office they belong to.
+     */
+    public <T> Optional<T> findInAnyShard(Supplier<Optional<T>> lookup) {
+        return fanOut(lookup).stream().flatMap(Optional::stream).findFirst();
+    }
+
+    /**
+     * Merges lists that are each sorted by the comparator into one sorted list of at most limit elements.
+     */
+    public static <T> List<T> mergeSorted(List<List<T>> sorted, Comparator<? super T> comparator, int limit) {
+
+        // Heads of the lists, as {list, index}
+        PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) -> comparator.compare(sorted.get(a[0]).get(a[1]), sorted.get(b[0]).get(b[1])));
+        for (int list = 0; list < sorted.size(); list++) {
+            if (!sorted.get(list).isEmpty()) {
+                heads.add(new int[]{list, 0});
+            }
+        }
+
+        List<T> merged = new ArrayList<>(limit);
+        while (merged.size() < limit && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<T> list = sorted.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (++head[1] < list.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    private void checkCanSwitchTo(int shard) {
+
+        if (shard < 0 || shard >= shards) {
+            throw new IllegalArgumentException("No such shard: " + shard);
+        }
+
+        Integer current = ShardContext.current();
+        if (TransactionSynchronizationManager.isActualTransactionActive() && shard != (current == null ? HOME : current)) {
+            throw new IllegalStateException("Cannot move to shard " + shard + " inside a transaction on shard " + (current == null ? HOME : current));
+        }
+    }
+}
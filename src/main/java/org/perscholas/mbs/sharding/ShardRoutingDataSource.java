@@ -0,0 +1,65 @@
+package org.perscholas.mbs.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The DataSource of the application when sharding is enabled, opening every connection on the shard of the current
+ * thread (see ShardContext), or on the home shard if none is set.
+ *
+ * Shards are numbered from 0, the home shard, in the order they are configured. A shard number outside that range is
+ * an error rather than a silent fallback to the home shard.
+ */
+@Slf4j
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+
+        this.shards = List.copyOf(shards);
+
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < this.shards.size(); shard++) {
+            targets.put(shard, this.shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(this.shards.get(ShardRouter.HOME));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    /**
+     * @return The DataSource of one shard, for work that has to reach a given shard without a ShardContext.
+     */
+    public DataSource shard(int shard) {
+        return shards.get(shard);
+    }
+
+    // Called by Spring on shutdown, the shards' pools are not beans of their own
+    public void close() {
+        for (DataSource shard : shards) {
+            if (shard instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Cannot close shard " + shard, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
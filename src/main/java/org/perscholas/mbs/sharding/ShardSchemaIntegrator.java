@@ -0,0 +1,155 @@
+package org.perscholas.mbs.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.SourceType;
+import org.hibernate.tool.schema.TargetType;
+import org.hibernate.tool.schema.internal.ExceptionHandlerLoggedImpl;
+import org.hibernate.tool.schema.spi.ContributableMatcher;
+import org.hibernate.tool.schema.spi.ExecutionOptions;
+import org.hibernate.tool.schema.spi.SchemaManagementTool;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.hibernate.tool.schema.spi.ScriptSourceInput;
+import org.hibernate.tool.schema.spi.ScriptTargetOutput;
+import org.hibernate.tool.schema.spi.SourceDescriptor;
+import org.hibernate.tool.schema.spi.TargetDescriptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies "spring.jpa.hibernate.ddl-auto" to the shards other than the home shard, which Hibernate manages itself, and
+ * moves the id sequences of the sharded tables to the shard's own range.
+ *
+ * Hibernate hands out ids from one pooled optimizer per sequence whatever shard a session is on, so every value a
+ * shard's sequence returns has to be unique across shards: shard s starts at s * "sharding.id-block". The block must
+ * be larger than the number of rows a shard will ever hold.
+ *
+ * With "sharding.copy-reference-data" it also registers the ReferenceDataReplicator, which keeps the shards' copies of
+ * the reference tables in step with the home shard.
+ */
+@Slf4j
+public class ShardSchemaIntegrator implements Integrator {
+
+    // Generators of the tables whose rows live on the shard of their office, with their allocationSize
+    private static final List<String> SHARDED_SEQUENCES = List.of("appointment_seq", "outbox_seq");
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final SourceDescriptor FROM_METADATA = new SourceDescriptor() {
+        @Override
+        public SourceType getSourceType() {
+            return SourceType.METADATA;
+        }
+
+        @Override
+        public ScriptSourceInput getScriptSourceInput() {
+            return null;
+        }
+    };
+
+    private static final TargetDescriptor TO_DATABASE = new TargetDescriptor() {
+        @Override
+        public EnumSet<TargetType> getTargetTypes() {
+            return EnumSet.of(TargetType.DATABASE);
+        }
+
+        @Override
+        public ScriptTargetOutput getScriptTargetOutput() {
+            return null;
+        }
+    };
+
+    private final ShardRoutingDataSource dataSource;
+    private final int idBlock;
+    private final boolean replicateReferenceData;
+
+    private Metadata metadata;
+    private boolean dropOnClose;
+
+    public ShardSchemaIntegrator(ShardRoutingDataSource dataSource, int idBlock, boolean replicateReferenceData) {
+        this.dataSource = dataSource;
+        this.idBlock = idBlock;
+        this.replicateReferenceData = replicateReferenceData;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+
+        this.metadata = metadata;
+        Map<String, Object> settings = sessionFactory.getProperties();
+        Object action = settings.get("hibernate.hbm2ddl.auto");
+        Dialect dialect = sessionFactory.getJdbcServices().getDialect();
+        SchemaManagementTool tool = sessionFactory.getServiceRegistry().getService(SchemaManagementTool.class);
+        ExecutionOptions options = SchemaManagementToolCoordinator.buildExecutionOptions(settings, ExceptionHandlerLoggedImpl.INSTANCE);
+
+        // The tool opens its connections through the routing DataSource, so it works on the shard bound to the thread
+        for (int shard = 1; shard < dataSource.size(); shard++) {
+            if ("create".equals(action) || "create-drop".equals(action)) {
+                ShardContext.runOn(shard, () -> {
+                    tool.getSchemaDropper(settings).doDrop(metadata, options, ContributableMatcher.ALL, FROM_METADATA, TO_DATABASE);
+                    tool.getSchemaCreator(settings).doCreation(metadata, options, ContributableMatcher.ALL, FROM_METADATA, TO_DATABASE);
+                });
+            } else if ("update".equals(action)) {
+                ShardContext.runOn(shard, () -> tool.getSchemaMigrator(settings).doMigration(metadata, options, ContributableMatcher.ALL, TO_DATABASE));
+            } else {
+                continue;  // the shards' schemas are managed elsewhere, like the home shard's
+            }
+            claimIdRange(shard, dialect);
+        }
+
+        dropOnClose = "create-drop".equals(action);
+
+        if (replicateReferenceData) {
+            ReferenceDataReplicator replicator = new ReferenceDataReplicator(dataSource);
+            EventListenerRegistry listeners = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+            listeners.appendListeners(EventType.POST_INSERT, replicator);
+            listeners.appendListeners(EventType.POST_UPDATE, replicator);
+            listeners.appendListeners(EventType.POST_DELETE, replicator);
+            listeners.appendListeners(EventType.POST_COLLECTION_RECREATE, replicator);
+            listeners.appendListeners(EventType.POST_COLLECTION_UPDATE, replicator);
+            listeners.appendListeners(EventType.POST_COLLECTION_REMOVE, replicator);
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        if (dropOnClose) {
+            Map<String, Object> settings = sessionFactory.getProperties();
+            SchemaManagementTool tool = serviceRegistry.getService(SchemaManagementTool.class);
+            ExecutionOptions options = SchemaManagementToolCoordinator.buildExecutionOptions(settings, ExceptionHandlerLoggedImpl.INSTANCE);
+            for (int shard = 1; shard < dataSource.size(); shard++) {
+                ShardContext.runOn(shard, () -> tool.getSchemaDropper(settings).doDrop(metadata, options, ContributableMatcher.ALL, FROM_METADATA, TO_DATABASE));
+            }
+        }
+    }
+
+    // Only ever moves a sequence forward, so restarts with "update" keep the ids handed out so far
+    private void claimIdRange(int shard, Dialect dialect) {
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource.shard(shard));
+        long start = (long) shard * idBlock + ALLOCATION_SIZE;
+
+        for (String sequence : SHARDED_SEQUENCES) {
+            if (dialect.getSequenceSupport().supportsSequences()) {
+                Long next = jdbcTemplate.queryForObject(dialect.getSequenceSupport().getSequenceNextValString(sequence), Long.class);
+                if (next != null && next < start) {
+                    jdbcTemplate.execute("alter sequence " + sequence + " restart with " + start);
+                }
+            } else {
+                // Emulated with a one row table, see org.hibernate.id.enhanced.TableStructure
+                jdbcTemplate.update("update " + sequence + " set next_val = ? where next_val < ?", start, start);
+            }
+        }
+
+        log.debug("Shard " + shard + " hands out ids from " + (start - ALLOCATION_SIZE + 1));
+    }
+}
@@ -0,0 +1,54 @@
+package org.perscholas.mbs.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single DataSource with a ShardRoutingDataSource when "sharding.enabled" is set.
+ *
+ * The home shard is the usual "spring.datasource.*" database, the others are listed in "sharding.urls" and share its
+ * driver, username and password. Every shard gets the full schema (see ShardSchemaIntegrator), and the sequences of
+ * the sharded tables hand out ids from a range of "sharding.id-block" per shard, so an appointment id is unique across
+ * all of them.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+@Slf4j
+public class ShardingConfig {
+
+    @Bean
+    public ShardRoutingDataSource dataSource(DataSourceProperties properties, @Value("${sharding.urls}") String[] urls,
+                                             @Value("${sharding.id-block:100000000}") int idBlock) {
+
+        if ((long) (urls.length + 1) * idBlock > Integer.MAX_VALUE) {
+            throw new IllegalStateException((urls.length + 1) + " shards of " + idBlock + " ids do not fit an int id");
+        }
+
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(properties.initializeDataSourceBuilder().build());
+        for (String url : urls) {
+            shards.add(properties.initializeDataSourceBuilder().url(url.trim()).build());
+        }
+
+        log.info("Sharding appointment data over " + shards.size() + " databases");
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardSchemaCustomizer(ShardRoutingDataSource dataSource,
+                                                               @Value("${sharding.id-block:100000000}") int idBlock,
+                                                               @Value("${sharding.copy-reference-data:false}") boolean copyReferenceData) {
+        return hibernateProperties -> hibernateProperties.put("hibernate.integrator_provider",
+                (IntegratorProvider) () -> List.of(new ShardSchemaIntegrator(dataSource, idBlock, copyReferenceData)));
+    }
+}
@@ -1,110 +1,117 @@
 //alert("connected test 04");
 
 function selectClinicAndDoctor() {
-    
+
 }
 
-function formOptionInput() {
+function reloadSlotsForDate() {
 
-    let obj = document.getElementById("selectForm00");
+    let date = document.getElementById("selectDate").value;
 
-    if (obj.selectedIndex == 1) {
-        document.getElementById("specialtyInput").value = "Cardiology";
-    }
-    else if (obj.selectedIndex == 2) {
-        document.getElementById("specialtyInput").value = "Dermatology";
-    }
-    else if (obj.selectedIndex == 3) {
-        document.getElementById("specialtyInput").value = "Endocrinology";
-    }
-    else if (obj.selectedIndex == 4) {
-        document.getElementById("specialtyInput").value = "Family Medicine";
-    }
-    else if (obj.selectedIndex == 5) {
-        document.getElementById("specialtyInput").value = "Gastroenterology";
-    }
-    else if (obj.selectedIndex == 6) {
-        document.getElementById("specialtyInput").value = "Neurology";
+    if (date) {
+        location.href = "book-appointment?date=" + date;
     }
-    else if (obj.selectedIndex == 7) {
-        document.getElementById("specialtyInput").value = "Ophthalmology";
-    }
-    else if (obj.selectedIndex == 8) {
-        document.getElementById("specialtyInput").value = "Pediatrics";
-    }
-    else if (obj.selectedIndex == 9) {
-        document.getElementById("specialtyInput").value = "Podiatry";
-    }
-    else if (obj.selectedIndex == 10) {
-        document.getElementById("specialtyInput").value = "Sleep Medicine";
+}
+
+// Fills the specialty list (every registered specialty) and the symptom checkboxes of the home page from /api/symptoms.
+// The browser keeps the answer for a while and revalidates it with its ETag, so this is usually not a round trip.
+function loadSymptomCatalog() {
+
+    let select = document.getElementById("selectForm00");
+
+    if (!select) {
+        return;  // not the home page
     }
-    
+
+    fetch("api/symptoms")
+        .then(response => response.json())
+        .then(catalog => {
+
+            for (let specialty of catalog.specialties) {
+                let option = document.createElement("option");
+                option.value = specialty;
+                option.textContent = specialty;
+                select.appendChild(option);
+            }
+
+            let columns = [document.getElementById("symptomColumn0"), document.getElementById("symptomColumn1")];
+            let half = Math.ceil(catalog.symptoms.length / 2);
+
+            catalog.symptoms.forEach((symptom, i) => {
+                let div = document.createElement("div");
+                div.className = "form-check form-check-inline";
+
+                let input = document.createElement("input");
+                input.className = "form-check-input";
+                input.type = "checkbox";
+                input.id = "symptom-" + symptom.code;
+                input.value = symptom.code;
+
+                let label = document.createElement("label");
+                label.className = "form-check-label";
+                label.htmlFor = input.id;
+                label.textContent = symptom.label;
+
+                div.appendChild(input);
+                div.appendChild(label);
+                columns[i < half ? 0 : 1].appendChild(div);
+            });
+        });
+}
+
+function formOptionInput() {
+
+    document.getElementById("specialtyInput").value = document.getElementById("selectForm00").value;
+
 }
 
 function symptomCheckboxInput() {
 
-    if (document.getElementById("inlineCheckbox1").checked == true) {
-        document.getElementById("symptom").innerHTML = "Based on your shortness of breath, we recommend <b>Cardiology</b>.";
-        document.getElementById("br0").className = "";
-    }
-    if (document.getElementById("inlineCheckbox2").checked == true) {
-        document.getElementById("symptom1").innerHTML = "Based on your chest pain/tightness, we recommend <b>Cardiology</b>.";
-        document.getElementById("br1").className = "";
-    }
-    if (document.getElementById("inlineCheckbox3").checked == true) {
-        document.getElementById("symptom2").innerHTML = "Based on your acne, we recommend <b>Dermatology</b>.";
-        document.getElementById("br2").className = "";
-    }
-    if (document.getElementById("inlineCheckbox5").checked == true) {
-        document.getElementById("symptom3").innerHTML = "Based on your dry/itchy skin, we recommend <b>Dermatology</b>.";
-        document.getElementById("br3").className = "";
-    }
-    if (document.getElementById("inlineCheckbox6").checked == true) {
-        document.getElementById("symptom4").innerHTML = "Based on your thyroid/hormone concerns, we recommend <b>Endocrinology</b>.";
-        document.getElementById("br4").className = "";
-    }
-    if (document.getElementById("inlineCheckbox7").checked == true) {
-        document.getElementById("symptom5").innerHTML = "Based on your mild fever, we recommend <b>Family Medicine</b>.";
-        document.getElementById("br5").className = "";
-    }
-    if (document.getElementById("inlineCheckbox8").checked == true) {
-        document.getElementById("symptom6").innerHTML = "Based on your digestive concerns, we recommend <b>Gastroenterology</b>.";
-        document.getElementById("br6").className = "";
-    }
-    if (document.getElementById("inlineCheckbox9").checked == true) {
-        document.getElementById("symptom7").innerHTML = "Based on your headaches, we recommend <b>Neurology</b>.";
-        document.getElementById("br7").className = "";
-    }
-    if (document.getElementById("inlineCheckbox10").checked == true) {
-        document.getElementById("symptom8").innerHTML = "Based on your stomach pain, we recommend <b>Gastroenterology</b>.";
-        document.getElementById("br8").className = "";
-    }
-    if (document.getElementById("inlineCheckbox11").checked == true) {
-        document.getElementById("symptom9").innerHTML = "Based on your dizziness, we recommend <b>Neurology</b>.";
-        document.getElementById("br9").className = "";
-    }
-    if (document.getElementById("inlineCheckbox12").checked == true) {
-        document.getElementById("symptom10").innerHTML = "Based on your blurry vision, we recommend <b>Ophthalmology</b>.";
-        document.getElementById("br10").className = "";
-    }
-    if (document.getElementById("inlineCheckbox13").checked == true) {
-        document.getElementById("symptom11").innerHTML = "Based on your child health concerns, we recommend <b>Pediatrics</b>.";
-        document.getElementById("br11").className = "";
-    }
-    if (document.getElementById("inlineCheckbox14").checked == true) {
-        document.getElementById("symptom12").innerHTML = "Based on your feet/ankle injury, we recommend <b>Podiatry</b>.";
-        document.getElementById("br12").className = "";
+    let params = new URLSearchParams();
+
+    for (let input of document.querySelectorAll("#checkboxInput00 input:checked")) {
+        params.append("symptom", input.value);
     }
-    if (document.getElementById("inlineCheckbox15").checked == true) {
-        document.getElementById("symptom13").innerHTML = "Based on your insomnia, we recommend <b>Sleep Medicine</b>.";
-        document.getElementById("br13").className = "";
+
+    if (!params.has("symptom")) {
+        return;
     }
 
-    document.getElementById("result").className = "vh-100 gradient-custom";
+    fetch("api/symptoms/recommendations?" + params)
+        .then(response => response.json())
+        .then(recommendations => {
+
+            let result = document.getElementById("symptomResult");
+            result.replaceChildren();
+
+            for (let recommendation of recommendations) {
+                let line = document.createElement("p");
+                let specialty = document.createElement("b");
+                specialty.textContent = recommendation.specialty;
+
+                line.append("Based on your " + joinSymptoms(recommendation.symptoms) + ", we recommend ", specialty, ".");
+                result.appendChild(line);
+            }
+
+            document.getElementById("result").className = "vh-100 gradient-custom";
+        });
+}
+
+// "a", "a and b", "a, b and c"
+function joinSymptoms(symptoms) {
+
+    let lower = symptoms.map(symptom => symptom.toLowerCase());
+
+    if (lower.length <= 1) {
+        return lower.join("");
+    }
+    return lower.slice(0, -1).join(", ") + " and " + lower[lower.length - 1];
 }
 
 function refreshSymptomCheckboxInput() {
 
     location.reload();
 
-}
\ No newline at end of file
+}
+
+loadSymptomCatalog();
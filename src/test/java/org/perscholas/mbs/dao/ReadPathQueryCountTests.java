@@ -0,0 +1,154 @@
+package org.perscholas.mbs.dao;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.perscholas.mbs.dto.PatientLoginDTO;
+import org.perscholas.mbs.models.AuthGroup;
+import org.perscholas.mbs.models.Doctor;
+import org.perscholas.mbs.models.Office;
+import org.perscholas.mbs.models.Patient;
+import org.perscholas.mbs.models.Specialty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Counts the SQL statements of the read paths that used to load the whole Doctor/Office graph. The second level cache
+ * is off, so every read reaches the database.
+ */
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect = org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.generate_statistics = true",
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache = false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache = false"
+})
+class ReadPathQueryCountTests {
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private DoctorRepoI doctorRepoI;
+
+	@Autowired
+	private OfficeRepoI officeRepoI;
+
+	@Autowired
+	private PatientRepoI patientRepoI;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+
+		Specialty cardiology = entityManager.persist(new Specialty(0, "Cardiology"));
+		Specialty dermatology = entityManager.persist(new Specialty(1, "Dermatology"));
+
+		Office northdale = new Office(1, "Northdale", "Wilson");
+		Office eastview = new Office(2, "Eastview", "Melody");
+		for (int id = 1; id <= 6; id++) {
+			Doctor doctor = new Doctor(id, "Doctor " + id, id + "@mail.com", id % 2 == 0 ? Set.of(cardiology, dermatology) : Set.of(dermatology));
+			northdale.addDoctor(doctor);
+			if (id > 3) {
+				eastview.addDoctor(doctor);
+			}
+		}
+		entityManager.persist(northdale);
+		entityManager.persist(eastview);
+		entityManager.flush();
+		entityManager.clear();
+
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	public void essentialInfoIsOneStatementEach() {
+
+		assertThat(doctorRepoI.findEssentialInfo()).hasSize(6).first().satisfies(doctor -> {
+			assertThat(doctor.getId()).isEqualTo(1);
+			assertThat(doctor.getDoctorName()).isEqualTo("Doctor 1");
+		});
+		assertThat(officeRepoI.findEssentialInfo()).extracting("officeName").containsExactly("Northdale", "Eastview");
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	public void loadingAnOfficeDoesNotLoadItsDoctors() {
+
+		Office office = officeRepoI.findById(2).orElseThrow();
+
+		assertThat(Hibernate.isInitialized(office.getDoctors())).isFalse();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void allDoctorsComeWithTheirSpecialtiesInOneStatement() {
+
+		List<Doctor> doctors = doctorRepoI.findAll();
+
+		assertThat(doctors).hasSize(6).allSatisfy(doctor -> {
+			assertThat(doctor.getSpecialtyNames()).containsExactlyElementsOf(doctor.getId() % 2 == 0 ? List.of("Cardiology", "Dermatology") : List.of("Dermatology"));
+			assertThat(Hibernate.isInitialized(doctor.getOffices())).isFalse();
+		});
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void idByNameReadsOnlyTheId() {
+
+		assertThat(doctorRepoI.findIdByName("Doctor 4")).contains(4);
+		assertThat(officeRepoI.findIdByName("Eastview")).contains(2);
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	public void locationsIncludeOfficesWithoutDoctors() {
+
+		Office westfield = new Office(3, "Westfield", "Elm");
+		westfield.setLocation(40.7, -74.0);
+		entityManager.persist(westfield);
+		entityManager.flush();
+		entityManager.clear();
+		statistics.clear();
+
+		assertThat(officeRepoI.findLocations()).singleElement().satisfies(office -> {
+			assertThat(office.getOfficeName()).isEqualTo("Westfield");
+			assertThat(office.getSpecialtyMask()).isZero();
+		});
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void loginReadsThePatientAndRolesInOneStatement() {
+
+		entityManager.persist(new Patient("Ada Lovelace", "Ada@Mail.com", "password"));
+		entityManager.persist(new AuthGroup("Ada@Mail.com", "ROLE_USER"));
+		entityManager.persist(new AuthGroup("ada@mail.com", "ROLE_ADMIN"));
+		entityManager.flush();
+		entityManager.clear();
+		statistics.clear();
+
+		List<PatientLoginDTO> rows = patientRepoI.findLogin(Patient.emailKeyOf(" ADA@mail.com"));
+
+		assertThat(rows).extracting(row -> row.getPatient().getFullName()).containsOnly("Ada Lovelace");
+		assertThat(rows).extracting(row -> row.getAuthGroup().getRole()).containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,160 @@
+package org.perscholas.mbs.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.perscholas.mbs.controllers.AppointmentApiController;
+import org.perscholas.mbs.controllers.ImportController;
+import org.perscholas.mbs.controllers.WaitlistController;
+import org.perscholas.mbs.models.AuthGroup;
+import org.perscholas.mbs.models.Patient;
+import org.perscholas.mbs.service.AppointmentListingService;
+import org.perscholas.mbs.service.ImportService;
+import org.perscholas.mbs.service.WaitlistService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sends requests through the application's security filter chain as nobody, as patient 1 and as an admin.
+ */
+@WebMvcTest(controllers = {ImportController.class, AppointmentApiController.class, WaitlistController.class})
+@Import(MySecurityConfig.class)
+class ApiSecurityTests {
+
+	private static final String PASSWORD = "secret";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private MyUserDetailsService myUserDetailsService;
+
+	@MockBean
+	private ImportService importService;
+
+	@MockBean
+	private AppointmentListingService appointmentListingService;
+
+	@MockBean
+	private WaitlistService waitlistService;
+
+	@BeforeEach
+	public void setUp() {
+
+		when(myUserDetailsService.loadUserByUsername(anyString())).thenThrow(new UsernameNotFoundException("unknown"));
+		doReturn(principal(1, "patient@mail.com", "ROLE_USER")).when(myUserDetailsService).loadUserByUsername("patient@mail.com");
+		doReturn(principal(2, "admin@mail.com", "ROLE_USER", "ROLE_ADMIN")).when(myUserDetailsService).loadUserByUsername("admin@mail.com");
+		when(appointmentListingService.ownerExists(any(), anyInt())).thenReturn(true);
+	}
+
+	@Test
+	public void anonymousImportsAreRejected() throws Exception {
+
+		mockMvc.perform(csv(post("/admin/import/patients"))).andExpect(status().isUnauthorized());
+		mockMvc.perform(csv(post("/admin/import/appointments"))).andExpect(status().isUnauthorized());
+
+		verifyNoInteractions(importService);
+	}
+
+	@Test
+	public void onlyAdminsMayImport() throws Exception {
+
+		mockMvc.perform(csv(post("/admin/import/patients")).header(HttpHeaders.AUTHORIZATION, basic("patient@mail.com"))).andExpect(status().isForbidden());
+		verifyNoInteractions(importService);
+
+		mockMvc.perform(csv(post("/admin/import/patients")).header(HttpHeaders.AUTHORIZATION, basic("admin@mail.com"))).andExpect(status().isOk());
+		verify(importService).importPatients(any(), any());
+	}
+
+	@Test
+	public void importsSentAsAFormAreRefused() throws Exception {
+
+		// What a page on another site could make an admin's browser send; AdviceController renders the refusal
+		mockMvc.perform(post("/admin/import/patients").header(HttpHeaders.AUTHORIZATION, basic("admin@mail.com"))
+				.contentType("text/plain").content("fullName,email\n"));
+
+		verifyNoInteractions(importService);
+	}
+
+	@Test
+	public void patientsOnlyListTheirOwnAppointments() throws Exception {
+
+		mockMvc.perform(get("/api/patients/1/appointments")).andExpect(status().isUnauthorized());
+		mockMvc.perform(get("/api/patients/2/appointments").header(HttpHeaders.AUTHORIZATION, basic("patient@mail.com"))).andExpect(status().isForbidden());
+		mockMvc.perform(get("/api/patients/1/appointments").header(HttpHeaders.AUTHORIZATION, basic("patient@mail.com"))).andExpect(status().isOk());
+		mockMvc.perform(get("/api/patients/1/appointments").header(HttpHeaders.AUTHORIZATION, basic("admin@mail.com"))).andExpect(status().isOk());
+	}
+
+	@Test
+	public void onlyAdminsListDoctorsAndOffices() throws Exception {
+
+		for (String path : new String[]{"/api/doctors/1/appointments", "/api/offices/1/appointments"}) {
+			mockMvc.perform(get(path)).andExpect(status().isUnauthorized());
+			mockMvc.perform(get(path).header(HttpHeaders.AUTHORIZATION, basic("patient@mail.com"))).andExpect(status().isForbidden());
+			mockMvc.perform(get(path).header(HttpHeaders.AUTHORIZATION, basic("admin@mail.com"))).andExpect(status().isOk());
+		}
+	}
+
+	@Test
+	public void patientsOnlyPutThemselvesOnTheWaitlist() throws Exception {
+
+		mockMvc.perform(join()).andExpect(status().isUnauthorized());
+		verifyNoInteractions(waitlistService);
+
+		// A patientId sent along is ignored
+		mockMvc.perform(join().param("patientId", "2").header(HttpHeaders.AUTHORIZATION, basic("patient@mail.com")));
+		verify(waitlistService).join(eq(1), eq(3), any(), eq("Cardiology"), any(), any(), eq(0));
+	}
+
+	@Test
+	public void patientsOnlyTakeTheirOwnEntriesOff() throws Exception {
+
+		mockMvc.perform(delete("/api/waitlist/7")).andExpect(status().isUnauthorized());
+
+		mockMvc.perform(delete("/api/waitlist/7").header(HttpHeaders.AUTHORIZATION, basic("patient@mail.com"))).andExpect(status().isNotFound());
+		verify(waitlistService).leave(7, 1);
+
+		when(waitlistService.leave(7)).thenReturn(true);
+		mockMvc.perform(delete("/api/waitlist/7").header(HttpHeaders.AUTHORIZATION, basic("admin@mail.com"))).andExpect(status().isNoContent());
+	}
+
+	private static MockHttpServletRequestBuilder join() {
+		return post("/api/waitlist").param("doctorId", "3").param("specialty", "Cardiology")
+				.param("earliestDate", "2030-01-01").param("latestDate", "2030-01-31");
+	}
+
+	private static MockHttpServletRequestBuilder csv(MockHttpServletRequestBuilder request) {
+		return request.contentType("text/csv").content("fullName,email\n");
+	}
+
+	private static String basic(String email) {
+		return "Basic " + Base64.getEncoder().encodeToString((email + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static MyUserPrincipal principal(int id, String email, String... roles) {
+
+		Patient patient = new Patient("Patient " + id, email, null);
+		patient.setId(id);
+		patient.setPassword(PASSWORD);
+		return new MyUserPrincipal(patient, Arrays.stream(roles).map(role -> new AuthGroup(email, role)).toList());
+	}
+}
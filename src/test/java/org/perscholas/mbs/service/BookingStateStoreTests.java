@@ -0,0 +1,48 @@
+package org.perscholas.mbs.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * A user picks Cardiology, then logs in halfway through the booking flow, which gives their session a new id.
+ */
+class BookingStateStoreTests {
+
+	private BookingStateStore bookingStateStore;
+	private MockHttpServletRequest request;
+
+	@BeforeEach
+	public void setUp() {
+
+		bookingStateStore = new BookingStateStore(10, 30, new SimpleMeterRegistry());
+		request = new MockHttpServletRequest();
+		request.setSession(new MockHttpSession());
+		bookingStateStore.get(request.getSession()).setSpecialty("Cardiology");
+	}
+
+	@Test
+	public void selectionsSurviveTheNewSessionIdOfALogin() {
+
+		String before = request.getSession().getId();
+		request.changeSessionId();
+
+		assertThat(request.getSession().getId()).isNotEqualTo(before);
+		assertThat(bookingStateStore.get(request.getSession()).getSpecialty()).isEqualTo("Cardiology");
+		assertThat(bookingStateStore.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void otherOrRemovedSessionsStartAfresh() {
+
+		MockHttpSession other = new MockHttpSession();
+
+		assertThat(bookingStateStore.get(other).hasSpecialty()).isFalse();
+		bookingStateStore.remove(request.getSession());
+		assertThat(bookingStateStore.get(request.getSession()).hasSpecialty()).isFalse();
+	}
+}
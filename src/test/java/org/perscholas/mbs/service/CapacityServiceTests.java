@@ -0,0 +1,135 @@
+package org.perscholas.mbs.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.dao.OfficeRepoI;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.perscholas.mbs.models.Office;
+import org.perscholas.mbs.sharding.ShardRouter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Office 1 sees two patients an hour, office 2 has no limit; slots 0 and 1 share the first hour.
+ */
+class CapacityServiceTests {
+
+	private final LocalDate day = LocalDate.now().plusDays(1);
+
+	private AppointmentRepoI appointmentRepoI;
+	private CapacityService capacityService;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+
+		Office limited = new Office(1, "Northdale", "Wilson");
+		limited.setHourlyCapacity(2);
+		Office unlimited = new Office(2, "Eastview", "Melody");
+
+		OfficeRepoI officeRepoI = mock(OfficeRepoI.class);
+		when(officeRepoI.findAll()).thenReturn(List.of(limited, unlimited));
+		appointmentRepoI = mock(AppointmentRepoI.class);
+		when(appointmentRepoI.streamSlotsFrom(any())).thenAnswer(invocation -> Stream.empty());
+
+		ShardRouter shardRouter = new ShardRouter(mock(ObjectProvider.class), mock(PlatformTransactionManager.class), 1);
+		capacityService = new CapacityService(appointmentRepoI, officeRepoI, shardRouter);
+		capacityService.reconcile();
+	}
+
+	@Test
+	public void admitsUpToTheCapacityOfTheHour() {
+
+		assertThat(capacityService.tryAdmit(1, day, 0)).isNegative();
+		assertThat(capacityService.tryAdmit(1, day, 1)).isNegative();
+		assertThat(capacityService.tryAdmit(1, day, 0)).isEqualTo(CapacityService.FULL);
+
+		assertThat(capacityService.tryAdmit(1, day, 2)).isNegative();  // the next hour
+		assertThat(capacityService.tryAdmit(2, day, 0)).isNegative();
+		assertThat(capacityService.taken(2, day, 0)).isZero();
+	}
+
+	@Test
+	public void releaseGivesBackThePlaceOfAFailedBooking() {
+
+		int first = capacityService.tryAdmit(1, day, 0);
+		capacityService.tryAdmit(1, day, 0);
+		capacityService.release(1, day, 0, first);
+
+		assertThat(capacityService.taken(1, day, 0)).isEqualTo(1);
+		assertThat(capacityService.tryAdmit(1, day, 0)).isNegative();
+	}
+
+	@Test
+	public void aCommittedBookingHoldsOnePlaceBeforeItsTokenIsReleased() {
+
+		int token = capacityService.tryAdmit(1, day, 0);
+		capacityService.admitted(1, day, 0, token, 7);
+		capacityService.appointmentAdded(slot(7, 1, "08:00"));
+
+		assertThat(capacityService.taken(1, day, 0)).isEqualTo(1);
+		assertThat(capacityService.tryAdmit(1, day, 0)).isNegative();
+
+		capacityService.release(1, day, 0, token);
+		assertThat(capacityService.taken(1, day, 0)).isEqualTo(2);  // the appointment and the second admission
+	}
+
+	@Test
+	public void concurrentAdmissionsNeverExceedTheCapacity() throws Exception {
+
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Integer>> admissions = new ArrayList<>();
+			for (int i = 0; i < 1000; i++) {
+				admissions.add(pool.submit(() -> {
+					start.await();
+					return capacityService.tryAdmit(1, day, 0);
+				}));
+			}
+			start.countDown();
+
+			int admitted = 0;
+			for (Future<Integer> admission : admissions) {
+				if (admission.get() != CapacityService.FULL) {
+					admitted++;
+				}
+			}
+			assertThat(admitted).isEqualTo(2);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void reconcileAddsBookingsMadeElsewhereAndDropsCancelledOnes() {
+
+		capacityService.appointmentAdded(slot(1, 1, "08:00"));
+		capacityService.appointmentAdded(slot(2, 1, "08:30"));
+		when(appointmentRepoI.streamSlotsFrom(any())).thenAnswer(invocation -> Stream.of(slot(2, 1, "08:30"), slot(3, 1, "09:00"), slot(4, 2, "08:00")));
+
+		capacityService.reconcile();
+
+		assertThat(capacityService.taken(1, day, 0)).isEqualTo(1);
+		assertThat(capacityService.taken(1, day, 2)).isEqualTo(1);
+		assertThat(capacityService.taken(2, day, 0)).isZero();
+	}
+
+	private AppointmentSlotDTO slot(int id, int officeId, String time) {
+		return new AppointmentSlotDTO(id, 1, officeId, 1, SlotSchedule.toDate(day), time, "Cardiology");
+	}
+}
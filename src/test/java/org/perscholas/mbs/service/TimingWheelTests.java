@@ -0,0 +1,128 @@
+package org.perscholas.mbs.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Checks that every key expires exactly at its due tick, whichever wheel it was first placed in.
+ */
+class TimingWheelTests {
+
+	@Test
+	public void aKeyDueNowExpiresWithTheNextTick() {
+
+		TimingWheel wheel = new TimingWheel(100);
+		wheel.schedule(1, 100);
+		wheel.schedule(2, 40);
+
+		assertThat(advance(wheel, 100)).isEmpty();
+		assertThat(advance(wheel, 101)).containsExactly(entry(1, 101L), entry(2, 101L));
+		assertThat(wheel.pending()).isZero();
+	}
+
+	@Test
+	public void keysMoveDownTheWheelsAtEveryBoundary() {
+
+		for (int level = 1; level <= 5; level++) {
+			long boundary = 1L << (6 * level);
+			long start = boundary - 70;
+			TimingWheel wheel = new TimingWheel(start);
+
+			// Around the boundary of the level, where the wheels up to it turn over at once, and far enough ahead to start
+			// out in each of the coarser wheels
+			Map<Integer, Long> dues = new HashMap<>();
+			long[] ticks = {boundary - 1, boundary, boundary + 1, boundary + 63, boundary + 64, boundary + 65,
+					start + 4097, start + 262_145, start + (1L << 24) + 3};
+			for (int i = 0; i < ticks.length; i++) {
+				dues.put(i + 1, ticks[i]);
+				wheel.schedule(i + 1, ticks[i]);
+			}
+
+			assertThat(advance(wheel, start + (1L << 24) + 100)).as("level " + level).containsExactlyInAnyOrderEntriesOf(dues);
+		}
+	}
+
+	@Test
+	public void cancelledAndRescheduledKeysExpireOnlyAtTheirLastSchedule() {
+
+		TimingWheel wheel = new TimingWheel(0);
+		wheel.schedule(1, 50);
+		wheel.schedule(2, 50);
+		wheel.schedule(3, 5000);
+		wheel.cancel(1);
+		wheel.schedule(2, 80);
+		wheel.schedule(3, 30);
+		wheel.cancel(4);  // never scheduled
+
+		assertThat(wheel.pending()).isEqualTo(2);
+		assertThat(advance(wheel, 10_000)).containsExactly(entry(3, 30L), entry(2, 80L));
+	}
+
+	@Test
+	public void theTableGrowsAndRemovesWithoutLosingKeys() {
+
+		TimingWheel wheel = new TimingWheel(0);
+		Map<Integer, Long> dues = new HashMap<>();
+		for (int key = 1; key <= 5000; key++) {
+			wheel.schedule(key, key % 700 + 1);
+			dues.put(key, (long) (key % 700 + 1));
+		}
+
+		// Every third key, so removals shift runs of colliding keys back
+		for (int key = 3; key <= 5000; key += 3) {
+			wheel.cancel(key);
+			dues.remove(key);
+		}
+
+		assertThat(wheel.pending()).isEqualTo(dues.size());
+		assertThat(advance(wheel, 701)).containsExactlyInAnyOrderEntriesOf(dues);
+		assertThat(wheel.pending()).isZero();
+	}
+
+	@Test
+	public void matchesASimpleModelUnderRandomUse() {
+
+		Random random = new Random(42);
+		TimingWheel wheel = new TimingWheel(random.nextInt(1 << 20));
+		Map<Integer, Long> model = new HashMap<>();
+
+		for (int round = 0; round < 2000; round++) {
+			for (int i = 0; i < 20; i++) {
+				int key = 1 + random.nextInt(3000);
+				if (random.nextInt(4) == 0) {
+					wheel.cancel(key);
+					model.remove(key);
+				} else {
+					long due = wheel.now() + random.nextInt(random.nextBoolean() ? 100 : 300_000);
+					wheel.schedule(key, due);
+					model.put(key, Math.max(due, wheel.now() + 1));
+				}
+			}
+
+			long until = wheel.now() + random.nextInt(500);
+			Map<Integer, Long> expected = new HashMap<>();
+			model.forEach((key, due) -> {
+				if (due <= until) {
+					expected.put(key, due);
+				}
+			});
+			expected.keySet().forEach(model::remove);
+
+			assertThat(advance(wheel, until)).containsExactlyInAnyOrderEntriesOf(expected);
+			assertThat(wheel.pending()).isEqualTo(model.size());
+		}
+	}
+
+	// Expired keys with the tick they expired at, in the order they expired
+	private static Map<Integer, Long> advance(TimingWheel wheel, long tick) {
+		Map<Integer, Long> expired = new LinkedHashMap<>();
+		wheel.advanceTo(tick, key -> assertThat(expired.put(key, wheel.now())).as("key " + key + " expired twice").isNull());
+		return expired;
+	}
+}
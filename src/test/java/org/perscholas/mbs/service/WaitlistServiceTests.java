@@ -0,0 +1,170 @@
+package org.perscholas.mbs.service;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.dao.DoctorRepoI;
+import org.perscholas.mbs.dao.OfficeRepoI;
+import org.perscholas.mbs.dao.PatientRepoI;
+import org.perscholas.mbs.dao.WaitlistRepoI;
+import org.perscholas.mbs.dto.AppointmentSlotDTO;
+import org.perscholas.mbs.models.Appointment;
+import org.perscholas.mbs.models.Doctor;
+import org.perscholas.mbs.models.Office;
+import org.perscholas.mbs.models.Patient;
+import org.perscholas.mbs.models.Specialty;
+import org.perscholas.mbs.models.WaitlistEntry;
+import org.perscholas.mbs.sharding.ShardRouter;
+import org.perscholas.mbs.sharding.ShardRoutingDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Patient 1 (priority 1) and patient 2 wait for doctor 1's Cardiology slots tomorrow at any office. There are three
+ * shards, so of doctor 1's offices only office 3 is on the home shard with the waitlist.
+ */
+class WaitlistServiceTests {
+
+	private final LocalDate day = LocalDate.now().plusDays(1);
+
+	private WaitlistRepoI waitlistRepoI;
+	private AppointmentRepoI appointmentRepoI;
+	private WaitlistService waitlistService;
+	private Doctor doctor;
+	private Office northdale;
+	private Office westfield;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+
+		doctor = new Doctor(1, "Wilson", "wilson@mail.com", Set.of(new Specialty(0, "Cardiology")));
+		northdale = new Office(1, "Northdale", "Wilson");
+		westfield = new Office(3, "Westfield", "Elm");
+		northdale.addDoctor(doctor);
+		westfield.addDoctor(doctor);
+
+		waitlistRepoI = mock(WaitlistRepoI.class);
+		when(waitlistRepoI.findAll()).thenReturn(List.of(entry(1, 1, doctor), entry(2, 0, doctor)));
+		when(waitlistRepoI.deleteEntry(anyInt())).thenReturn(1);
+
+		appointmentRepoI = mock(AppointmentRepoI.class);
+		PatientRepoI patientRepoI = mock(PatientRepoI.class);
+		when(patientRepoI.getReferenceById(anyInt())).thenAnswer(invocation -> patient(invocation.getArgument(0)));
+		when(patientRepoI.findById(anyInt())).thenAnswer(invocation -> Optional.of(patient(invocation.getArgument(0))));
+		DoctorRepoI doctorRepoI = mock(DoctorRepoI.class);
+		when(doctorRepoI.getReferenceById(anyInt())).thenReturn(doctor);
+		when(doctorRepoI.findById(1)).thenReturn(Optional.of(doctor));
+		OfficeRepoI officeRepoI = mock(OfficeRepoI.class);
+		when(officeRepoI.getReferenceById(anyInt())).thenReturn(northdale);
+		when(officeRepoI.findById(1)).thenReturn(Optional.of(northdale));
+		when(officeRepoI.findById(3)).thenReturn(Optional.of(westfield));
+
+		SpecialtyRegistry specialtyRegistry = mock(SpecialtyRegistry.class);
+		when(specialtyRegistry.bitOf("Cardiology")).thenReturn(1L);
+
+		ShardRoutingDataSource shards = mock(ShardRoutingDataSource.class);
+		when(shards.size()).thenReturn(3);
+		ObjectProvider<ShardRoutingDataSource> routingDataSource = mock(ObjectProvider.class);
+		when(routingDataSource.getIfAvailable()).thenReturn(shards);
+		ShardRouter shardRouter = new ShardRouter(routingDataSource, mock(PlatformTransactionManager.class), 1);
+
+		waitlistService = new WaitlistService(waitlistRepoI, appointmentRepoI, patientRepoI, doctorRepoI, officeRepoI,
+				specialtyRegistry, mock(OutboxService.class), shardRouter, mock(PlatformTransactionManager.class));
+		waitlistService.rebuild();
+	}
+
+	@Test
+	public void theFirstPatientInTheQueueGetsTheSlot() {
+
+		assertThat(waitlistService.handOff(freed())).map(appointment -> appointment.getPatient().getId()).contains(1);
+		assertThat(waitlistService.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void aBrokenEntryDoesNotKeepTheSlotFromTheNextPatient() {
+
+		when(appointmentRepoI.saveAndFlush(any())).thenAnswer(invocation -> {
+			Appointment appointment = invocation.getArgument(0);
+			if (appointment.getPatient().getId() == 1) {
+				throw new DataIntegrityViolationException("patient_id");
+			}
+			return appointment;
+		});
+
+		assertThat(waitlistService.handOff(freed())).map(appointment -> appointment.getPatient().getId()).contains(2);
+		assertThat(waitlistService.size()).isEqualTo(1);  // patient 1 is back in the queue
+	}
+
+	@Test
+	public void aSlotBookedElsewhereEndsTheHandOff() {
+
+		when(appointmentRepoI.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("slot",
+				new ConstraintViolationException("duplicate", new SQLException(), "APPOINTMENTS.UK_APPOINTMENT_SLOT")));
+
+		assertThat(waitlistService.handOff(freed())).isEmpty();
+		verify(appointmentRepoI, times(1)).saveAndFlush(any());
+		assertThat(waitlistService.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void anEntryAlreadyGoneIsSkipped() {
+
+		when(waitlistRepoI.deleteEntry(1)).thenReturn(0);  // served by another instance
+
+		Optional<Appointment> handedOff = waitlistService.handOff(freed());
+
+		assertThat(handedOff).map(appointment -> appointment.getPatient().getId()).contains(2);
+		assertThat(waitlistService.size()).isZero();
+	}
+
+	@Test
+	public void patientsOnlyWaitForOfficesOnTheHomeShard() {
+
+		LocalDate latest = day.plusDays(7);
+		assertThatIllegalArgumentException().isThrownBy(() -> waitlistService.join(3, 1, 1, "Cardiology", day, latest, 0))
+				.withMessageContaining("Northdale");
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			assertThat(waitlistService.join(3, 1, 3, "Cardiology", day, latest, 0).getOffice()).isSameAs(westfield);
+			assertThat(waitlistService.join(3, 1, null, "Cardiology", day, latest, 0).getOffice()).isNull();
+
+			westfield.getDoctors().remove(doctor);
+			doctor.getOffices().remove(westfield);
+			assertThatIllegalArgumentException().isThrownBy(() -> waitlistService.join(3, 1, null, "Cardiology", day, latest, 0));
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	private AppointmentSlotDTO freed() {
+		return new AppointmentSlotDTO(9, 1, 1, 5, SlotSchedule.toDate(day), "08:00", "Cardiology");
+	}
+
+	private WaitlistEntry entry(int patientId, int priority, Doctor doctor) {
+		WaitlistEntry entry = new WaitlistEntry(patient(patientId), doctor, null, "Cardiology", SlotSchedule.toDate(day), SlotSchedule.toDate(day), priority);
+		entry.setId(patientId);
+		return entry;
+	}
+
+	private static Patient patient(int id) {
+		Patient patient = new Patient("Patient " + id, id + "@mail.com", "secret");
+		patient.setId(id);
+		return patient;
+	}
+}
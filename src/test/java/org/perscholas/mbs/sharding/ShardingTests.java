@@ -0,0 +1,150 @@
+package org.perscholas.mbs.sharding;
+
+import org.junit.jupiter.api.Test;
+import org.perscholas.mbs.dao.AppointmentRepoI;
+import org.perscholas.mbs.models.Appointment;
+import org.perscholas.mbs.models.Doctor;
+import org.perscholas.mbs.models.Office;
+import org.perscholas.mbs.models.Patient;
+import org.perscholas.mbs.models.Specialty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Routes appointments to three embedded databases, offices 1 and 2 living on shards 1 and 2.
+ */
+@DataJpaTest(properties = {
+		"spring.datasource.url = jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name = org.h2.Driver",
+		"spring.datasource.username = sa",
+		"spring.datasource.password = ",
+		"sharding.enabled = true",
+		"sharding.urls = jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1",
+		"sharding.copy-reference-data = true",
+		"spring.jpa.hibernate.ddl-auto = create-drop",
+		"spring.jpa.properties.hibernate.dialect = org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache = false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache = false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ShardingConfig.class, ShardRouter.class, ReferenceDataCopier.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ShardingTests {
+
+	@Autowired
+	private ShardRoutingDataSource dataSource;
+
+	@Autowired
+	private ShardRouter shardRouter;
+
+	@Autowired
+	private ReferenceDataCopier referenceDataCopier;
+
+	@Autowired
+	private AppointmentRepoI appointmentRepoI;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private Doctor doctor;
+	private Office northdale;
+	private Office eastview;
+	private Patient patient;
+
+	// Committed, the shards are reached through connections of their own
+	private void seed() {
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			Specialty cardiology = new Specialty(0, "Cardiology");
+			entityManager.persist(cardiology);
+
+			doctor = new Doctor(1, "Doctor 1", "1@mail.com", Set.of(cardiology));
+			northdale = new Office(1, "Northdale", "Wilson");
+			northdale.addDoctor(doctor);
+			eastview = new Office(2, "Eastview", "Melody");
+			eastview.addDoctor(doctor);
+			entityManager.persist(northdale);
+			entityManager.persist(eastview);
+
+			patient = new Patient("Ada Lovelace", "ada@mail.com", "password");
+			entityManager.persist(patient);
+		});
+
+		referenceDataCopier.copyIntoEmptyShards();
+	}
+
+	@Test
+	public void appointmentsLiveOnTheShardOfTheirOffice() {
+
+		seed();
+
+		Date day = Date.valueOf(LocalDate.now().plusDays(1));
+		Appointment inNorthdale = shardRouter.onShardOf(1, () -> appointmentRepoI.saveAndFlush(new Appointment(day, "09:00", "Cardiology", doctor, northdale, patient)));
+		Appointment inEastview = shardRouter.onShardOf(2, () -> appointmentRepoI.saveAndFlush(new Appointment(day, "09:00", "Cardiology", doctor, eastview, patient)));
+
+		assertThat(shardRouter.shardCount()).isEqualTo(3);
+		assertThat(appointments(0)).isZero();
+		assertThat(appointments(1)).isEqualTo(1);
+		assertThat(appointments(2)).isEqualTo(1);
+		assertThat(inNorthdale.getId()).isNotEqualTo(inEastview.getId());
+
+		List<Appointment> all = shardRouter.fanOut(() -> appointmentRepoI.findAll()).stream().flatMap(List::stream).toList();
+		assertThat(all).extracting(Appointment::getId).containsExactlyInAnyOrder(inNorthdale.getId(), inEastview.getId());
+
+		assertThat(shardRouter.findInAnyShard(() -> appointmentRepoI.findById(inEastview.getId()))).get()
+				.extracting(appointment -> appointment.getOffice().getId()).isEqualTo(2);
+	}
+
+	@Test
+	public void referenceDataWrittenLaterReachesEveryShard() {
+
+		// Written after the copy, office 5 lives on shard 2
+		Office westfield = new Office(5, "Westfield", "Mills");
+		Patient grace = new Patient("Grace Hopper", "grace@mail.com", "password");
+		Doctor dermatologist = new TransactionTemplate(transactionManager).execute(status -> {
+			Specialty dermatology = new Specialty(1, "Dermatology");
+			entityManager.persist(dermatology);
+			Doctor registered = new Doctor(2, "Doctor 2", "2@mail.com", Set.of(dermatology));
+			westfield.addDoctor(registered);
+			entityManager.persist(westfield);
+			entityManager.persist(grace);
+			return registered;
+		});
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> entityManager.find(Office.class, 5).setName("Westfield Clinic"));
+
+		Date day = Date.valueOf(LocalDate.now().plusDays(1));
+		shardRouter.onShardOf(5, () -> appointmentRepoI.saveAndFlush(new Appointment(day, "10:00", "Dermatology", dermatologist, westfield, grace)));
+
+		assertThat(appointments(2)).isPositive();
+		assertThat(new JdbcTemplate(dataSource.shard(2)).queryForObject("select name from offices where id = 5", String.class)).isEqualTo("Westfield Clinic");
+		assertThat(new JdbcTemplate(dataSource.shard(1)).queryForObject("select count(*) from doctor_offices where doctor_id = 2", Integer.class)).isEqualTo(1);
+		assertThat(new JdbcTemplate(dataSource.shard(1)).queryForObject("select count(*) from patients where id = ?", Integer.class, grace.getId())).isEqualTo(1);
+	}
+
+	@Test
+	public void cannotLeaveTheShardOfATransaction() {
+		assertThatIllegalStateException().isThrownBy(() -> shardRouter.inShard(1, () -> shardRouter.inShard(2, () -> null)));
+	}
+
+	private int appointments(int shard) {
+		return new JdbcTemplate(dataSource.shard(shard)).queryForObject("select count(*) from appointments", Integer.class);
+	}
+}